@@ -0,0 +1,53 @@
+package io.novocaine;
+
+import io.novocaine.example.service.FieldInjectionService;
+import io.novocaine.example.service.LowLevelService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a child Injector per request - creating one, binding an instance to it, and retrieving a bound
+ * instance and a singleton of the parent through it (run with -prof gc for the bytes allocated per operation)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ChildInjectorBenchmark {
+
+    private static final LowLevelService REQUEST_SERVICE = new LowLevelService();
+
+    static {
+        Examples.inject();
+    }
+
+    private Injector child;
+
+    @Setup
+    public void setup() {
+        child = Novocaine.child().bind(LowLevelService.class, REQUEST_SERVICE);
+    }
+
+    @Benchmark
+    public Injector child() {
+        return Novocaine.child();
+    }
+
+    @Benchmark
+    public Injector child_bind() {
+        return Novocaine.child().bind(LowLevelService.class, REQUEST_SERVICE);
+    }
+
+    @Benchmark
+    public Object get_bound() {
+        return child.get(LowLevelService.class);
+    }
+
+    @Benchmark
+    public Object get_parent() {
+        return child.get(FieldInjectionService.class);
+    }
+}
@@ -0,0 +1,29 @@
+package io.novocaine;
+
+import io.novocaine.example.service.TopLevelService;
+
+/**
+ * Injects the example services of Novocaine's own tests (io.novocaine.example) - once per benchmark JVM, as
+ * Novocaine.inject() may only be called once
+ */
+final class Examples {
+
+    static final TopLevelService TOP_LEVEL = new TopLevelService();
+
+    static {
+        Novocaine.inject(TOP_LEVEL, NovocaineConfig.builder()
+                .packages("io.novocaine.example")
+                .ignoreBindingIndex()
+                .build());
+    }
+
+    private Examples() {
+    }
+
+    /**
+     * Ensures the example services have been injected
+     */
+    static void inject() {
+        // injected by the static initializer
+    }
+}
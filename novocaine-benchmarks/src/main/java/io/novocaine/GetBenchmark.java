@@ -0,0 +1,44 @@
+package io.novocaine;
+
+import io.novocaine.example.service.FieldInjectionService;
+import org.openjdk.jmh.annotations.*;
+
+import javax.inject.Provider;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares retrieving a singleton through the map of singletons Novocaine.get() used to read, Novocaine.get() itself
+ * (which reads the injector's map of handles once Novocaine.inject() has completed - still a hash lookup, but one which
+ * skips the lazy and unscoped checks) and a handle from Novocaine.handle() - each read by several threads at once
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(4)
+public class GetBenchmark {
+
+    private static final Provider<FieldInjectionService> SERVICE;
+
+    static {
+        Examples.inject();
+        SERVICE = Novocaine.handle(FieldInjectionService.class);
+    }
+
+    @Benchmark
+    public Object get_map() {
+        return Novocaine.defaultInjector.injectableProvider.get(FieldInjectionService.class);
+    }
+
+    @Benchmark
+    public Object get_handleMap() {
+        return Novocaine.get(FieldInjectionService.class);
+    }
+
+    @Benchmark
+    public Object get_handle() {
+        return SERVICE.get();
+    }
+}
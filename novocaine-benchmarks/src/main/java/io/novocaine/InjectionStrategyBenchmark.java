@@ -0,0 +1,142 @@
+package io.novocaine;
+
+import io.novocaine.example.service.ConstructorInjectionService;
+import io.novocaine.example.service.FieldInjectionService;
+import io.novocaine.example.service.MethodInjectionService;
+import org.openjdk.jmh.annotations.*;
+
+import javax.inject.Provider;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of constructor, field and setter injection - each operation creates and fully injects a new
+ * instance of one of the example services through a Prototype, which resolves every injection point to the Provider
+ * of its value once, so what is measured is the factory invoking the constructor, setting the fields or calling the
+ * methods along with the lookup of each (qualified or named) singleton
+ *
+ * Scores are per injection point: the example services have 4 constructor parameters, 3 fields and 7 setters
+ *
+ * The *_direct benchmarks resolve the same providers straight into the factory, with no bookkeeping for nested unscoped
+ * dependencies - the example services have none, so Prototype.get() should score the same.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class InjectionStrategyBenchmark {
+
+    private Prototype<ConstructorInjectionService> constructorInjection;
+    private Prototype<FieldInjectionService> fieldInjection;
+    private Prototype<MethodInjectionService> methodInjection;
+
+    private Direct<ConstructorInjectionService> constructorDirect;
+    private Direct<FieldInjectionService> fieldDirect;
+    private Direct<MethodInjectionService> methodDirect;
+
+    @Setup
+    public void setup() {
+        Examples.inject();
+        constructorInjection = prototypeOf(ConstructorInjectionService.class);
+        fieldInjection = prototypeOf(FieldInjectionService.class);
+        methodInjection = prototypeOf(MethodInjectionService.class);
+        constructorDirect = new Direct<>(ConstructorInjectionService.class);
+        fieldDirect = new Direct<>(FieldInjectionService.class);
+        methodDirect = new Direct<>(MethodInjectionService.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public Object constructor() {
+        return constructorInjection.get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(3)
+    public Object field() {
+        return fieldInjection.get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(7)
+    public Object setter() {
+        return methodInjection.get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public Object constructor_direct() throws Exception {
+        return constructorDirect.get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(3)
+    public Object field_direct() throws Exception {
+        return fieldDirect.get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(7)
+    public Object setter_direct() throws Exception {
+        return methodDirect.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Prototype<T> prototypeOf(Class<T> type) {
+        Prototype<T> prototype = new Prototype<>(Novocaine.defaultInjector.helper, type, (NovocaineFactory<T>) NovocaineHelper.factoryFor(type));
+
+        // resolve the injection points outside of the measurement
+        prototype.get();
+        return prototype;
+    }
+
+    /**
+     * Creates and injects an instance from providers resolved up front - the least Prototype.get() can do
+     */
+    private static final class Direct<T> {
+
+        private final NovocaineFactory<T> factory;
+        private final Provider<?>[] constructor;
+        private final Provider<?>[] fields;
+        private final Provider<?>[][] methods;
+
+        @SuppressWarnings("unchecked")
+        Direct(Class<T> type) {
+            factory = (NovocaineFactory<T>) NovocaineHelper.factoryFor(type);
+            constructor = resolve(factory.constructorDependencies());
+            fields = resolve(factory.fieldDependencies());
+            methods = new Provider<?>[factory.methodDependencies().length][];
+            for (int i = 0; i < methods.length; i++) {
+                methods[i] = resolve(factory.methodDependencies()[i]);
+            }
+        }
+
+        T get() throws Exception {
+            T instance = factory.newInstance(valuesOf(constructor));
+            for (int i = 0; i < fields.length; i++) {
+                factory.injectField(instance, i, fields[i].get());
+            }
+            for (int i = 0; i < methods.length; i++) {
+                factory.injectMethod(instance, i, valuesOf(methods[i]));
+            }
+            return instance;
+        }
+
+        private static Provider<?>[] resolve(Dependency[] dependencies) {
+            Provider<?>[] providers = new Provider<?>[dependencies.length];
+            for (int i = 0; i < dependencies.length; i++) {
+                providers[i] = Novocaine.defaultInjector.helper.resolverOf(dependencies[i]);
+            }
+            return providers;
+        }
+
+        private static Object[] valuesOf(Provider<?>[] providers) {
+            Object[] values = new Object[providers.length];
+            for (int i = 0; i < providers.length; i++) {
+                values[i] = providers[i].get();
+            }
+            return values;
+        }
+    }
+}
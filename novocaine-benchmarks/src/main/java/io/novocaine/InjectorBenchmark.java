@@ -0,0 +1,171 @@
+package io.novocaine;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.inject.Inject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of constructing an instance through Constructor.newInstance, injecting a field through Field.set and
+ * injecting a method through Method.invoke (as ReflectiveFactory used to) against the MethodHandles ReflectiveFactory
+ * now compiles once per constructor, field and method
+ *
+ * Every operation cycles through several target classes, as a real application's injector does - a call site which
+ * only ever sees one class lets the JIT optimize core reflection in a way it cannot in practice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@OperationsPerInvocation(InjectorBenchmark.TARGETS)
+public class InjectorBenchmark {
+
+    static final int TARGETS = 8;
+
+    private final NovocaineFactory<Object>[] factories = newFactories();
+    private final Constructor<?>[] constructors = new Constructor<?>[TARGETS];
+    private final Field[] fields = new Field[TARGETS];
+    private final Method[] methods = new Method[TARGETS];
+    private final Object[] instances = new Object[TARGETS];
+
+    private Object[] args;
+    private Object value;
+
+    @Setup
+    public void setup() throws Exception {
+        value = new Dependent();
+        args = new Object[] { value };
+
+        Class<?>[] types = { Target0.class, Target1.class, Target2.class, Target3.class,
+                Target4.class, Target5.class, Target6.class, Target7.class };
+        for (int i = 0; i < TARGETS; i++) {
+            NovocaineFactory<Object> factory = NovocaineHelper.factoryFor(types[i]);
+            factories[i] = factory;
+            constructors[i] = types[i].getConstructor(Dependent.class);
+            fields[i] = types[i].getField("field");
+            methods[i] = types[i].getMethod("setMethod", Dependent.class);
+
+            // compile the handles outside of the measurement
+            instances[i] = factory.newInstance(args);
+            factory.injectField(instances[i], 0, value);
+            factory.injectMethod(instances[i], 0, args);
+        }
+    }
+
+    @Benchmark
+    public Object constructor_reflection() throws Exception {
+        Object last = null;
+        for (Constructor<?> constructor : constructors) {
+            last = constructor.newInstance(args);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public Object constructor_methodHandle() throws Exception {
+        Object last = null;
+        for (NovocaineFactory<?> factory : factories) {
+            last = factory.newInstance(args);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public void field_reflection() throws Exception {
+        for (int i = 0; i < TARGETS; i++) {
+            fields[i].set(instances[i], value);
+        }
+    }
+
+    @Benchmark
+    public void field_methodHandle() throws Exception {
+        for (int i = 0; i < TARGETS; i++) {
+            factories[i].injectField(instances[i], 0, value);
+        }
+    }
+
+    @Benchmark
+    public void method_reflection() throws Exception {
+        for (int i = 0; i < TARGETS; i++) {
+            methods[i].invoke(instances[i], args);
+        }
+    }
+
+    @Benchmark
+    public void method_methodHandle() throws Exception {
+        for (int i = 0; i < TARGETS; i++) {
+            factories[i].injectMethod(instances[i], 0, args);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NovocaineFactory<Object>[] newFactories() {
+        return (NovocaineFactory<Object>[]) new NovocaineFactory<?>[TARGETS];
+    }
+
+    public static class Dependent {
+    }
+
+    public abstract static class Target {
+
+        protected final Dependent constructor;
+        protected Dependent method;
+
+        protected Target(Dependent constructor) {
+            this.constructor = constructor;
+        }
+    }
+
+    public static class Target0 extends Target {
+        @Inject public Dependent field;
+        @Inject public Target0(Dependent constructor) { super(constructor); }
+        @Inject public void setMethod(Dependent method) { this.method = method; }
+    }
+
+    public static class Target1 extends Target {
+        @Inject public Dependent field;
+        @Inject public Target1(Dependent constructor) { super(constructor); }
+        @Inject public void setMethod(Dependent method) { this.method = method; }
+    }
+
+    public static class Target2 extends Target {
+        @Inject public Dependent field;
+        @Inject public Target2(Dependent constructor) { super(constructor); }
+        @Inject public void setMethod(Dependent method) { this.method = method; }
+    }
+
+    public static class Target3 extends Target {
+        @Inject public Dependent field;
+        @Inject public Target3(Dependent constructor) { super(constructor); }
+        @Inject public void setMethod(Dependent method) { this.method = method; }
+    }
+
+    public static class Target4 extends Target {
+        @Inject public Dependent field;
+        @Inject public Target4(Dependent constructor) { super(constructor); }
+        @Inject public void setMethod(Dependent method) { this.method = method; }
+    }
+
+    public static class Target5 extends Target {
+        @Inject public Dependent field;
+        @Inject public Target5(Dependent constructor) { super(constructor); }
+        @Inject public void setMethod(Dependent method) { this.method = method; }
+    }
+
+    public static class Target6 extends Target {
+        @Inject public Dependent field;
+        @Inject public Target6(Dependent constructor) { super(constructor); }
+        @Inject public void setMethod(Dependent method) { this.method = method; }
+    }
+
+    public static class Target7 extends Target {
+        @Inject public Dependent field;
+        @Inject public Target7(Dependent constructor) { super(constructor); }
+        @Inject public void setMethod(Dependent method) { this.method = method; }
+    }
+}
@@ -0,0 +1,51 @@
+package io.novocaine;
+
+import io.novocaine.example.qualifier.CashPaymentImpl;
+import io.novocaine.example.qualifier.CreditPayment;
+import io.novocaine.example.qualifier.DebitPaymentImpl;
+import io.novocaine.example.qualifier.Payment;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the resolution of @Named and @Qualifier annotations to the concrete class they are associated with - both
+ * from the annotations of a class (resolveAnnotationsToType) and from the field or parameter being injected
+ * (determineType)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class QualifierBenchmark {
+
+    private final Dependency named = Dependency.of(Payment.class, "debit", null);
+    private final Dependency qualified = Dependency.of(Payment.class, null, CreditPayment.class);
+
+    @Setup
+    public void setup() {
+        Examples.inject();
+    }
+
+    @Benchmark
+    public Object annotatedClass_named() {
+        return Novocaine.defaultInjector.helper.resolveAnnotatedClassToType(DebitPaymentImpl.class);
+    }
+
+    @Benchmark
+    public Object annotatedClass_qualifier() {
+        return Novocaine.defaultInjector.helper.resolveAnnotatedClassToType(CashPaymentImpl.class);
+    }
+
+    @Benchmark
+    public Object dependency_named() {
+        return Novocaine.defaultInjector.helper.determineType(named);
+    }
+
+    @Benchmark
+    public Object dependency_qualifier() {
+        return Novocaine.defaultInjector.helper.determineType(qualified);
+    }
+}
@@ -0,0 +1,48 @@
+package io.novocaine;
+
+import io.novocaine.example.qualifier.CashPaymentImpl;
+import io.novocaine.example.service.LowLevelService;
+import io.novocaine.example.service.TopLevelService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Injector#rebind of a leaf singleton of the example services - re-injecting the fields and methods which depend
+ * upon it in place, and constructing anew (and re-injecting in turn) the classes whose constructors do
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RebindBenchmark {
+
+    private final LowLevelService lowLevelService = new LowLevelService();
+    private final CashPaymentImpl cashPayment = new CashPaymentImpl();
+
+    private Injector injector;
+
+    @Setup
+    public void setup() {
+        injector = new Injector();
+        injector.inject(new TopLevelService(), NovocaineConfig.builder()
+                .packages("io.novocaine.example")
+                .ignoreBindingIndex()
+                .rebindable()
+                .build());
+    }
+
+    @Benchmark
+    public Injector rebind_lowLevelService() {
+        injector.rebind(LowLevelService.class, lowLevelService);
+        return injector;
+    }
+
+    @Benchmark
+    public Injector rebind_cashPayment() {
+        injector.rebind(CashPaymentImpl.class, cashPayment);
+        return injector;
+    }
+}
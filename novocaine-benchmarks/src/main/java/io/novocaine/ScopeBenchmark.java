@@ -0,0 +1,59 @@
+package io.novocaine;
+
+import io.novocaine.example.service.RequestScopedService;
+import io.novocaine.example.service.ThreadScopedService;
+import org.openjdk.jmh.annotations.*;
+
+import javax.inject.Provider;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the hot path of scoped classes - entering and exiting a request, and retrieving an instance already
+ * constructed within the request or on the thread (run with -prof gc to confirm none of them allocate)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ScopeBenchmark {
+
+    private static final Provider<RequestScopedService> REQUEST_SERVICE;
+    private static final Provider<ThreadScopedService> THREAD_SERVICE;
+
+    static {
+        Examples.inject();
+        REQUEST_SERVICE = Novocaine.handle(RequestScopedService.class);
+        THREAD_SERVICE = Novocaine.handle(ThreadScopedService.class);
+    }
+
+    private final RequestScope scope = new RequestScope("benchmark");
+
+    @Setup
+    public void setup() {
+        RequestScope.REQUEST.enter();
+        REQUEST_SERVICE.get();
+    }
+
+    @TearDown
+    public void teardown() {
+        RequestScope.REQUEST.exit();
+    }
+
+    @Benchmark
+    public void enter_exit() {
+        scope.enter();
+        scope.exit();
+    }
+
+    @Benchmark
+    public Object get_request() {
+        return REQUEST_SERVICE.get();
+    }
+
+    @Benchmark
+    public Object get_thread() {
+        return THREAD_SERVICE.get();
+    }
+}
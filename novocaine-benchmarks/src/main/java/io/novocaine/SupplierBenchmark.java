@@ -0,0 +1,59 @@
+package io.novocaine;
+
+import io.novocaine.example.service.ProviderService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the instantiation of an object by a method marked with @Singleton on the example ProviderService - resolving
+ * the method's arguments, invoking it and storing the supplied object under its binding key
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SupplierBenchmark {
+
+    private NovocaineFactory<Object> factory;
+    private int noArgs;
+    private int withArgs;
+    private int named;
+
+    @Setup
+    public void setup() {
+        Examples.inject();
+        factory = NovocaineHelper.factoryFor(ProviderService.class);
+        noArgs = indexOf(ProviderService.ProvidedService.class, null);
+        withArgs = indexOf(ProviderService.SecondProvidedService.class, null);
+        named = indexOf(ProviderService.ProvidedService.class, "firstNamedProvidedService");
+    }
+
+    @Benchmark
+    public void supplier_noArgs() {
+        Novocaine.defaultInjector.helper.instantiateFromSupplier(ProviderService.class, factory, noArgs, Examples.TOP_LEVEL);
+    }
+
+    @Benchmark
+    public void supplier_withArgs() {
+        Novocaine.defaultInjector.helper.instantiateFromSupplier(ProviderService.class, factory, withArgs, Examples.TOP_LEVEL);
+    }
+
+    @Benchmark
+    public void supplier_named() {
+        Novocaine.defaultInjector.helper.instantiateFromSupplier(ProviderService.class, factory, named, Examples.TOP_LEVEL);
+    }
+
+    private int indexOf(Class<?> type, String namedValue) {
+        Dependency[] keys = factory.supplierKeys();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].getType() == type && Objects.equals(keys[i].getNamed(), namedValue)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("No @Singleton method supplying: " + type.getName());
+    }
+}
@@ -0,0 +1,150 @@
+package io.novocaine.startup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Measures how Novocaine.inject() scales with the size and shape of the application: generates synthetic classpaths
+ * (see SyntheticClasspath), runs Novocaine.inject() on each in a fresh JVM (see StartupProbe) and reports the median
+ * of every measurement over the runs
+ *
+ * Each mode is measured separately:
+ *      scan    - compiled without annotation processing, the classpath is scanned
+ *      index   - compiled with the novocaine-processor module, read from its binding index and generated factories
+ *
+ * Usage:
+ *      java -cp target/benchmarks.jar io.novocaine.startup.StartupBenchmark \
+ *              [sizes=1000,10000,50000] [shapes=wide,deep,qualifiers,named] [modes=scan,index] [runs=3] \
+ *              [dir=target/synthetic] [jvmArgs="-Xmx2g -Xss8m"]
+ *
+ * Generated classpaths are kept in dir and reused by later runs.
+ */
+public final class StartupBenchmark {
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put("sizes", "1000,10000,50000");
+        options.put("shapes", String.join(",", SyntheticClasspath.SHAPES));
+        options.put("modes", "scan,index");
+        options.put("runs", "3");
+        options.put("dir", "target/synthetic");
+        options.put("jvmArgs", "");
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !options.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Unknown option: " + arg + " - expected one of: " + options.keySet());
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        int runs = Integer.parseInt(options.get("runs"));
+        Path root = Paths.get(options.get("dir"));
+        List<String> jvmArgs = options.get("jvmArgs").trim().isEmpty()
+                ? Collections.emptyList()
+                : Arrays.asList(options.get("jvmArgs").trim().split("\\s+"));
+
+        List<String> modes = Arrays.asList(options.get("modes").split(","));
+        for (String mode : modes) {
+            if (!mode.equals("scan") && !mode.equals("index")) {
+                throw new IllegalArgumentException("Unknown mode: " + mode + " - expected one of: [scan, index]");
+            }
+        }
+
+        System.out.printf("%-12s %8s %6s %8s %12s %12s %14s %14s %14s%n",
+                "shape", "size", "mode", "classes", "jvm ms", "inject ms", "allocated MB", "peak heap MB", "metaspace MB");
+        for (String shape : options.get("shapes").split(",")) {
+            for (String size : options.get("sizes").split(",")) {
+                for (String mode : modes) {
+                    SyntheticClasspath classpath = new SyntheticClasspath(shape, Integer.parseInt(size), mode.equals("index"), root);
+                    int classes = classpath.create();
+
+                    List<Map<String, Long>> results = new ArrayList<>();
+                    String failure = null;
+                    for (int run = 0; run < runs && failure == null; run++) {
+                        long start = System.nanoTime();
+                        Map<String, Long> result = new HashMap<>();
+                        failure = probe(classpath, mode, jvmArgs, result);
+                        result.put("jvmNanos", System.nanoTime() - start);
+                        results.add(result);
+                    }
+
+                    if (failure != null) {
+                        System.out.printf("%-12s %8s %6s %8d %s%n", shape, size, mode, classes, failure);
+                        continue;
+                    }
+                    System.out.printf(Locale.ROOT, "%-12s %8s %6s %8d %12.1f %12.1f %14.1f %14.1f %14.1f%n", shape, size, mode, classes,
+                            median(results, "jvmNanos") / 1e6,
+                            median(results, "injectNanos") / 1e6,
+                            median(results, "allocatedBytes") / 1048576.0,
+                            median(results, "peakHeapBytes") / 1048576.0,
+                            median(results, "metaspaceBytes") / 1048576.0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs StartupProbe on the synthetic classpath in a fresh JVM
+     *
+     * @return - the reason the run failed (or null if it succeeded)
+     */
+    private static String probe(SyntheticClasspath classpath, String mode, List<String> jvmArgs, Map<String, Long> result)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(classpath.classes() + File.pathSeparator + System.getProperty("java.class.path"));
+        command.add(StartupProbe.class.getName());
+        command.add(classpath.packageName());
+        command.add(mode);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String failure = null;
+        String last = null;
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = output.readLine(); line != null; line = output.readLine()) {
+                if (line.startsWith("RESULT ")) {
+                    for (String measurement : line.substring("RESULT ".length()).split(" ")) {
+                        String[] pair = measurement.split("=");
+                        result.put(pair[0], Long.parseLong(pair[1]));
+                    }
+                }
+                else if (line.startsWith("FAILED ")) {
+                    failure = line;
+                }
+                else if (!line.trim().isEmpty()) {
+                    last = line;
+                }
+            }
+        }
+        int exit = process.waitFor();
+        if (failure == null && exit != 0) {
+            failure = "FAILED exit " + exit + (last != null ? ": " + last : "");
+        }
+        return failure;
+    }
+
+    private static double median(List<Map<String, Long>> results, String measurement) {
+        List<Long> values = new ArrayList<>();
+        results.forEach(result -> values.add(result.get(measurement)));
+        Collections.sort(values);
+        int middle = values.size() / 2;
+        return values.size() % 2 == 1 ? values.get(middle) : (values.get(middle - 1) + values.get(middle)) / 2.0;
+    }
+}
@@ -0,0 +1,120 @@
+package io.novocaine.startup;
+
+import io.novocaine.Novocaine;
+import io.novocaine.NovocaineConfig;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs Novocaine.inject() on a synthetic classpath - the main class of the fresh JVM StartupBenchmark launches for
+ * every run - and prints a single line of measurements:
+ *
+ *      RESULT injectNanos=... allocatedBytes=... peakHeapBytes=... metaspaceBytes=...
+ *
+ * Bytes allocated are read from the HotSpot ThreadMXBean (as GraphExport does) - the growth of the bytes allocated by
+ * every thread, including those which terminated in between on JVMs which report them, such as the classpath scanning
+ * pool (or -1 if the JVM does not measure allocation). The peak heap is summed over the peaks of every heap pool, and
+ * metaspace is the growth of the Metaspace pool.
+ *
+ * The binding index is ignored (and the classpath scanned) unless the mode is "index" - the synthetic classes must then
+ * have been compiled with the novocaine-processor module.
+ *
+ * Usage: java -cp {synthetic classes}:{benchmarks jar} io.novocaine.startup.StartupProbe {package} [scan|index]
+ */
+public final class StartupProbe {
+
+    private StartupProbe() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String pkg = args[0];
+        boolean index = args.length > 1 && args[1].equals("index");
+        Object application = Class.forName(pkg + ".SyntheticApplication").getConstructor().newInstance();
+        NovocaineConfig.Builder config = NovocaineConfig.builder().packages(pkg);
+        if (!index) {
+            config.ignoreBindingIndex();
+        }
+
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        LongSupplier allocatedBytes = allocatedBytes();
+        long allocatedBefore = allocatedBytes != null ? allocatedBytes.getAsLong() : 0;
+        long metaspaceBefore = metaspaceUsed(pools);
+        pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        try {
+            Novocaine.inject(application, config.build());
+        }
+        catch (Throwable t) {
+            System.out.println("FAILED " + t);
+            System.exit(1);
+        }
+        long injectNanos = System.nanoTime() - start;
+
+        long allocated = allocatedBytes != null ? allocatedBytes.getAsLong() - allocatedBefore : -1;
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        System.out.println("RESULT injectNanos=" + injectNanos
+                + " allocatedBytes=" + allocated
+                + " peakHeapBytes=" + peakHeap
+                + " metaspaceBytes=" + (metaspaceUsed(pools) - metaspaceBefore));
+    }
+
+    private static long metaspaceUsed(List<MemoryPoolMXBean> pools) {
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getName().equals("Metaspace")) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return - the bytes allocated so far by every thread of the JVM (or null if the JVM does not measure them)
+     */
+    private static LongSupplier allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        allocation.setThreadAllocatedMemoryEnabled(true);
+        try {
+            // Java 14+ - also counts the threads which have since terminated
+            Method total = com.sun.management.ThreadMXBean.class.getMethod("getTotalThreadAllocatedBytes");
+            if ((long) total.invoke(allocation) >= 0) {
+                return () -> {
+                    try {
+                        return (long) total.invoke(allocation);
+                    }
+                    catch (ReflectiveOperationException e) {
+                        throw new IllegalStateException(e);
+                    }
+                };
+            }
+        }
+        catch (ReflectiveOperationException e) {
+            // fall back to the threads which are alive when read
+        }
+        return () -> {
+            long allocated = 0;
+            for (long bytes : allocation.getThreadAllocatedBytes(allocation.getAllThreadIds())) {
+                // -1 for a thread which terminated since its id was read
+                allocated += Math.max(bytes, 0);
+            }
+            return allocated;
+        };
+    }
+}
@@ -0,0 +1,195 @@
+package io.novocaine.startup;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates and compiles a synthetic application of a given shape and size into its own directory - every class in
+ * package synthetic.{shape}, injected starting from synthetic.{shape}.SyntheticApplication
+ *
+ * Processed applications are compiled with the novocaine-processor module (generated factories and a binding index),
+ * the others without any annotation processing.
+ *
+ * Shapes:
+ *      wide        - every singleton takes up to FAN_OUT (randomly chosen) earlier singletons as constructor parameters
+ *      deep        - a single chain, every singleton injects the previous one into a field
+ *      qualifiers  - a third each of @Qualifier annotations, implementations of one interface each carrying one of
+ *                    them, and singletons injecting that interface into a field qualified by one of them
+ *      named       - singletons each injecting a field with a distinct @Named value, every value supplied by a method
+ *                    marked with @Singleton (SUPPLIERS_PER_CLASS per class)
+ */
+final class SyntheticClasspath {
+
+    static final List<String> SHAPES = Arrays.asList("wide", "deep", "qualifiers", "named");
+
+    private static final int FAN_OUT = 8;
+    private static final int SUPPLIERS_PER_CLASS = 100;
+
+    private final String shape;
+    private final int size;
+    private final boolean processed;
+    private final Path directory;
+
+    SyntheticClasspath(String shape, int size, boolean processed, Path root) {
+        if (!SHAPES.contains(shape)) {
+            throw new IllegalArgumentException("Unknown shape: " + shape + " - expected one of: " + SHAPES);
+        }
+        this.shape = shape;
+        this.size = size;
+        this.processed = processed;
+        this.directory = root.resolve(shape + "-" + size + (processed ? "-processed" : ""));
+    }
+
+    /**
+     * @return - the package of every generated class
+     */
+    String packageName() {
+        return "synthetic." + shape;
+    }
+
+    /**
+     * @return - the directory of the compiled classes
+     */
+    Path classes() {
+        return directory.resolve("classes");
+    }
+
+    /**
+     * Generates and compiles the classes, unless a previous run already has
+     *
+     * @return - the number of classes generated
+     */
+    int create() throws IOException {
+        Path marker = directory.resolve("classes.count");
+        if (Files.exists(marker)) {
+            return Integer.parseInt(new String(Files.readAllBytes(marker), StandardCharsets.UTF_8).trim());
+        }
+
+        Path sources = directory.resolve("sources");
+        Path packageDirectory = sources.resolve(packageName().replace('.', '/'));
+        Files.createDirectories(packageDirectory);
+        Files.createDirectories(classes());
+
+        List<Path> files = new ArrayList<>();
+        Source source = (name, body) -> {
+            Path file = packageDirectory.resolve(name + ".java");
+            Files.write(file, ("package " + packageName() + ";\n\n" + body).getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        };
+        switch (shape) {
+            case "wide": wide(source); break;
+            case "deep": deep(source); break;
+            case "qualifiers": qualifiers(source); break;
+            default: named(source);
+        }
+        compile(files);
+
+        Files.write(marker, String.valueOf(files.size()).getBytes(StandardCharsets.UTF_8));
+        return files.size();
+    }
+
+    private void wide(Source source) throws IOException {
+        Random random = new Random(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder params = new StringBuilder();
+            int fanOut = Math.min(FAN_OUT, i);
+            for (int p = 0; p < fanOut; p++) {
+                params.append(p == 0 ? "" : ", ").append("S").append(random.nextInt(i)).append(" p").append(p);
+            }
+            source.write("S" + i, "import javax.inject.Inject;\nimport javax.inject.Singleton;\n\n"
+                    + "@Singleton\npublic class S" + i + " {\n\n"
+                    + "    @Inject\n    public S" + i + "(" + params + ") {\n    }\n}\n");
+        }
+        application(source, "S" + (size - 1));
+    }
+
+    private void deep(Source source) throws IOException {
+        for (int i = 0; i < size; i++) {
+            source.write("S" + i, "import javax.inject.Inject;\nimport javax.inject.Singleton;\n\n"
+                    + "@Singleton\npublic class S" + i + " {\n"
+                    + (i == 0 ? "" : "\n    @Inject\n    S" + (i - 1) + " previous;\n")
+                    + "}\n");
+        }
+        application(source, "S" + (size - 1));
+    }
+
+    private void qualifiers(Source source) throws IOException {
+        int count = Math.max(1, size / 3);
+        source.write("Service", "public interface Service {\n}\n");
+        for (int k = 0; k < count; k++) {
+            source.write("Q" + k, "import javax.inject.Qualifier;\nimport java.lang.annotation.Retention;\n"
+                    + "import java.lang.annotation.RetentionPolicy;\n\n"
+                    + "@Qualifier\n@Retention(RetentionPolicy.RUNTIME)\npublic @interface Q" + k + " {\n}\n");
+            source.write("Impl" + k, "import javax.inject.Singleton;\n\n"
+                    + "@Q" + k + "\n@Singleton\npublic class Impl" + k + " implements Service {\n}\n");
+            source.write("C" + k, "import javax.inject.Inject;\nimport javax.inject.Singleton;\n\n"
+                    + "@Singleton\npublic class C" + k + " {\n\n"
+                    + "    @Inject\n    @Q" + k + "\n    Service service;\n}\n");
+        }
+        application(source, "C" + (count - 1));
+    }
+
+    private void named(Source source) throws IOException {
+        int consumers = Math.max(1, size - size / (SUPPLIERS_PER_CLASS + 1));
+        // supplied values are lambdas, so that no class of theirs is scanned
+        source.write("Value", "public interface Value {\n\n    int id();\n}\n");
+        for (int j = 0; j * SUPPLIERS_PER_CLASS < consumers; j++) {
+            StringBuilder methods = new StringBuilder();
+            for (int k = j * SUPPLIERS_PER_CLASS; k < Math.min(consumers, (j + 1) * SUPPLIERS_PER_CLASS); k++) {
+                methods.append("\n    @Singleton\n    @Named(\"v").append(k).append("\")\n")
+                        .append("    public Value v").append(k).append("() {\n        return () -> ").append(k).append(";\n    }\n");
+            }
+            source.write("Suppliers" + j, "import javax.inject.Named;\nimport javax.inject.Singleton;\n\n"
+                    + "@Singleton\npublic class Suppliers" + j + " {\n" + methods + "}\n");
+        }
+        for (int k = 0; k < consumers; k++) {
+            source.write("C" + k, "import javax.inject.Inject;\nimport javax.inject.Named;\nimport javax.inject.Singleton;\n\n"
+                    + "@Singleton\npublic class C" + k + " {\n\n"
+                    + "    @Inject\n    @Named(\"v" + k + "\")\n    Value value;\n}\n");
+        }
+        application(source, "C" + (consumers - 1));
+    }
+
+    private static void application(Source source, String root) throws IOException {
+        source.write("SyntheticApplication", "import javax.inject.Inject;\n\n"
+                + "public class SyntheticApplication {\n\n"
+                + "    @Inject\n    " + root + " root;\n}\n");
+    }
+
+    private void compile(List<Path> files) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Generating synthetic classpaths requires a JDK");
+        }
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            List<File> sources = new ArrayList<>();
+            files.forEach(file -> sources.add(file.toFile()));
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(sources);
+            List<String> options = new ArrayList<>(Arrays.asList("-d", classes().toString(),
+                    "-cp", System.getProperty("java.class.path"), "-nowarn"));
+            options.addAll(processed
+                    ? Arrays.asList("-processor", "io.novocaine.processor.NovocaineProcessor")
+                    : Collections.singletonList("-proc:none"));
+            if (!compiler.getTask(null, fileManager, null, options, null, units).call()) {
+                throw new IllegalStateException("Could not compile the synthetic classpath: " + directory);
+            }
+        }
+    }
+
+    private interface Source {
+
+        void write(String name, String body) throws IOException;
+    }
+}
@@ -0,0 +1,825 @@
+package io.novocaine.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Generates a reflection-free io.novocaine.NovocaineFactory for every injectable class in the compilation
+ *
+ * A class is injectable if it is marked with @Singleton, @Named, a @Qualifier-associated or a @Scope-associated
+ * annotation, or if it has a constructor, field or method marked with @Inject or a method marked with @Singleton. The
+ * factory is generated into the class's own package as {ClassName}_NovocaineFactory so that package-private members
+ * may be injected directly, and every generated factory is registered in
+ * META-INF/services/io.novocaine.NovocaineFactory.
+ *
+ * Every injectable class is also recorded in the binding index META-INF/novocaine/bindings.idx, which Novocaine.inject()
+ * reads instead of scanning the classpath. See io.novocaine.BindingIndex for the format. The records and factory
+ * registrations of a previous compilation into the same output are kept for every class which is not compiled again
+ * but still exists, so that an incremental build leaves neither a partial index nor a partial registration.
+ *
+ * Classes with injection points which cannot be reached from generated code (private fields, constructors or methods,
+ * final fields, non-static inner classes, ...) are skipped with a note - Novocaine.inject() falls back to reflection
+ * for these.
+ *
+ * Usage: add novocaine-processor to the annotation processor path of the compiler
+ */
+@SupportedAnnotationTypes("*")
+public class NovocaineProcessor extends AbstractProcessor {
+
+    static final String FACTORY_SUFFIX = "_NovocaineFactory";
+    static final String SERVICE_FILE = "META-INF/services/io.novocaine.NovocaineFactory";
+    static final String BINDING_INDEX = "META-INF/novocaine/bindings.idx";
+
+    private static final String FACTORY_INTERFACE = "io.novocaine.NovocaineFactory";
+    private static final String DEPENDENCY = "io.novocaine.Dependency";
+    private static final String INJECT = "javax.inject.Inject";
+    private static final String NAMED = "javax.inject.Named";
+    private static final String SINGLETON = "javax.inject.Singleton";
+    private static final String QUALIFIER = "javax.inject.Qualifier";
+    private static final String SCOPE = "javax.inject.Scope";
+    private static final String PROVIDER = "javax.inject.Provider";
+    // matched by simple name - the annotations of javax.annotation and jakarta.annotation are both honoured
+    private static final String POST_CONSTRUCT = "PostConstruct";
+    private static final String PRE_DESTROY = "PreDestroy";
+
+    /**
+     * The fully qualified names of all factories generated during this compilation
+     */
+    private final Set<String> factories = new TreeSet<>();
+
+    /**
+     * The binding index records of all injectable classes in this compilation
+     */
+    private final Set<String> bindings = new LinkedHashSet<>();
+
+    /**
+     * The binary names of all classes in this compilation, injectable or not
+     */
+    private final Set<String> compiled = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            // both resources are merged by the same policy, so that they always describe the same classes
+            writeResource(SERVICE_FILE, withPrevious(SERVICE_FILE, factories, this::instantiatedBy));
+            writeResource(BINDING_INDEX, withPrevious(BINDING_INDEX, bindings, NovocaineProcessor::recordedBy));
+            return false;
+        }
+        List<TypeElement> types = new ArrayList<>();
+        for (Element element : roundEnv.getRootElements()) {
+            collectClasses(element, types);
+        }
+        for (TypeElement type : types) {
+            compiled.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+            List<String> records = bindingsOf(type);
+            if (records.isEmpty()) {
+                // not injectable
+                continue;
+            }
+            bindings.addAll(records);
+            Factory factory = describe(type);
+            if (factory != null) {
+                writeFactory(factory);
+            }
+        }
+        // the annotations are also read by Novocaine at runtime - never claim them
+        return false;
+    }
+
+    /**
+     * Merges a resource written by a previous compilation into the same output with the lines of this one - an
+     * incremental build only compiles the classes which changed
+     *
+     * @param location - the resource (the binding index or the ServiceLoader registration of the factories)
+     * @param lines - the lines of this compilation
+     * @param classOf - determines the binary name of the class a previous line describes (or null if it is unknown)
+     *
+     * @return - the previous lines of every class which was not compiled now but still exists, followed by the lines of
+     * this compilation
+     */
+    private Set<String> withPrevious(String location, Set<String> lines, Function<String, String> classOf) {
+        Set<String> merged = new LinkedHashSet<>();
+        try {
+            FileObject previous = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", location);
+            try (BufferedReader reader = new BufferedReader(previous.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String name = classOf.apply(line);
+                    if (name != null && !compiled.contains(name)
+                            && processingEnv.getElementUtils().getTypeElement(name.replace('$', '.')) != null) {
+                        merged.add(line);
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            // no previous resource - a full build
+        }
+        merged.addAll(lines);
+        return merged;
+    }
+
+    /**
+     * @return - the binary name of the class the supplied binding index record describes (or null)
+     */
+    private static String recordedBy(String record) {
+        String[] fields = record.split("\t");
+        if (fields[0].equals("named") || fields[0].equals("qualifier")) {
+            return fields.length < 3 ? null : fields[2];
+        }
+        return fields.length < 2 ? null : fields[1];
+    }
+
+    /**
+     * @return - the binary name of the class the supplied (previously generated) factory instantiates (or null if the
+     * factory or the class no longer exists)
+     */
+    private String instantiatedBy(String factoryName) {
+        TypeElement factory = processingEnv.getElementUtils().getTypeElement(factoryName);
+        if (factory == null) {
+            return null;
+        }
+        for (TypeMirror implemented : factory.getInterfaces()) {
+            if (implemented.getKind() != TypeKind.DECLARED) {
+                continue;
+            }
+            DeclaredType declared = (DeclaredType) implemented;
+            List<? extends TypeMirror> arguments = declared.getTypeArguments();
+            if (((TypeElement) declared.asElement()).getQualifiedName().contentEquals(FACTORY_INTERFACE)
+                    && arguments.size() == 1 && arguments.get(0).getKind() == TypeKind.DECLARED) {
+                return processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) arguments.get(0)).asElement()).toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collects the supplied element and all of its nested classes
+     */
+    private void collectClasses(Element element, List<TypeElement> types) {
+        if (element.getKind() == ElementKind.CLASS) {
+            types.add((TypeElement) element);
+        }
+        for (TypeElement nested : ElementFilter.typesIn(element.getEnclosedElements())) {
+            collectClasses(nested, types);
+        }
+    }
+
+    /**
+     * Determines the injection points of the supplied class
+     *
+     * @param type - the class
+     *
+     * @return - the description of the factory to generate (or null if the class cannot be injected without reflection)
+     */
+    private Factory describe(TypeElement type) {
+        Factory factory = new Factory(type, packageOf(type));
+        try {
+            if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+                throw new Unsupported("it is abstract");
+            }
+            if (type.getNestingKind() != NestingKind.TOP_LEVEL && !type.getModifiers().contains(Modifier.STATIC)) {
+                throw new Unsupported("it is not a top-level or static nested class");
+            }
+            requireAccessible(type.asType(), factory);
+            describeConstructor(factory);
+            describeFields(factory);
+            describeMethods(factory);
+            describeLifecycleMethods(factory, POST_CONSTRUCT, factory.postConstructs);
+            describeLifecycleMethods(factory, PRE_DESTROY, factory.preDestroys);
+        }
+        catch (Unsupported e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "Novocaine will inject " + type.getQualifiedName() + " via reflection: " + e.getMessage(), type);
+            return null;
+        }
+        return factory;
+    }
+
+    /**
+     * Determines the binding index records of the supplied class
+     *
+     * @param type - the class
+     *
+     * @return - the records for every annotation or injection point of the class which Novocaine acts upon (empty if
+     * the class is not injectable)
+     */
+    private List<String> bindingsOf(TypeElement type) {
+        String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+        List<String> records = new ArrayList<>();
+        if (hasAnnotation(type, SINGLETON)) {
+            records.add("singleton\t" + name);
+        }
+        if (hasInjectMembers(type)) {
+            records.add("inject\t" + name);
+        }
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getModifiers().contains(Modifier.PUBLIC) && hasAnnotation(method, SINGLETON)) {
+                String named = namedOf(method);
+                records.add("supplier\t" + name + "\t" + method.getSimpleName() + "\t" + binaryName(method.getReturnType())
+                        + (named != null ? "\t" + escape(named) : ""));
+            }
+        }
+        String named = namedOf(type);
+        if (named != null) {
+            records.add("named\t" + escape(named) + "\t" + name);
+        }
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (!nameOf(annotation).equals(NAMED) && hasAnnotation(annotationType, QUALIFIER)) {
+                records.add("qualifier\t" + processingEnv.getElementUtils().getBinaryName(annotationType) + "\t" + name);
+            }
+            if (!nameOf(annotation).equals(SINGLETON) && hasAnnotation(annotationType, SCOPE)) {
+                records.add("scoped\t" + name);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return - true if the class has a constructor, field or method marked with @Inject
+     */
+    private boolean hasInjectMembers(TypeElement type) {
+        for (Element member : processingEnv.getElementUtils().getAllMembers(type)) {
+            if (hasAnnotation(member, INJECT)) {
+                return true;
+            }
+        }
+        for (TypeElement t = type; t != null; t = superclassOf(t)) {
+            for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+                if (hasAnnotation(field, INJECT)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Locates the first public constructor marked with @Inject - or the no-arg constructor if there is none
+     */
+    private void describeConstructor(Factory factory) throws Unsupported {
+        ExecutableElement noArg = null;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(factory.type.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC) && hasAnnotation(constructor, INJECT)) {
+                factory.injectConstructor = true;
+                factory.constructor = invocation("new " + factory.typeName, constructor, factory.constructorDependencies, factory);
+                return;
+            }
+            if (constructor.getParameters().isEmpty() && isAccessible(constructor, factory.packageName)) {
+                noArg = constructor;
+            }
+        }
+        if (noArg != null) {
+            factory.constructor = "new " + factory.typeName + "()";
+        }
+    }
+
+    /**
+     * Locates every field marked with @Inject, including those declared by superclasses
+     */
+    private void describeFields(Factory factory) throws Unsupported {
+        for (TypeElement t = factory.type; t != null; t = superclassOf(t)) {
+            for (VariableElement field : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+                if (!hasAnnotation(field, INJECT)) {
+                    continue;
+                }
+                if (!isAccessible(field, factory.packageName)) {
+                    throw new Unsupported("field " + field.getSimpleName() + " is not accessible");
+                }
+                if (field.getModifiers().contains(Modifier.FINAL)) {
+                    throw new Unsupported("field " + field.getSimpleName() + " is final");
+                }
+                String target;
+                if (field.getModifiers().contains(Modifier.STATIC)) {
+                    target = erasure(t.asType());
+                }
+                else if (t.equals(factory.type)) {
+                    target = "instance";
+                }
+                else {
+                    requireAccessible(t.asType(), factory);
+                    target = "((" + erasure(t.asType()) + ") instance)";
+                }
+                requireAccessible(field.asType(), factory);
+                factory.fieldDependencies.add(dependency(field.asType(), field, factory));
+                factory.fields.add(target + "." + field.getSimpleName() + " = " + cast(field.asType(), "value"));
+            }
+        }
+    }
+
+    /**
+     * Locates every public method marked with @Inject or @Singleton, including those declared by superclasses
+     */
+    private void describeMethods(Factory factory) throws Unsupported {
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(factory.type))) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            String target = method.getModifiers().contains(Modifier.STATIC)
+                    ? erasure(method.getEnclosingElement().asType())
+                    : "instance";
+            if (hasAnnotation(method, INJECT)) {
+                List<String> dependencies = new ArrayList<>();
+                String methodNamed = namedOf(method);
+                TypeElement methodQualifier = qualifierOf(method);
+                if (methodNamed != null || methodQualifier != null) {
+                    // the method is annotated, it MUST only have one parameter:
+                    if (method.getParameters().size() != 1) {
+                        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Method " + method.getSimpleName()
+                                + " requires " + method.getParameters().size() + " parameters but is annotated with @Named or a @Qualifier-associated annotation", method);
+                        throw new Unsupported("method " + method.getSimpleName() + " is invalid");
+                    }
+                    TypeMirror parameterType = method.getParameters().get(0).asType();
+                    requireAccessible(parameterType, factory);
+                    dependencies.add(dependency(parameterType, methodNamed, methodQualifier, factory));
+                    factory.methods.add(target + "." + method.getSimpleName() + "(" + cast(parameterType, "args[0]") + ")");
+                }
+                else {
+                    factory.methods.add(invocation(target + "." + method.getSimpleName(), method, dependencies, factory));
+                }
+                factory.methodDependencies.add(dependencies);
+            }
+            if (hasAnnotation(method, SINGLETON)) {
+                requireAccessible(method.getReturnType(), factory);
+                List<String> dependencies = new ArrayList<>();
+                String invocation = invocation(target + "." + method.getSimpleName(), method, dependencies, factory);
+                factory.supplierKeys.add(dependency(method.getReturnType(), namedOf(method), qualifierOf(method), factory));
+                factory.supplierDependencies.add(dependencies);
+                factory.suppliers.add(method.getReturnType().getKind() == TypeKind.VOID
+                        ? invocation + ";\n                return null"
+                        : "return " + invocation);
+            }
+        }
+    }
+
+    /**
+     * Locates every method marked with @PostConstruct (or @PreDestroy), superclasses first - an overridden method is
+     * invoked once
+     *
+     * @param factory - the factory being described
+     * @param annotation - the simple name of the annotation
+     * @param invocations - the invocations of the methods located
+     */
+    private void describeLifecycleMethods(Factory factory, String annotation, List<String> invocations) throws Unsupported {
+        Deque<TypeElement> hierarchy = new ArrayDeque<>();
+        for (TypeElement type = factory.type; type != null; type = superclassOf(type)) {
+            hierarchy.push(type);
+        }
+        Set<String> overridable = new HashSet<>();
+        for (TypeElement type : hierarchy) {
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (!hasSimpleAnnotation(method, annotation)) {
+                    continue;
+                }
+                if (!method.getParameters().isEmpty() || method.getModifiers().contains(Modifier.STATIC)) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Method " + method.getSimpleName()
+                            + " is marked with @" + annotation + " but is static or takes parameters", method);
+                    throw new Unsupported("method " + method.getSimpleName() + " is invalid");
+                }
+                if (!isAccessible(method, factory.packageName)) {
+                    throw new Unsupported("method " + method.getSimpleName() + " is not accessible");
+                }
+                if (overridable.add(method.getSimpleName().toString())) {
+                    invocations.add("instance." + method.getSimpleName() + "()");
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders the invocation of a constructor or method, casting each of the args to its parameter type
+     *
+     * @param prefix - the expression preceding the argument list
+     * @param executable - the constructor or method
+     * @param dependencies - receives the dependency expressions of each parameter
+     * @param factory - the factory being described
+     *
+     * @return - the rendered invocation
+     */
+    private String invocation(String prefix, ExecutableElement executable, List<String> dependencies, Factory factory) throws Unsupported {
+        StringJoiner args = new StringJoiner(", ", prefix + "(", ")");
+        List<? extends VariableElement> parameters = executable.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            TypeMirror parameterType = parameters.get(i).asType();
+            requireAccessible(parameterType, factory);
+            dependencies.add(dependency(parameterType, parameters.get(i), factory));
+            args.add(cast(parameterType, "args[" + i + "]"));
+        }
+        return args.toString();
+    }
+
+    private String dependency(TypeMirror type, Element element, Factory factory) throws Unsupported {
+        return dependency(type, namedOf(element), qualifierOf(element), factory);
+    }
+
+    /**
+     * Renders the io.novocaine.Dependency describing a single injection point
+     */
+    private String dependency(TypeMirror type, String named, TypeElement qualifier, Factory factory) throws Unsupported {
+        if (qualifier != null) {
+            requireAccessible(qualifier.asType(), factory);
+        }
+        TypeMirror provided = providedType(type);
+        if (provided != null) {
+            requireAccessible(provided, factory);
+            return DEPENDENCY + ".provider(" + erasure(provided) + ".class, "
+                    + (named != null ? processingEnv.getElementUtils().getConstantExpression(named) : "null") + ", "
+                    + (qualifier != null ? qualifier.getQualifiedName() + ".class" : "null") + ")";
+        }
+        return DEPENDENCY + ".of(" + erasure(type) + ".class, "
+                + (named != null ? processingEnv.getElementUtils().getConstantExpression(named) : "null") + ", "
+                + (qualifier != null ? qualifier.getQualifiedName() + ".class" : "null") + ")";
+    }
+
+    /**
+     * @return - the type argument of the supplied javax.inject.Provider type (or null if the type is not a Provider)
+     */
+    private TypeMirror providedType(TypeMirror type) throws Unsupported {
+        if (type.getKind() != TypeKind.DECLARED || !erasure(type).equals(PROVIDER)) {
+            return null;
+        }
+        List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        if (arguments.isEmpty()) {
+            throw new Unsupported("javax.inject.Provider must declare the type it provides");
+        }
+        TypeMirror provided = arguments.get(0);
+        if (provided.getKind() == TypeKind.WILDCARD) {
+            TypeMirror bound = ((WildcardType) provided).getExtendsBound();
+            return bound != null ? bound : processingEnv.getElementUtils().getTypeElement(Object.class.getName()).asType();
+        }
+        return provided;
+    }
+
+    private String cast(TypeMirror type, String expression) {
+        return "(" + erasure(type) + ") " + expression;
+    }
+
+    /**
+     * @return - the binary name of the erasure of the supplied type, as understood by Class.forName()
+     */
+    private String binaryName(TypeMirror type) {
+        TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+        if (erasure.getKind() == TypeKind.DECLARED) {
+            return processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) erasure).asElement()).toString();
+        }
+        return erasure.toString();
+    }
+
+    /**
+     * Escapes the tabs, newlines and backslashes within a binding index value
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    /**
+     * @return - the value of the @Named annotation on the supplied element (or null)
+     */
+    private String namedOf(Element element) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (nameOf(annotation).equals(NAMED)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals("value")) {
+                        return (String) entry.getValue().getValue();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return - the first annotation (other than @Named) on the supplied element which is marked with @Qualifier (or null)
+     */
+    private TypeElement qualifierOf(Element element) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (!nameOf(annotation).equals(NAMED) && hasAnnotation(annotationType, QUALIFIER)) {
+                return annotationType;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (nameOf(mirror).equals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasSimpleAnnotation(Element element, String simpleName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().asElement().getSimpleName().contentEquals(simpleName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String nameOf(AnnotationMirror annotation) {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals(Object.class.getName()) ? null : element;
+    }
+
+    private String packageOf(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+    }
+
+    /**
+     * @return - true if the supplied member may be referenced from generated code in the supplied package
+     */
+    private boolean isAccessible(Element element, String packageName) {
+        Set<Modifier> modifiers = element.getModifiers();
+        return modifiers.contains(Modifier.PUBLIC) || (!modifiers.contains(Modifier.PRIVATE) && packageOf(element).equals(packageName));
+    }
+
+    /**
+     * Ensures that the supplied type (and each class enclosing it) may be referenced from the generated factory
+     */
+    private void requireAccessible(TypeMirror type, Factory factory) throws Unsupported {
+        if (type.getKind() == TypeKind.ARRAY) {
+            requireAccessible(((ArrayType) type).getComponentType(), factory);
+        }
+        else if (type.getKind() == TypeKind.DECLARED || type.getKind() == TypeKind.TYPEVAR) {
+            TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+            Element element = processingEnv.getTypeUtils().asElement(erasure);
+            for (Element e = element; e instanceof TypeElement; e = e.getEnclosingElement()) {
+                if (!isAccessible(e, factory.packageName)) {
+                    throw new Unsupported("type " + erasure + " is not accessible");
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the source of the supplied factory
+     */
+    private void writeFactory(Factory factory) {
+        String name = factory.packageName.isEmpty() ? factory.simpleName : factory.packageName + "." + factory.simpleName;
+        String type = factory.typeName;
+        StringBuilder source = new StringBuilder();
+        if (!factory.packageName.isEmpty()) {
+            source.append("package ").append(factory.packageName).append(";\n\n");
+        }
+        source.append("/**\n")
+                .append(" * Instantiates and injects ").append(type).append(" without reflection\n")
+                .append(" *\n")
+                .append(" * Generated by ").append(NovocaineProcessor.class.getName()).append(" - do not edit\n")
+                .append(" */\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(factory.simpleName).append(" implements ").append(FACTORY_INTERFACE).append("<").append(type).append("> {\n\n");
+
+        source.append("    private static final ").append(DEPENDENCY).append("[] CONSTRUCTOR_DEPENDENCIES = ").append(array(factory.constructorDependencies)).append(";\n")
+                .append("    private static final ").append(DEPENDENCY).append("[] FIELD_DEPENDENCIES = ").append(array(factory.fieldDependencies)).append(";\n")
+                .append("    private static final ").append(DEPENDENCY).append("[][] METHOD_DEPENDENCIES = ").append(arrays(factory.methodDependencies)).append(";\n")
+                .append("    private static final ").append(DEPENDENCY).append("[] SUPPLIER_KEYS = ").append(array(factory.supplierKeys)).append(";\n")
+                .append("    private static final ").append(DEPENDENCY).append("[][] SUPPLIER_DEPENDENCIES = ").append(arrays(factory.supplierDependencies)).append(";\n\n");
+
+        source.append("    @Override\n")
+                .append("    public Class<").append(type).append("> type() {\n")
+                .append("        return ").append(type).append(".class;\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public boolean hasInjectConstructor() {\n")
+                .append("        return ").append(factory.injectConstructor).append(";\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ").append(DEPENDENCY).append("[] constructorDependencies() {\n")
+                .append("        return CONSTRUCTOR_DEPENDENCIES;\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ").append(type).append(" newInstance(Object[] args) throws Exception {\n");
+        if (factory.constructor != null) {
+            source.append("        return ").append(factory.constructor).append(";\n");
+        }
+        else {
+            source.append("        throw new InstantiationException(\"No accessible no-arg constructor: ").append(type).append("\");\n");
+        }
+        source.append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ").append(DEPENDENCY).append("[] fieldDependencies() {\n")
+                .append("        return FIELD_DEPENDENCIES;\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public void injectField(").append(type).append(" instance, int index, Object value) throws Exception {\n");
+        appendSwitch(source, factory.fields, "break");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ").append(DEPENDENCY).append("[][] methodDependencies() {\n")
+                .append("        return METHOD_DEPENDENCIES;\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public void injectMethod(").append(type).append(" instance, int index, Object[] args) throws Exception {\n");
+        appendSwitch(source, factory.methods, "break");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ").append(DEPENDENCY).append("[] supplierKeys() {\n")
+                .append("        return SUPPLIER_KEYS;\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ").append(DEPENDENCY).append("[][] supplierDependencies() {\n")
+                .append("        return SUPPLIER_DEPENDENCIES;\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public Object invokeSupplier(").append(type).append(" instance, int index, Object[] args) throws Exception {\n");
+        appendSwitch(source, factory.suppliers, null);
+        source.append("    }\n");
+
+        appendLifecycleMethods(source, type, "PostConstruct", factory.postConstructs);
+        appendLifecycleMethods(source, type, "PreDestroy", factory.preDestroys);
+
+        source.append("}\n");
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(name, factory.type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+            factories.add(name);
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + name + ": " + e.getMessage(), factory.type);
+        }
+    }
+
+    /**
+     * Appends a switch over the index parameter with one case per statement
+     *
+     * @param source - the source being written
+     * @param statements - the statement to execute for each index
+     * @param terminator - the statement ending each case (or null if each statement returns)
+     */
+    private static void appendSwitch(StringBuilder source, List<String> statements, String terminator) {
+        source.append("        switch (index) {\n");
+        for (int i = 0; i < statements.size(); i++) {
+            source.append("            case ").append(i).append(":\n")
+                    .append("                ").append(statements.get(i)).append(";\n");
+            if (terminator != null) {
+                source.append("                ").append(terminator).append(";\n");
+            }
+        }
+        source.append("            default:\n")
+                .append("                throw new IndexOutOfBoundsException(String.valueOf(index));\n")
+                .append("        }\n");
+    }
+
+    /**
+     * Appends the overrides of has{name}() and {name}() if the class declares any such lifecycle method
+     *
+     * @param source - the source being written
+     * @param type - the class
+     * @param name - PostConstruct or PreDestroy
+     * @param invocations - the invocation of each method, in order
+     */
+    private static void appendLifecycleMethods(StringBuilder source, String type, String name, List<String> invocations) {
+        if (invocations.isEmpty()) {
+            return;
+        }
+        source.append("\n    @Override\n")
+                .append("    public boolean has").append(name).append("() {\n")
+                .append("        return true;\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public void ").append(Character.toLowerCase(name.charAt(0))).append(name.substring(1))
+                .append("(").append(type).append(" instance) throws Exception {\n");
+        for (String invocation : invocations) {
+            source.append("        ").append(invocation).append(";\n");
+        }
+        source.append("    }\n");
+    }
+
+    private static String array(List<String> elements) {
+        if (elements.isEmpty()) {
+            return "{}";
+        }
+        StringJoiner joiner = new StringJoiner(",\n            ", "{\n            ", "\n    }");
+        elements.forEach(joiner::add);
+        return joiner.toString();
+    }
+
+    private static String arrays(List<List<String>> elements) {
+        if (elements.isEmpty()) {
+            return "{}";
+        }
+        StringJoiner joiner = new StringJoiner(",\n            ", "{\n            ", "\n    }");
+        for (List<String> element : elements) {
+            joiner.add(element.isEmpty() ? "{}" : "{ " + String.join(", ", element) + " }");
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Writes a resource containing one line per entry - the ServiceLoader registration of the generated factories or
+     * the binding index
+     */
+    private void writeResource(String location, Set<String> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", location);
+            try (Writer writer = file.openWriter()) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + location + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The injection points of a single class, rendered as java source
+     */
+    private static final class Factory {
+
+        final TypeElement type;
+        final String packageName;
+        final String typeName;
+        final String simpleName;
+
+        boolean injectConstructor;
+        String constructor;
+        final List<String> constructorDependencies = new ArrayList<>();
+        final List<String> fields = new ArrayList<>();
+        final List<String> fieldDependencies = new ArrayList<>();
+        final List<String> methods = new ArrayList<>();
+        final List<List<String>> methodDependencies = new ArrayList<>();
+        final List<String> suppliers = new ArrayList<>();
+        final List<String> supplierKeys = new ArrayList<>();
+        final List<List<String>> supplierDependencies = new ArrayList<>();
+        final List<String> postConstructs = new ArrayList<>();
+        final List<String> preDestroys = new ArrayList<>();
+
+        Factory(TypeElement type, String packageName) {
+            this.type = type;
+            this.packageName = packageName;
+            this.typeName = type.getQualifiedName().toString();
+            // Outer.Inner -> Outer_Inner_NovocaineFactory
+            String binaryName = packageName.isEmpty() ? typeName : typeName.substring(packageName.length() + 1);
+            this.simpleName = binaryName.replace('.', '_') + FACTORY_SUFFIX;
+        }
+    }
+
+    /**
+     * Thrown when a class cannot be injected without reflection
+     */
+    private static final class Unsupported extends Exception {
+
+        Unsupported(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package io.novocaine.processor;
+
+import io.novocaine.NovocaineFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NovocaineProcessorTest {
+
+    private static Path output;
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        output = Files.createTempDirectory("novocaine-processor");
+        compile(
+                source("com.example.Repository",
+                        "package com.example;\n" +
+                        "@javax.inject.Singleton\n" +
+                        "public class Repository { }\n"),
+                source("com.example.Audit",
+                        "package com.example;\n" +
+                        "@javax.inject.Qualifier\n" +
+                        "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+                        "public @interface Audit { }\n"),
+                source("com.example.AuditLog",
+                        "package com.example;\n" +
+                        "@Audit\n" +
+                        "public class AuditLog implements Log { }\n"),
+                source("com.example.Log",
+                        "package com.example;\n" +
+                        "public interface Log { }\n"),
+                source("com.example.Service",
+                        "package com.example;\n" +
+                        "import javax.inject.*;\n" +
+                        "@Singleton\n" +
+                        "public class Service {\n" +
+                        "    @Inject Repository repository;\n" +
+                        "    @Inject public Service(@Audit Log log, Repository repository) { }\n" +
+                        "    @Inject @Named(\"primary\") public void setLog(Log log) { }\n" +
+                        "    @Singleton @Named(\"audited\") public Log auditedLog(@Audit Log log) { return log; }\n" +
+                        "    public static class Nested { @Inject Repository repository; }\n" +
+                        "}\n"),
+                source("com.example.Consumer",
+                        "package com.example;\n" +
+                        "import javax.inject.*;\n" +
+                        "public class Consumer {\n" +
+                        "    @Inject Provider<Repository> repository;\n" +
+                        "    @Inject public void setLog(@Audit Provider<? extends Log> log) { }\n" +
+                        "}\n"),
+                source("com.example.JobScoped",
+                        "package com.example;\n" +
+                        "@javax.inject.Scope\n" +
+                        "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+                        "public @interface JobScoped { }\n"),
+                source("com.example.Job",
+                        "package com.example;\n" +
+                        "@JobScoped\n" +
+                        "public class Job { }\n"),
+                source("com.example.PostConstruct",
+                        "package com.example;\n" +
+                        "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+                        "public @interface PostConstruct { }\n"),
+                source("com.example.PreDestroy",
+                        "package com.example;\n" +
+                        "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+                        "public @interface PreDestroy { }\n"),
+                source("com.example.Cache",
+                        "package com.example;\n" +
+                        "@javax.inject.Singleton\n" +
+                        "public class Cache extends Repository {\n" +
+                        "    @javax.inject.Inject Repository repository;\n" +
+                        "    @PostConstruct void warm() { }\n" +
+                        "    @PreDestroy public void flush() { }\n" +
+                        "}\n"),
+                source("com.example.PrivateService",
+                        "package com.example;\n" +
+                        "@javax.inject.Singleton\n" +
+                        "public class PrivateService { @javax.inject.Inject private Repository repository; }\n")
+        );
+    }
+
+    @Test
+    public void test_factory_constructor() throws IOException {
+        String factory = read("com/example/Service_NovocaineFactory.java");
+        assertTrue(factory.contains("implements io.novocaine.NovocaineFactory<com.example.Service>"));
+        assertTrue(factory.contains("return true;"));
+        assertTrue(factory.contains("return new com.example.Service((com.example.Log) args[0], (com.example.Repository) args[1]);"));
+        assertTrue(factory.contains("io.novocaine.Dependency.of(com.example.Log.class, null, com.example.Audit.class)"));
+    }
+
+    @Test
+    public void test_factory_field() throws IOException {
+        String factory = read("com/example/Service_NovocaineFactory.java");
+        assertTrue(factory.contains("instance.repository = (com.example.Repository) value;"));
+    }
+
+    @Test
+    public void test_factory_namedOnMethod() throws IOException {
+        String factory = read("com/example/Service_NovocaineFactory.java");
+        assertTrue(factory.contains("instance.setLog((com.example.Log) args[0]);"));
+        assertTrue(factory.contains("io.novocaine.Dependency.of(com.example.Log.class, \"primary\", null)"));
+    }
+
+    @Test
+    public void test_factory_supplier() throws IOException {
+        String factory = read("com/example/Service_NovocaineFactory.java");
+        assertTrue(factory.contains("return instance.auditedLog((com.example.Log) args[0]);"));
+        assertTrue(factory.contains("io.novocaine.Dependency.of(com.example.Log.class, \"audited\", null)"));
+    }
+
+    @Test
+    public void test_factory_lifecycleMethods() throws IOException {
+        String factory = read("com/example/Cache_NovocaineFactory.java");
+        assertTrue(factory.contains("public boolean hasPostConstruct() {\n        return true;"));
+        assertTrue(factory.contains("instance.warm();"));
+        assertTrue(factory.contains("public void preDestroy(com.example.Cache instance) throws Exception {\n        instance.flush();"));
+        assertFalse(read("com/example/Service_NovocaineFactory.java").contains("postConstruct"));
+    }
+
+    @Test
+    public void test_factory_provider() throws IOException {
+        String factory = read("com/example/Consumer_NovocaineFactory.java");
+        assertTrue(factory.contains("io.novocaine.Dependency.provider(com.example.Repository.class, null, null)"));
+        assertTrue(factory.contains("io.novocaine.Dependency.provider(com.example.Log.class, null, com.example.Audit.class)"));
+        assertTrue(factory.contains("instance.repository = (javax.inject.Provider) value;"));
+    }
+
+    @Test
+    public void test_factory_noArgConstructor() throws IOException {
+        String factory = read("com/example/Repository_NovocaineFactory.java");
+        assertTrue(factory.contains("return false;"));
+        assertTrue(factory.contains("return new com.example.Repository();"));
+    }
+
+    @Test
+    public void test_factory_nested() {
+        assertTrue(Files.exists(output.resolve("com/example/Service_Nested_NovocaineFactory.java")));
+    }
+
+    @Test
+    public void test_factory_qualifiedClass() {
+        assertTrue(Files.exists(output.resolve("com/example/AuditLog_NovocaineFactory.java")));
+        assertFalse(Files.exists(output.resolve("com/example/Log_NovocaineFactory.java")));
+    }
+
+    @Test
+    public void test_factory_privateFieldFallsBackToReflection() {
+        assertFalse(Files.exists(output.resolve("com/example/PrivateService_NovocaineFactory.java")));
+    }
+
+    @Test
+    public void test_factory_instantiates() throws Exception {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { output.toUri().toURL() }, getClass().getClassLoader())) {
+            NovocaineFactory<?> factory = (NovocaineFactory<?>) classLoader.loadClass("com.example.Repository_NovocaineFactory").newInstance();
+            assertEquals("com.example.Repository", factory.type().getName());
+            assertNotNull(factory.newInstance(new Object[0]));
+        }
+    }
+
+    @Test
+    public void test_serviceFile() throws IOException {
+        List<String> factories = Files.readAllLines(output.resolve(NovocaineProcessor.SERVICE_FILE));
+        assertTrue(factories.contains("com.example.Service_NovocaineFactory"));
+        assertTrue(factories.contains("com.example.Repository_NovocaineFactory"));
+        assertFalse(factories.contains("com.example.PrivateService_NovocaineFactory"));
+    }
+
+    @Test
+    public void test_bindingIndex() throws IOException {
+        List<String> bindings = Files.readAllLines(output.resolve(NovocaineProcessor.BINDING_INDEX));
+        assertTrue(bindings.contains("singleton\tcom.example.Service"));
+        assertTrue(bindings.contains("inject\tcom.example.Service"));
+        assertTrue(bindings.contains("supplier\tcom.example.Service\tauditedLog\tcom.example.Log\taudited"));
+        assertTrue(bindings.contains("inject\tcom.example.Service$Nested"));
+        assertTrue(bindings.contains("qualifier\tcom.example.Audit\tcom.example.AuditLog"));
+        assertTrue(bindings.contains("scoped\tcom.example.Job"));
+        assertFalse(bindings.contains("scoped\tcom.example.Repository"));
+        // classes injected via reflection are indexed too
+        assertTrue(bindings.contains("inject\tcom.example.PrivateService"));
+        assertFalse(bindings.stream().anyMatch(binding -> binding.endsWith("\tcom.example.Log")));
+    }
+
+    @Test
+    public void test_bindingIndex_incremental() throws IOException {
+        Path incremental = Files.createTempDirectory("novocaine-processor");
+        compile(incremental, System.getProperty("java.class.path"),
+                source("com.example.Kept",
+                        "package com.example;\n" +
+                        "@javax.inject.Singleton\n" +
+                        "public class Kept { }\n"),
+                source("com.example.Changed",
+                        "package com.example;\n" +
+                        "@javax.inject.Singleton\n" +
+                        "public class Changed { }\n"));
+
+        // recompile only the changed class (no longer injectable) and a new one, against the previous output
+        compile(incremental, incremental + java.io.File.pathSeparator + System.getProperty("java.class.path"),
+                source("com.example.Changed",
+                        "package com.example;\n" +
+                        "public class Changed { }\n"),
+                source("com.example.Added",
+                        "package com.example;\n" +
+                        "@javax.inject.Named(\"added\")\n" +
+                        "public class Added { }\n"));
+
+        List<String> bindings = Files.readAllLines(incremental.resolve(NovocaineProcessor.BINDING_INDEX));
+        assertEquals(Arrays.asList("singleton\tcom.example.Kept", "named\tadded\tcom.example.Added"), bindings);
+    }
+
+    @Test
+    public void test_serviceFile_incremental() throws IOException {
+        Path incremental = Files.createTempDirectory("novocaine-processor");
+        compile(incremental, System.getProperty("java.class.path"),
+                source("com.example.Kept",
+                        "package com.example;\n" +
+                        "@javax.inject.Singleton\n" +
+                        "public class Kept { }\n"),
+                source("com.example.Changed",
+                        "package com.example;\n" +
+                        "@javax.inject.Singleton\n" +
+                        "public class Changed { }\n"),
+                source("com.example.Reflected",
+                        "package com.example;\n" +
+                        "@javax.inject.Singleton\n" +
+                        "public class Reflected { }\n"));
+
+        // recompile a class which is no longer injectable, one which now requires reflection and a new one, against
+        // the previous output
+        compile(incremental, incremental + java.io.File.pathSeparator + System.getProperty("java.class.path"),
+                source("com.example.Changed",
+                        "package com.example;\n" +
+                        "public class Changed { }\n"),
+                source("com.example.Reflected",
+                        "package com.example;\n" +
+                        "@javax.inject.Singleton\n" +
+                        "public class Reflected { @javax.inject.Inject private Kept kept; }\n"),
+                source("com.example.Added",
+                        "package com.example;\n" +
+                        "@javax.inject.Named(\"added\")\n" +
+                        "public class Added { }\n"));
+
+        List<String> factories = Files.readAllLines(incremental.resolve(NovocaineProcessor.SERVICE_FILE));
+        assertEquals(Arrays.asList("com.example.Kept_NovocaineFactory", "com.example.Added_NovocaineFactory"), factories);
+
+        // every registered factory belongs to a class the binding index lists
+        List<String> bindings = Files.readAllLines(incremental.resolve(NovocaineProcessor.BINDING_INDEX));
+        assertEquals(Arrays.asList("singleton\tcom.example.Kept", "singleton\tcom.example.Reflected",
+                "inject\tcom.example.Reflected", "named\tadded\tcom.example.Added"), bindings);
+    }
+
+    private static String read(String path) throws IOException {
+        return new String(Files.readAllBytes(output.resolve(path)), StandardCharsets.UTF_8);
+    }
+
+    private static JavaFileObject source(String name, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private static void compile(JavaFileObject... sources) {
+        compile(output, System.getProperty("java.class.path"), sources);
+    }
+
+    private static void compile(Path directory, String classpath, JavaFileObject... sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList(
+                "-classpath", classpath,
+                "-s", directory.toString(),
+                "-d", directory.toString());
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, Arrays.asList(sources));
+        task.setProcessors(Arrays.asList(new NovocaineProcessor()));
+        assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+    }
+}
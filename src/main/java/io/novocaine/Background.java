@@ -0,0 +1,27 @@
+package io.novocaine;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose singleton should not be instantiated by Novocaine.inject() unless another (eagerly instantiated)
+ * class depends upon it - instead it is instantiated, along with any of its dependencies and its methods marked with
+ * @PostConstruct, on a background thread once Novocaine.inject() has returned. A call to Novocaine.get() for its type
+ * which arrives first instantiates it on the calling thread, or waits only while the background thread is
+ * instantiating that very singleton. A failure on the background thread is reported by Novocaine.warmedUp().
+ *
+ * Usage:
+ *      \@Background
+ *      \@Singleton
+ *      public class PriceCache { ... }
+ *
+ * To mark classes without annotating them, use NovocaineConfig.builder().background(...) instead
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Background {
+}
@@ -0,0 +1,227 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * The merged contents of every binding index (META-INF/novocaine/bindings.idx) on the classpath
+ *
+ * Binding indexes are written at compile time by the novocaine-processor module and list everything Novocaine.inject()
+ * would otherwise discover by scanning the classpath. Each line is a tab-separated record:
+ *
+ *      singleton   {class}                                     class marked with @Singleton
+ *      inject      {class}                                     class with a constructor/field/method marked with @Inject
+ *      supplier    {class}  {method}  {return type}  [{named}] method marked with @Singleton
+ *      named       {value}  {class}                            class marked with @Named
+ *      qualifier   {annotation}  {class}                       class marked with a @Qualifier-associated annotation
+ *      scoped      {class}                                     class marked with a @Scope-associated annotation
+ *
+ * Classes are stored by binary name. Tabs, newlines and backslashes within @Named values are escaped with a backslash.
+ *
+ * An index only describes the classpath entry (jar or directory) it was packaged in - the entries without one are
+ * still scanned.
+ */
+class BindingIndex {
+
+    static final String LOCATION = "META-INF/novocaine/bindings.idx";
+
+    /**
+     * Every class which Novocaine must instantiate or inject, in index order
+     */
+    private final Set<Class<?>> classes = new LinkedHashSet<>();
+
+    /**
+     * Map containing the @Qualifier-associated annotation to each class marked with it
+     */
+    private final Map<Class<? extends Annotation>, Set<Class<?>>> qualifiers = new LinkedHashMap<>();
+
+    /**
+     * Map containing the @Named value to each class marked with it
+     */
+    private final Map<String, Set<Class<?>>> named = new LinkedHashMap<>();
+
+    /**
+     * The classpath entries (see rootOf()) whose indexes were read
+     */
+    private final Set<String> roots = new LinkedHashSet<>();
+
+    /**
+     * Whether the class with the supplied name lies within the packages read from the indexes
+     */
+    private final Predicate<String> includeClass;
+
+    private BindingIndex(@Nonnull Predicate<String> includeClass) {
+        this.includeClass = includeClass;
+    }
+
+    /**
+     * Loads and merges every binding index on the classpath
+     *
+     * @param classLoader - the class loader from which to load the indexes and the classes listed in them
+     * @param includeIndex - whether the index at the supplied location should be read
+     * @param includeClass - whether the class with the supplied name should be included
+     *
+     * @return - the merged index (or null if no index on the classpath is included)
+     */
+    static BindingIndex load(@Nonnull ClassLoader classLoader, @Nonnull Predicate<URL> includeIndex, @Nonnull Predicate<String> includeClass) {
+        List<URL> urls = new ArrayList<>();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(LOCATION);
+            while (resources.hasMoreElements()) {
+                urls.add(resources.nextElement());
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Cannot locate binding indexes: " + LOCATION, e);
+        }
+
+        BindingIndex index = new BindingIndex(includeClass);
+        for (URL url : urls) {
+            if (includeIndex.test(url)) {
+                index.read(url, classLoader, includeClass);
+                index.roots.add(rootOf(url, LOCATION));
+            }
+        }
+        return index.roots.isEmpty() ? null : index;
+    }
+
+    /**
+     * @return - every class which Novocaine must instantiate or inject
+     */
+    Set<Class<?>> getClasses() {
+        return classes;
+    }
+
+    /**
+     * @return - the map of each @Qualifier-associated annotation to the classes marked with it
+     */
+    Map<Class<? extends Annotation>, Set<Class<?>>> getQualifiers() {
+        return qualifiers;
+    }
+
+    /**
+     * @return - the map of each @Named value to the classes marked with it
+     */
+    Map<String, Set<Class<?>>> getNamed() {
+        return named;
+    }
+
+    /**
+     * @return - the classpath entries whose indexes were read, in the form of rootOf()
+     */
+    Set<String> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Determines whether the supplied class ought to have been listed - it lies within the packages read and in a
+     * classpath entry whose index was read, yet is not listed (it was compiled without the novocaine-processor module,
+     * e.g. by an incremental build)
+     *
+     * @param clazz - an injectable class
+     *
+     * @return - true if the class is missing from the index
+     */
+    boolean isMissing(@Nonnull Class<?> clazz) {
+        if (classes.contains(clazz) || clazz.getClassLoader() == null || !includeClass.test(clazz.getName())) {
+            return false;
+        }
+        String resource = clazz.getName().replace('.', '/') + ".class";
+        URL url = clazz.getClassLoader().getResource(resource);
+        return url != null && roots.contains(rootOf(url, resource));
+    }
+
+    /**
+     * Determines the classpath entry holding a resource - in the form ClasspathHelper.forPackage() returns (e.g.
+     * file:/app/classes/ or jar:file:/libs/app.jar!/)
+     *
+     * @param url - the URL of the resource
+     * @param resource - the name of the resource
+     *
+     * @return - the URL of the classpath entry, as a string
+     */
+    static String rootOf(@Nonnull URL url, @Nonnull String resource) {
+        String form = url.toExternalForm();
+        int index = form.lastIndexOf(resource);
+        return index < 0 ? form : form.substring(0, index);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void read(@Nonnull URL url, @Nonnull ClassLoader classLoader, @Nonnull Predicate<String> includeClass) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] record = line.split("\t");
+                switch (record[0]) {
+                    case "singleton":
+                    case "scoped":
+                    case "inject":
+                    case "supplier":
+                        if (includeClass.test(record[1])) {
+                            classes.add(load(record[1], classLoader));
+                        }
+                        break;
+                    case "named":
+                        if (includeClass.test(record[2])) {
+                            Class<?> namedClass = load(record[2], classLoader);
+                            classes.add(namedClass);
+                            named.computeIfAbsent(unescape(record[1]), key -> new LinkedHashSet<>()).add(namedClass);
+                        }
+                        break;
+                    case "qualifier":
+                        if (includeClass.test(record[2])) {
+                            Class<?> implementation = load(record[2], classLoader);
+                            classes.add(implementation);
+                            qualifiers.computeIfAbsent((Class<? extends Annotation>) load(record[1], classLoader), key -> new LinkedHashSet<>()).add(implementation);
+                        }
+                        break;
+                    default:
+                        throw new RuntimeException("Unknown binding index record: " + line + " in: " + url);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Cannot read binding index: " + url, e);
+        }
+    }
+
+    private static Class<?> load(@Nonnull String name, @Nonnull ClassLoader classLoader) {
+        try {
+            return Class.forName(name, false, classLoader);
+        }
+        catch (ClassNotFoundException e) {
+            throw new RuntimeException("Class listed in binding index not found: " + name, e);
+        }
+    }
+
+    /**
+     * Reverses the escaping applied to @Named values by the novocaine-processor module
+     */
+    static String unescape(@Nonnull String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            }
+            else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
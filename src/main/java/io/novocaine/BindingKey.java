@@ -0,0 +1,115 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.annotation.Annotation;
+import java.util.Objects;
+
+/**
+ * Identifies a single binding: a type, optionally qualified by a @Qualifier-associated annotation - or a @Named value,
+ * which identifies its binding regardless of type (just as @Named classes and suppliers always have)
+ *
+ * Keys are what the methods marked with @Singleton are indexed by, so that each field or parameter resolves to its
+ * supplier with a single lookup.
+ */
+final class BindingKey {
+
+    private final Class<?> type;
+    private final String named;
+    private final Class<? extends Annotation> qualifier;
+
+    private BindingKey(@Nullable Class<?> type, @Nullable String named, @Nullable Class<? extends Annotation> qualifier) {
+        this.type = type;
+        this.named = named;
+        this.qualifier = qualifier;
+    }
+
+    /**
+     * @param type - the type
+     *
+     * @return - the key of the unqualified binding of the type
+     */
+    static BindingKey of(@Nonnull Class<?> type) {
+        return new BindingKey(type, null, null);
+    }
+
+    /**
+     * @param type - the type
+     * @param qualifier - the @Qualifier-associated annotation
+     *
+     * @return - the key of the binding of the type qualified by the annotation
+     */
+    static BindingKey of(@Nonnull Class<?> type, @Nonnull Class<? extends Annotation> qualifier) {
+        return new BindingKey(type, null, qualifier);
+    }
+
+    /**
+     * @param named - the @Named value
+     *
+     * @return - the key of the binding with the @Named value
+     */
+    static BindingKey named(@Nonnull String named) {
+        return new BindingKey(null, named, null);
+    }
+
+    /**
+     * Determines the key of the binding a method marked with @Singleton supplies (or a field or parameter requests,
+     * before its type is resolved to a concrete class) - the @Named value takes precedence over the qualifier
+     *
+     * @param dependency - the supplier key or the field or parameter
+     *
+     * @return - the key
+     */
+    static BindingKey of(@Nonnull Dependency dependency) {
+        if (dependency.getNamed() != null) {
+            return named(dependency.getNamed());
+        }
+        return new BindingKey(dependency.getType(), null, dependency.getQualifier());
+    }
+
+    /**
+     * @return - the type (or null for a @Named value)
+     */
+    Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return - the @Named value (or null)
+     */
+    String getNamed() {
+        return named;
+    }
+
+    /**
+     * @return - the @Qualifier-associated annotation (or null)
+     */
+    Class<? extends Annotation> getQualifier() {
+        return qualifier;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BindingKey)) {
+            return false;
+        }
+        BindingKey other = (BindingKey) o;
+        return type == other.type && qualifier == other.qualifier && Objects.equals(named, other.named);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, named, qualifier);
+    }
+
+    @Override
+    public String toString() {
+        if (named != null) {
+            return "@Named(\"" + named + "\")";
+        }
+        return qualifier != null ? "@" + qualifier.getSimpleName() + " " + type.getName() : type.getName();
+    }
+}
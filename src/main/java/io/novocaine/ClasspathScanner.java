@@ -0,0 +1,230 @@
+package io.novocaine;
+
+import org.reflections.Reflections;
+import org.reflections.scanners.SubTypesScanner;
+import org.reflections.scanners.TypeAnnotationsScanner;
+import org.reflections.util.ClasspathHelper;
+import org.reflections.util.ConfigurationBuilder;
+import org.reflections.util.FilterBuilder;
+
+import javax.annotation.Nonnull;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scans the classpath for the classes Novocaine instantiates and injects, restricted to the packages and jars
+ * configured in NovocaineConfig
+ */
+class ClasspathScanner {
+
+    /**
+     * Scans the configured packages of the classpath for all types and type annotations
+     *
+     * @param config - the packages and jars to scan
+     * @param topLevel - the top level class which called Novocaine.inject(this)
+     *
+     * @return - the scanned metadata
+     */
+    static Reflections scan(@Nonnull NovocaineConfig config, @Nonnull Object topLevel) {
+        Reflections reflections = scan(config, topLevel, rootsOf(config, topLevel));
+        if (reflections == null) {
+            throw new RuntimeException("Novocaine#inject found no classes to scan in packages: " + packagesOf(config, topLevel));
+        }
+        return reflections;
+    }
+
+    /**
+     * Scans the configured packages of the supplied classpath entries for all types and type annotations
+     *
+     * @param config - the packages to scan
+     * @param topLevel - the top level class which called Novocaine.inject(this)
+     * @param roots - the classpath entries to scan (see rootsOf())
+     *
+     * @return - the scanned metadata (or null if the classpath entries hold no classes within the packages)
+     */
+    static Reflections scan(@Nonnull NovocaineConfig config, @Nonnull Object topLevel, @Nonnull Collection<URL> roots) {
+        // only read the classes within the requested packages which are not excluded
+        FilterBuilder filter = new FilterBuilder();
+        for (String pkg : packagesOf(config, topLevel)) {
+            filter.include(prefix(pkg));
+        }
+        for (String pkg : config.getExcludedPackages()) {
+            filter.exclude(prefix(pkg));
+        }
+
+        List<URL> included = new ArrayList<>(roots);
+        ClassLoader classLoader = classLoaderOf(topLevel);
+        Reflections reflections;
+        if (config.getScanParallelism() > 1 && included.size() > 1) {
+            // scan each classpath entry on its own fork-join task and merge the results
+            ForkJoinPool pool = new ForkJoinPool(config.getScanParallelism());
+            try {
+                reflections = pool.invoke(new ScanTask(included, filter, classLoader));
+            }
+            finally {
+                pool.shutdown();
+            }
+        }
+        else {
+            reflections = scan(included, filter, classLoader);
+        }
+        return reflections.getStore().keySet().isEmpty() ? null : reflections;
+    }
+
+    /**
+     * Locates the classpath entries (jars and directories) which contain the configured packages, less the excluded
+     * jars
+     *
+     * @param config - the packages and jars to scan
+     * @param topLevel - the top level class which called Novocaine.inject(this)
+     *
+     * @return - the classpath entries
+     */
+    static Set<URL> rootsOf(@Nonnull NovocaineConfig config, @Nonnull Object topLevel) {
+        ClassLoader classLoader = classLoaderOf(topLevel);
+        Set<URL> urls = new LinkedHashSet<>();
+        for (String pkg : packagesOf(config, topLevel)) {
+            urls.addAll(ClasspathHelper.forPackage(pkg, classLoader));
+        }
+        return withoutExcludedJars(urls, config.getExcludedJars());
+    }
+
+    /**
+     * Scans the supplied classpath entries on the calling thread
+     */
+    private static Reflections scan(@Nonnull Collection<URL> urls, @Nonnull FilterBuilder filter, @Nonnull ClassLoader classLoader) {
+        // scanners hold per-scan state - every scan requires its own
+        return new Reflections(new ConfigurationBuilder()
+                .setUrls(urls)
+                .filterInputsBy(filter)
+                .addClassLoader(classLoader)
+                .setScanners(new SubTypesScanner(false), new TypeAnnotationsScanner()));
+    }
+
+    /**
+     * Splits the classpath entries in half until a single entry remains, scans it and merges the halves back together
+     *
+     * Each Reflections store is only ever written by the task which created it, so the (non thread-safe) stores are
+     * never shared between threads while being written.
+     */
+    private static class ScanTask extends RecursiveTask<Reflections> {
+
+        private final List<URL> urls;
+        private final FilterBuilder filter;
+        private final ClassLoader classLoader;
+
+        ScanTask(@Nonnull List<URL> urls, @Nonnull FilterBuilder filter, @Nonnull ClassLoader classLoader) {
+            this.urls = urls;
+            this.filter = filter;
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Reflections compute() {
+            if (urls.size() == 1) {
+                return scan(urls, filter, classLoader);
+            }
+            int middle = urls.size() / 2;
+            ScanTask left = new ScanTask(urls.subList(0, middle), filter, classLoader);
+            ScanTask right = new ScanTask(urls.subList(middle, urls.size()), filter, classLoader);
+            left.fork();
+            Reflections reflections = right.compute();
+            return left.join().merge(reflections);
+        }
+    }
+
+    /**
+     * Loads the binding indexes of the supplied classpath entries (unless disabled), restricted to the configured
+     * packages - the indexes of any other jar or directory on the classpath are ignored
+     *
+     * @param config - the packages to load
+     * @param topLevel - the top level class which called Novocaine.inject(this)
+     * @param roots - the classpath entries whose indexes to load (see rootsOf())
+     *
+     * @return - the merged binding index (or null if none of the classpath entries has one)
+     */
+    static BindingIndex loadIndex(@Nonnull NovocaineConfig config, @Nonnull Object topLevel, @Nonnull Collection<URL> roots) {
+        if (config.isBindingIndexIgnored()) {
+            return null;
+        }
+        Set<String> packages = packagesOf(config, topLevel);
+        Set<String> included = new HashSet<>();
+        for (URL root : roots) {
+            included.add(root.toExternalForm());
+        }
+
+        return BindingIndex.load(classLoaderOf(topLevel),
+                url -> included.contains(BindingIndex.rootOf(url, BindingIndex.LOCATION)),
+                className -> packages.stream().anyMatch(pkg -> inPackage(className, pkg))
+                        && config.getExcludedPackages().stream().noneMatch(pkg -> inPackage(className, pkg)));
+    }
+
+    /**
+     * Removes every classpath entry whose file name starts with one of the excluded jar prefixes
+     *
+     * @param urls - the classpath entries
+     * @param excludedJars - the jar file name prefixes to exclude
+     *
+     * @return - the remaining classpath entries
+     */
+    static Set<URL> withoutExcludedJars(@Nonnull Collection<URL> urls, @Nonnull Set<String> excludedJars) {
+        Set<URL> included = new LinkedHashSet<>();
+        for (URL url : urls) {
+            if (!isExcludedJar(url, excludedJars)) {
+                included.add(url);
+            }
+        }
+        return included;
+    }
+
+    /**
+     * @return - true if the supplied classpath entry (or a resource within it) lies in an excluded jar
+     */
+    private static boolean isExcludedJar(@Nonnull URL url, @Nonnull Set<String> excludedJars) {
+        if (excludedJars.isEmpty()) {
+            return false;
+        }
+        String path = ClasspathHelper.cleanPath(url);
+        // jar:file:/libs/netty-all.jar!/META-INF/... -> /libs/netty-all.jar
+        int entry = path.indexOf("!/");
+        if (entry >= 0) {
+            path = path.substring(0, entry);
+        }
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        return excludedJars.stream().anyMatch(name::startsWith);
+    }
+
+    private static ClassLoader classLoaderOf(@Nonnull Object topLevel) {
+        return topLevel.getClass().getClassLoader() != null
+                ? topLevel.getClass().getClassLoader()
+                : ClasspathHelper.contextClassLoader();
+    }
+
+    private static Set<String> packagesOf(@Nonnull NovocaineConfig config, @Nonnull Object topLevel) {
+        return config.getPackages().isEmpty()
+                ? Collections.singleton(packageOf(topLevel.getClass()))
+                : config.getPackages();
+    }
+
+    private static boolean inPackage(@Nonnull String className, @Nonnull String pkg) {
+        return pkg.isEmpty() || className.startsWith(pkg + ".");
+    }
+
+    /**
+     * @return - the input filter matching every class in the supplied package and its sub-packages
+     */
+    private static String prefix(@Nonnull String pkg) {
+        return pkg.isEmpty() ? ".*" : FilterBuilder.prefix(pkg + ".");
+    }
+
+    private static String packageOf(@Nonnull Class<?> clazz) {
+        String name = clazz.getName();
+        int index = name.lastIndexOf('.');
+        return index < 0 ? "" : name.substring(0, index);
+    }
+}
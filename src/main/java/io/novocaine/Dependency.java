@@ -0,0 +1,98 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.annotation.Annotation;
+
+/**
+ * Describes a single injection point (a field, or a parameter of a constructor or method): its declared type along
+ * with the value of its @Named annotation and its @Qualifier-associated annotation, either of which may be null
+ *
+ * An injection point declared as javax.inject.Provider<T> is a provider dependency on T - it is injected with a
+ * Provider which retrieves T on its first get() rather than with T itself
+ *
+ * Dependencies are created once per injection point - either by Novocaine itself via reflection or by the code
+ * generated by the novocaine-processor module - and are resolved to instances during Novocaine.inject()
+ */
+public final class Dependency {
+
+    private final Class<?> type;
+    private final String named;
+    private final Class<? extends Annotation> qualifier;
+    private final boolean provider;
+
+    private Dependency(@Nonnull Class<?> type, @Nullable String named, @Nullable Class<? extends Annotation> qualifier, boolean provider) {
+        this.type = type;
+        this.named = named;
+        this.qualifier = qualifier;
+        this.provider = provider;
+    }
+
+    /**
+     * Creates a dependency on the supplied type
+     *
+     * @param type - the declared type of the field or parameter
+     * @param named - the value of the @Named annotation on the field or parameter (or null)
+     * @param qualifier - the @Qualifier-associated annotation on the field or parameter (or null)
+     *
+     * @return - the dependency
+     */
+    public static Dependency of(@Nonnull Class<?> type, @Nullable String named, @Nullable Class<? extends Annotation> qualifier) {
+        return new Dependency(type, named, qualifier, false);
+    }
+
+    /**
+     * Creates a dependency on a javax.inject.Provider of the supplied type
+     *
+     * @param type - the type argument of the Provider declared by the field or parameter
+     * @param named - the value of the @Named annotation on the field or parameter (or null)
+     * @param qualifier - the @Qualifier-associated annotation on the field or parameter (or null)
+     *
+     * @return - the dependency
+     */
+    public static Dependency provider(@Nonnull Class<?> type, @Nullable String named, @Nullable Class<? extends Annotation> qualifier) {
+        return new Dependency(type, named, qualifier, true);
+    }
+
+    /**
+     * @return - the declared type of the field or parameter (or the type argument of its declared Provider)
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return - the value of the @Named annotation on the field or parameter (or null)
+     */
+    public String getNamed() {
+        return named;
+    }
+
+    /**
+     * @return - the @Qualifier-associated annotation on the field or parameter (or null)
+     */
+    public Class<? extends Annotation> getQualifier() {
+        return qualifier;
+    }
+
+    /**
+     * @return - true if the field or parameter is declared as a javax.inject.Provider of the type
+     */
+    public boolean isProvider() {
+        return provider;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (named != null) {
+            sb.append("@Named(\"").append(named).append("\") ");
+        }
+        if (qualifier != null) {
+            sb.append('@').append(qualifier.getSimpleName()).append(' ');
+        }
+        return provider
+                ? sb.append("Provider<").append(type.getName()).append('>').toString()
+                : sb.append(type.getName()).toString();
+    }
+}
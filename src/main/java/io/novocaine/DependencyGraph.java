@@ -0,0 +1,1228 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Scope;
+import javax.inject.Singleton;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * The graph of every class Novocaine instantiates and injects and every method marked with @Singleton it invokes, each
+ * linked to the nodes which must complete before it may run
+ *
+ * The whole graph is built and ordered topologically before anything is instantiated. It is then executed either on
+ * the calling thread in that order, or on a supplied Executor where each node is started as soon as all of its
+ * dependencies have completed - independent singletons are constructed concurrently, so startup approaches the
+ * critical path of the graph rather than the sum of all constructors.
+ *
+ * Nodes of classes marked with @Lazy (or, in lazy mode, every node not reachable from the top-level class) are only
+ * run when an eager node depends upon them - otherwise they are left in the graph and run, along with their
+ * dependencies, on the first Novocaine.get() of their type. Nodes of classes marked with @Background are left in the
+ * graph in the same way, and then run on a background executor once Novocaine.inject() has returned (see warmUp()).
+ *
+ * Methods marked with @PostConstruct are invoked as part of running each node, unless an executor was configured for
+ * them (see NovocaineConfig.Builder#asyncPostConstruct()) - in which case the eager nodes' are invoked once every eager
+ * node has been run, each on the executor as soon as those of all of its dependencies have returned.
+ *
+ * Before the graph is discarded, the nodes whose singletons must be shut down are extracted along with the dependencies
+ * between them (see shutdown()), so they may later be shut down in reverse order.
+ *
+ * Fields and parameters declared as javax.inject.Provider do not link their node to the provided one - the provided
+ * node is run on the Provider's first get() if it has not been run by then, which allows cycles to be broken.
+ */
+class DependencyGraph {
+
+    /**
+     * The Injector whose singletons this graph instantiates
+     */
+    private final Injector injector;
+
+    private final Object topLevel;
+
+    /**
+     * The binding index the classes were read from (or null) - only consulted while linking
+     */
+    private BindingIndex index;
+
+    /**
+     * Whether only the nodes reachable from the top-level class are run eagerly
+     */
+    private final boolean lazy;
+
+    /**
+     * Whether classes not marked with @Singleton are constructed anew for every injection point
+     */
+    private final boolean prototypes;
+
+    /**
+     * The scope annotations (other than @Singleton) to the NovocaineScope which implements each
+     */
+    private final Map<Class<? extends Annotation>, NovocaineScope> scopes;
+
+    /**
+     * The executor on which the methods marked with @PostConstruct of eager nodes are invoked (or null to invoke them
+     * as part of running each node)
+     */
+    private final Executor postConstructExecutor;
+
+    /**
+     * The classes instantiated in the background as if marked with @Background, and the executor on which they are
+     * (or null to run them on a single low-priority daemon thread)
+     */
+    private final Set<Class<?>> backgroundClasses;
+    private final Executor backgroundExecutor;
+
+    /**
+     * The background nodes left to be run by warmUp(), in topological order
+     */
+    private List<Node> background = Collections.emptyList();
+
+    /**
+     * Whether the time and memory spent running each node are recorded
+     */
+    private final boolean recording;
+
+    /**
+     * Map containing each class to the node which instantiates and injects it (or null if the class needs neither)
+     */
+    private final Map<Class<?>, Node> classNodes = new HashMap<>();
+
+    /**
+     * Map containing each binding key (the return type and any @Named or @Qualifier-associated annotation) to the node
+     * of the method marked with @Singleton which supplies it
+     */
+    private final Map<BindingKey, Node> suppliers = new HashMap<>();
+
+    /**
+     * Every node of the graph, in the order in which it was added
+     */
+    private final List<Node> nodes = new ArrayList<>();
+
+    /**
+     * Whether any node was left to be run on first use
+     */
+    private boolean lazyNodesRemaining;
+
+    private DependencyGraph(@Nonnull Injector injector, @Nullable BindingIndex index, @Nonnull Object topLevel,
+                            @Nonnull NovocaineConfig config) {
+        this.injector = injector;
+        this.index = index;
+        this.topLevel = topLevel;
+        this.lazy = config.isLazy();
+        this.prototypes = config.isUnscopedAsPrototype();
+        this.scopes = config.getScopes();
+        this.postConstructExecutor = config.getPostConstructExecutor();
+        this.backgroundClasses = config.getBackgroundClasses();
+        this.backgroundExecutor = config.getBackgroundExecutor();
+        this.recording = config.isGraphRecorded();
+    }
+
+    /**
+     * Builds the graph of the supplied classes and every class they depend upon
+     *
+     * @param injector - the Injector whose singletons the graph instantiates
+     * @param classes - the classes found on the classpath
+     * @param topLevel - the top level class which called Novocaine.inject(this)
+     * @param config - whether singletons are lazy and whether unscoped classes are prototypes
+     *
+     * @return - the graph
+     */
+    static DependencyGraph build(@Nonnull Injector injector, @Nonnull Collection<Class<?>> classes, @Nonnull Object topLevel,
+                                 @Nonnull NovocaineConfig config) {
+        return build(injector, classes, null, topLevel, config);
+    }
+
+    /**
+     * Builds the graph of the supplied classes and every class they depend upon, failing on any class depended upon
+     * which is missing from the binding index
+     *
+     * @param injector - the Injector whose singletons the graph instantiates
+     * @param classes - the classes found on the classpath
+     * @param index - the binding index the classes were (partly) read from (or null if the classpath was scanned)
+     * @param topLevel - the top level class which called Novocaine.inject(this)
+     * @param config - whether singletons are lazy and whether unscoped classes are prototypes
+     *
+     * @return - the graph
+     */
+    static DependencyGraph build(@Nonnull Injector injector, @Nonnull Collection<Class<?>> classes, @Nullable BindingIndex index,
+                                 @Nonnull Object topLevel, @Nonnull NovocaineConfig config) {
+        DependencyGraph graph = new DependencyGraph(injector, index, topLevel, config);
+
+        // register every method marked with @Singleton first so that dependencies on supplied types resolve to them
+        classes.forEach(graph::addSuppliers);
+        classes.forEach(graph::classNode);
+
+        // link every node to its dependencies - adding the nodes of classes which were not found on the classpath
+        graph.link();
+        graph.index = null;
+        return graph;
+    }
+
+    /**
+     * Instantiates and injects every eager node of the graph in dependency order
+     *
+     * @param executor - the executor on which to run independent nodes concurrently (or null to run every node on the
+     *                 calling thread)
+     *
+     * @return - the future which completes once the methods marked with @PostConstruct of every eager node have
+     * returned (already complete unless they are invoked asynchronously)
+     */
+    CompletableFuture<Void> instantiate(@Nullable Executor executor) {
+        // order the whole graph so that cyclic dependencies between lazy classes are detected up front as well
+        List<Node> order = order();
+        Set<Node> eager = eagerNodes();
+        lazyNodesRemaining = eager.size() < order.size();
+        if (lazyNodesRemaining) {
+            background = order.stream()
+                    .filter(node -> !eager.contains(node) && isBackground(node))
+                    .collect(Collectors.toList());
+            order.removeIf(node -> !eager.contains(node));
+        }
+        if (postConstructExecutor != null) {
+            // lazy nodes still invoke theirs when they are run, as nothing else would
+            order.forEach(node -> node.deferPostConstruct = true);
+        }
+
+        if (executor == null) {
+            order.forEach(Node::instantiate);
+        }
+        else {
+            instantiateConcurrently(order, executor);
+        }
+        return postConstructExecutor != null
+                ? postConstruct(order, postConstructExecutor)
+                : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Runs every supplied node on the executor, each as soon as all of its dependencies have completed
+     */
+    private void instantiateConcurrently(@Nonnull List<Node> order, @Nonnull Executor executor) {
+
+        // start each node as soon as all of its dependencies have completed - the topological order guarantees the
+        // futures of a node's dependencies exist before the node itself is scheduled
+        Map<Node, CompletableFuture<Void>> futures = new HashMap<>();
+        for (Node node : order) {
+            CompletableFuture<?>[] dependencies = node.dependencies.stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+            futures.put(node, CompletableFuture.allOf(dependencies).thenRunAsync(node::instantiate, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException("Novocaine#inject failed to instantiate singletons", e.getCause());
+        }
+    }
+
+    /**
+     * Invokes the methods marked with @PostConstruct of every supplied node (each already run) on the executor, each
+     * as soon as those of all of its dependencies have returned - independent nodes' are invoked concurrently
+     *
+     * @return - the future which completes once every method has returned (exceptionally if any fails, in which case
+     * the methods of the nodes depending upon it are not invoked)
+     */
+    private CompletableFuture<Void> postConstruct(@Nonnull List<Node> order, @Nonnull Executor executor) {
+        Map<Node, CompletableFuture<Void>> futures = new HashMap<>();
+        for (Node node : order) {
+            CompletableFuture<Void> dependencies = CompletableFuture.allOf(node.dependencies.stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new));
+            futures.put(node, node.hasPostConstruct() ? dependencies.thenRunAsync(node::postConstruct, executor) : dependencies);
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Links every node whose singleton must be shut down (see Node#shutdownEntry()) to the others among them which
+     * depend upon it, directly or through nodes which need no shutting down
+     *
+     * @return - the singletons to shut down, each following every singleton it depends upon
+     */
+    Shutdown shutdown() {
+        Map<Node, Shutdown.Entry> entries = new LinkedHashMap<>();
+        // the nearest nodes to shut down which each node depends upon - shared between nodes wherever possible, so a
+        // long chain of nodes which need no shutting down holds a single set
+        Map<Node, Set<Node>> reachable = new HashMap<>();
+        for (Node node : order()) {
+            Set<Node> dependencies = Collections.emptySet();
+            boolean copied = false;
+            for (Node dependency : node.dependencies) {
+                Set<Node> contributed = entries.containsKey(dependency)
+                        ? Collections.singleton(dependency)
+                        : reachable.get(dependency);
+                if (dependencies.containsAll(contributed)) {
+                    continue;
+                }
+                if (dependencies.isEmpty()) {
+                    dependencies = contributed;
+                }
+                else {
+                    if (!copied) {
+                        dependencies = new HashSet<>(dependencies);
+                        copied = true;
+                    }
+                    dependencies.addAll(contributed);
+                }
+            }
+            reachable.put(node, dependencies);
+
+            Shutdown.Entry entry = node.shutdownEntry();
+            if (entry != null) {
+                dependencies.forEach(dependency -> entries.get(dependency).dependents.add(entry));
+                entries.put(node, entry);
+            }
+        }
+        return new Shutdown(injector, new ArrayList<>(entries.values()));
+    }
+
+    /**
+     * Runs every background node, along with each of its dependencies which has not yet been run, on the background
+     * executor in topological order - a Novocaine.get() of a background node arriving first runs the node itself, or
+     * waits only while the background executor is running that very node
+     *
+     * @return - the future which completes once every background node has been run - exceptionally with the first
+     * failure if any node failed (already complete if there are none)
+     */
+    CompletableFuture<Void> warmUp() {
+        if (background.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Executor executor = backgroundExecutor;
+        ExecutorService owned = null;
+        if (executor == null) {
+            owned = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "novocaine-background");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+            executor = owned;
+        }
+        // a failed node is left unrun - the first Novocaine.get() of it runs it again, and throws to its caller
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Node node : background) {
+            futures.add(CompletableFuture.runAsync(() -> instantiatePending(node), executor));
+        }
+        background = Collections.emptyList();
+        if (owned != null) {
+            // the thread exits once every background node has been run
+            owned.shutdown();
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Indexes every injection point of the graph by the node which provides its value - the reverse of each node's
+     * dependencies, down to the field or method (see ReverseDependencyIndex). Fields and parameters declared as
+     * javax.inject.Provider are not indexed.
+     *
+     * @return - the index
+     */
+    ReverseDependencyIndex reverseDependencies() {
+        ReverseDependencyIndex index = new ReverseDependencyIndex(injector, topLevel);
+        for (Node node : nodes) {
+            node.index(index);
+        }
+        return index;
+    }
+
+    /**
+     * Records each of the supplied fields or parameters of a dependent in the index, under the node providing it - and
+     * under the qualified or @Named binding it requests, which may be rebound on its own
+     */
+    private void index(@Nonnull ReverseDependencyIndex index, @Nonnull ReverseDependencyIndex.Dependent dependent,
+                       @Nonnull Dependency[] dependencies, int kind, int position) {
+        for (Dependency dependency : dependencies) {
+            Node target = dependency.isProvider() ? null : existingNodeFor(dependency);
+            if (target != null) {
+                index.add(target.key(), dependent, kind, position);
+                BindingKey requested = BindingKey.of(dependency);
+                if (!requested.equals(target.key())) {
+                    index.add(requested, dependent, kind, position);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return - true if any node was left to be run on first use by instantiateLazily()
+     */
+    boolean hasLazyNodes() {
+        return lazyNodesRemaining;
+    }
+
+    /**
+     * Runs the node of the supplied class, along with every dependency which has not yet been run, unless it has
+     * already been run
+     *
+     * @param clazz - the class to retrieve
+     *
+     * @return - the singleton of the supplied class (or null)
+     */
+    Object instantiateLazily(@Nonnull Class<?> clazz) {
+        instantiatePending(nodeOf(clazz));
+        return injector.injectableProvider.get(clazz);
+    }
+
+    /**
+     * Runs the node which provides the supplied field or parameter, along with every dependency which has not yet been
+     * run, unless it has already been run
+     *
+     * @param dependency - the field or parameter
+     */
+    void instantiateLazily(@Nonnull Dependency dependency) {
+        Node node = suppliers.get(BindingKey.of(dependency));
+        instantiatePending(node != null ? node : nodeOf(injector.helper.determineType(dependency)));
+    }
+
+    /**
+     * @return - the node which instantiates or supplies the supplied type (or null)
+     */
+    private Node nodeOf(@Nonnull Class<?> type) {
+        Node node = classNodes.get(type);
+        return node != null ? node : suppliers.get(BindingKey.of(type));
+    }
+
+    /**
+     * Runs the supplied node and every dependency which has not yet been run, in topological order - each node runs
+     * at most once, even when several threads instantiate the same lazy singleton concurrently
+     */
+    private void instantiatePending(Node node) {
+        if (node == null || node.instantiated) {
+            return;
+        }
+        List<Node> pending = new ArrayList<>();
+        Set<Node> visited = new HashSet<>();
+        Deque<Node> worklist = new ArrayDeque<>(Collections.singleton(node));
+        while (!worklist.isEmpty()) {
+            Node next = worklist.poll();
+            if (!next.instantiated && visited.add(next)) {
+                pending.add(next);
+                worklist.addAll(next.dependencies);
+            }
+        }
+        pending.sort(Comparator.comparingInt(pendingNode -> pendingNode.position));
+        pending.forEach(Node::instantiate);
+    }
+
+    /**
+     * Collects the nodes which are run by Novocaine.inject() - the nodes of classes which are neither lazy nor
+     * background (or in lazy mode, the nodes of the top-level class) and every node they depend upon
+     *
+     * @return - the eager nodes
+     */
+    private Set<Node> eagerNodes() {
+        Deque<Node> worklist = new ArrayDeque<>();
+        for (Node node : nodes) {
+            boolean eager = lazy
+                    ? node.declaringClass == topLevel.getClass()
+                    : node.declaringClass.getAnnotation(Lazy.class) == null && !isBackground(node);
+            if (eager) {
+                worklist.add(node);
+            }
+        }
+        Set<Node> eager = new HashSet<>();
+        while (!worklist.isEmpty()) {
+            Node node = worklist.poll();
+            if (eager.add(node)) {
+                worklist.addAll(node.dependencies);
+            }
+        }
+        return eager;
+    }
+
+    /**
+     * @return - true if the node's class is marked with @Background, or configured as if it were
+     */
+    private boolean isBackground(@Nonnull Node node) {
+        return node.declaringClass.getAnnotation(Background.class) != null || backgroundClasses.contains(node.declaringClass);
+    }
+
+    /**
+     * Orders the nodes of the graph so that every node follows all of its dependencies
+     *
+     * @return - the nodes in topological order
+     */
+    List<Node> order() {
+        Map<Node, Integer> remaining = new HashMap<>();
+        Map<Node, List<Node>> dependents = new HashMap<>();
+        Deque<Node> ready = new ArrayDeque<>();
+        for (Node node : nodes) {
+            remaining.put(node, node.dependencies.size());
+            if (node.dependencies.isEmpty()) {
+                ready.add(node);
+            }
+            for (Node dependency : node.dependencies) {
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(node);
+            }
+        }
+
+        List<Node> order = new ArrayList<>(nodes.size());
+        while (!ready.isEmpty()) {
+            Node node = ready.poll();
+            node.position = order.size();
+            order.add(node);
+            for (Node dependent : dependents.getOrDefault(node, Collections.emptyList())) {
+                if (remaining.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (order.size() < nodes.size()) {
+            throw new RuntimeException(describeCycles(cycles(remaining.keySet().stream()
+                    .filter(node -> remaining.get(node) > 0)
+                    .collect(Collectors.toSet()))));
+        }
+        return order;
+    }
+
+    /**
+     * Finds every cycle among the supplied nodes - the strongly connected components of the graph (Tarjan's algorithm,
+     * iteratively, in time linear in the nodes and edges), each reduced to the shortest cycle through its first node
+     *
+     * @param candidates - the nodes which could not be ordered (every cycle lies within them)
+     *
+     * @return - each cycle, as the nodes along it starting and ending with the same node
+     */
+    private List<List<Node>> cycles(@Nonnull Set<Node> candidates) {
+        Map<Node, Integer> index = new HashMap<>();
+        Map<Node, Integer> lowLink = new HashMap<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        Set<Node> onStack = new HashSet<>();
+        List<List<Node>> cycles = new ArrayList<>();
+
+        for (Node start : nodes) {
+            if (!candidates.contains(start) || index.containsKey(start)) {
+                continue;
+            }
+            // each frame is a node being visited along with the dependencies it has yet to visit
+            Deque<Map.Entry<Node, Iterator<Node>>> frames = new ArrayDeque<>();
+            frames.push(visit(start, index, lowLink, stack, onStack));
+            while (!frames.isEmpty()) {
+                Node node = frames.peek().getKey();
+                Iterator<Node> dependencies = frames.peek().getValue();
+                if (dependencies.hasNext()) {
+                    Node dependency = dependencies.next();
+                    if (!candidates.contains(dependency)) {
+                        continue;
+                    }
+                    if (!index.containsKey(dependency)) {
+                        frames.push(visit(dependency, index, lowLink, stack, onStack));
+                    }
+                    else if (onStack.contains(dependency)) {
+                        lowLink.put(node, Math.min(lowLink.get(node), index.get(dependency)));
+                    }
+                    continue;
+                }
+
+                frames.pop();
+                if (!frames.isEmpty()) {
+                    Node parent = frames.peek().getKey();
+                    lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(node)));
+                }
+                if (lowLink.get(node).equals(index.get(node))) {
+                    // the node is the root of a strongly connected component - pop the whole component
+                    Set<Node> component = new HashSet<>();
+                    Node member;
+                    do {
+                        member = stack.pop();
+                        onStack.remove(member);
+                        component.add(member);
+                    }
+                    while (member != node);
+                    if (component.size() > 1 || node.dependencies.contains(node)) {
+                        cycles.add(shortestCycle(node, component));
+                    }
+                }
+            }
+        }
+        return cycles;
+    }
+
+    private static Map.Entry<Node, Iterator<Node>> visit(@Nonnull Node node, @Nonnull Map<Node, Integer> index,
+                                                         @Nonnull Map<Node, Integer> lowLink, @Nonnull Deque<Node> stack,
+                                                         @Nonnull Set<Node> onStack) {
+        index.put(node, index.size());
+        lowLink.put(node, index.get(node));
+        stack.push(node);
+        onStack.add(node);
+        return new AbstractMap.SimpleImmutableEntry<>(node, node.dependencies.iterator());
+    }
+
+    /**
+     * Finds the shortest cycle from the supplied node back to itself within its strongly connected component
+     */
+    private static List<Node> shortestCycle(@Nonnull Node start, @Nonnull Set<Node> component) {
+        Map<Node, Node> previous = new HashMap<>();
+        Deque<Node> worklist = new ArrayDeque<>(Collections.singleton(start));
+        while (!worklist.isEmpty() && !previous.containsKey(start)) {
+            Node node = worklist.poll();
+            for (Node dependency : node.dependencies) {
+                if (component.contains(dependency) && !previous.containsKey(dependency)) {
+                    previous.put(dependency, node);
+                    worklist.add(dependency);
+                }
+            }
+        }
+        LinkedList<Node> cycle = new LinkedList<>(Collections.singleton(start));
+        for (Node node = previous.get(start); node != start; node = previous.get(node)) {
+            cycle.addFirst(node);
+        }
+        cycle.addFirst(start);
+        return cycle;
+    }
+
+    /**
+     * Describes every cycle along with the injection point behind each of its edges, e.g.
+     *
+     *      Circular Dependency Detected: com.acme.A -[field]-> com.acme.B -[constructor]-> com.acme.A
+     */
+    private String describeCycles(@Nonnull List<List<Node>> cycles) {
+        StringBuilder sb = new StringBuilder("Circular Dependency Detected: ");
+        if (cycles.size() > 1) {
+            sb.append(cycles.size()).append(" cycles");
+        }
+        for (List<Node> cycle : cycles) {
+            sb.append(cycles.size() > 1 ? "\n    " : "").append(describe(cycle.get(0)));
+            for (int i = 1; i < cycle.size(); i++) {
+                sb.append(" -[").append(edgeOf(cycle.get(i - 1), cycle.get(i))).append("]-> ").append(describe(cycle.get(i)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String describe(@Nonnull Node node) {
+        return node.kind().equals("supplier")
+                ? node.key() + " (@Singleton method of " + node.declaringClass.getName() + ")"
+                : node.type.getName();
+    }
+
+    /**
+     * @return - the kind of the injection point linking the node to its dependency (along with the field or parameter
+     * when it is not simply the dependency's own class)
+     */
+    private String edgeOf(@Nonnull Node node, @Nonnull Node dependency) {
+        for (InjectionPoint injectionPoint : node.injectionPoints()) {
+            if (!injectionPoint.dependency.isProvider() && existingNodeFor(injectionPoint.dependency) == dependency) {
+                String declared = injectionPoint.dependency.toString();
+                return declared.equals(dependency.type.getName())
+                        ? injectionPoint.kind
+                        : injectionPoint.kind + " " + declared;
+            }
+        }
+        return node.prerequisiteKind();
+    }
+
+    /**
+     * Adds a node for each method marked with @Singleton on the supplied class, indexed by the binding key it supplies
+     *
+     * @throws RuntimeException - if another method already supplies the same binding key
+     */
+    private void addSuppliers(@Nonnull Class<?> clazz) {
+        if (Modifier.isAbstract(clazz.getModifiers())) {
+            return;
+        }
+        NovocaineFactory<Object> factory = NovocaineHelper.factoryFor(clazz);
+        Dependency[] keys = factory.supplierKeys();
+        for (int i = 0; i < keys.length; i++) {
+            Node node = new SupplierNode(clazz, factory, i);
+            BindingKey key = BindingKey.of(keys[i]);
+            Node existing = suppliers.putIfAbsent(key, node);
+            if (existing != null) {
+                throw new RuntimeException("Duplicate @Singleton methods supplying: " + key + " on classes: "
+                        + existing.declaringClass.getName() + " and " + clazz.getName());
+            }
+            nodes.add(node);
+        }
+        if (keys.length > 0) {
+            // the supplier class itself must always be instantiated
+            classNode(clazz);
+        }
+    }
+
+    /**
+     * Retrieves (or adds) the node which instantiates and injects the supplied class
+     *
+     * @param clazz - the class
+     *
+     * @return - the node (or null if the class is abstract or has nothing which Novocaine acts upon)
+     */
+    private Node classNode(@Nonnull Class<?> clazz) {
+        if (classNodes.containsKey(clazz)) {
+            return classNodes.get(clazz);
+        }
+        Node node = null;
+        if (!Modifier.isAbstract(clazz.getModifiers())) {
+            NovocaineFactory<Object> factory = NovocaineHelper.factoryFor(clazz);
+            NovocaineScope scope = scopeOf(clazz, factory);
+            if (scope != null) {
+                node = new PrototypeNode(clazz, factory, scope);
+                nodes.add(node);
+            }
+            else if (isInjectable(clazz, factory)) {
+                node = isPrototype(clazz, factory) ? new PrototypeNode(clazz, factory, null) : new ClassNode(clazz, factory);
+                nodes.add(node);
+            }
+        }
+        classNodes.put(clazz, node);
+        return node;
+    }
+
+    /**
+     * @return - true if the class must be instantiated or injected
+     */
+    private boolean isInjectable(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory) {
+        return clazz == topLevel.getClass()
+                || factory.hasInjectConstructor()
+                || factory.fieldDependencies().length > 0
+                || factory.methodDependencies().length > 0
+                || factory.supplierKeys().length > 0
+                || clazz.getAnnotation(Singleton.class) != null
+                || injector.helper.resolveAnnotatedClassToType(clazz).isPresent();
+    }
+
+    /**
+     * @return - the NovocaineScope of the scope annotation (other than @Singleton) the class is marked with (or null)
+     */
+    private NovocaineScope scopeOf(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory) {
+        NovocaineScope found = null;
+        for (Annotation annotation : clazz.getAnnotations()) {
+            Class<? extends Annotation> annotationType = annotation.annotationType();
+            if (annotationType == Singleton.class || annotationType.getAnnotation(Scope.class) == null) {
+                continue;
+            }
+            NovocaineScope scope = scopes.get(annotationType);
+            if (scope == null) {
+                throw new RuntimeException("No NovocaineScope registered for @" + annotationType.getName() + " on class: "
+                        + clazz.getName() + " - register one with NovocaineConfig.Builder#scope()");
+            }
+            if (found != null || clazz.getAnnotation(Singleton.class) != null) {
+                throw new RuntimeException("Class may only be marked with a single scope annotation: " + clazz.getName());
+            }
+            if (factory.supplierKeys().length > 0) {
+                throw new RuntimeException("Class marked with @" + annotationType.getName()
+                        + " may not declare methods marked with @Singleton: " + clazz.getName());
+            }
+            found = scope;
+        }
+        return found;
+    }
+
+    /**
+     * @return - true if a new instance of the class must be constructed for every injection point
+     */
+    private boolean isPrototype(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory) {
+        return prototypes
+                && clazz != topLevel.getClass()
+                && clazz.getAnnotation(Singleton.class) == null
+                && factory.supplierKeys().length == 0
+                && !suppliers.containsKey(BindingKey.of(clazz));
+    }
+
+    /**
+     * Links every node to the nodes it depends upon, working through the nodes of newly discovered classes until none
+     * remain
+     */
+    private void link() {
+        Deque<Node> worklist = new ArrayDeque<>(nodes);
+        while (!worklist.isEmpty()) {
+            Node node = worklist.poll();
+            for (InjectionPoint injectionPoint : node.injectionPoints()) {
+                Dependency dependency = injectionPoint.dependency;
+                Node target = nodeFor(dependency, worklist);
+                // a Provider defers its dependency until get() - it never has to be instantiated first
+                if (target != null && !dependency.isProvider()) {
+                    node.dependencies.add(target);
+                }
+            }
+            Node prerequisite = node.prerequisite();
+            if (prerequisite != null) {
+                node.dependencies.add(prerequisite);
+            }
+        }
+    }
+
+    /**
+     * Resolves a field or parameter to the node which provides its value
+     *
+     * @param dependency - the field or parameter
+     * @param worklist - the nodes which are yet to be linked
+     *
+     * @return - the node providing the value (or null if nothing provides it)
+     */
+    private Node nodeFor(@Nonnull Dependency dependency, @Nonnull Deque<Node> worklist) {
+        Node supplier = suppliers.get(BindingKey.of(dependency));
+        if (supplier != null) {
+            return supplier;
+        }
+        Class<?> type = injector.helper.determineType(dependency);
+        supplier = suppliers.get(BindingKey.of(type));
+        if (supplier != null) {
+            return supplier;
+        }
+        boolean discovered = !classNodes.containsKey(type);
+        Node node = classNode(type);
+        if (discovered && node != null) {
+            if (index != null && index.isMissing(type)) {
+                // its @Singleton methods, @Named value and qualifier would otherwise be silently ignored
+                throw new RuntimeException("Novocaine#inject cannot inject " + dependency + ": " + type.getName()
+                        + " is missing from the binding index of its jar or directory - compile it with the"
+                        + " novocaine-processor module or use NovocaineConfig.Builder#ignoreBindingIndex()");
+            }
+            worklist.add(node);
+        }
+        return node;
+    }
+
+    /**
+     * Captures the graph as it stands - every node, every injection point linking one node to another, and the cost
+     * of running each node which has been run (if the graph is being recorded)
+     *
+     * @return - the snapshot of the graph
+     */
+    GraphExport export() {
+        Map<Node, Integer> ids = new HashMap<>();
+        List<GraphExport.NodeRecord> nodeRecords = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            ids.put(node, ids.size());
+            nodeRecords.add(new GraphExport.NodeRecord(node.key().toString(), node.kind(), node.declaringClass.getName(),
+                    node.position, node.instantiated, node.nanos, node.allocatedBytes));
+        }
+
+        List<GraphExport.EdgeRecord> edgeRecords = new ArrayList<>();
+        for (Node node : nodes) {
+            for (InjectionPoint injectionPoint : node.injectionPoints()) {
+                Node target = existingNodeFor(injectionPoint.dependency);
+                if (target != null) {
+                    edgeRecords.add(new GraphExport.EdgeRecord(ids.get(node), ids.get(target), injectionPoint.kind,
+                            injectionPoint.dependency.toString(), injectionPoint.dependency.isProvider()));
+                }
+            }
+            Node prerequisite = node.prerequisite();
+            if (prerequisite != null) {
+                edgeRecords.add(new GraphExport.EdgeRecord(ids.get(node), ids.get(prerequisite), node.prerequisiteKind(),
+                        prerequisite.key().toString(), false));
+            }
+        }
+        return new GraphExport(nodeRecords, edgeRecords);
+    }
+
+    /**
+     * Resolves a field or parameter to the node which provides its value, without adding any node
+     */
+    private Node existingNodeFor(@Nonnull Dependency dependency) {
+        Node supplier = suppliers.get(BindingKey.of(dependency));
+        if (supplier != null) {
+            return supplier;
+        }
+        Class<?> type = injector.helper.determineType(dependency);
+        supplier = suppliers.get(BindingKey.of(type));
+        return supplier != null ? supplier : classNodes.get(type);
+    }
+
+    /**
+     * A field or parameter of a node, along with the kind of injection point it is: constructor, field, method or
+     * supplier (a parameter of a method marked with @Singleton)
+     */
+    static final class InjectionPoint {
+
+        final String kind;
+        final Dependency dependency;
+
+        InjectionPoint(@Nonnull String kind, @Nonnull Dependency dependency) {
+            this.kind = kind;
+            this.dependency = dependency;
+        }
+
+        static List<InjectionPoint> of(@Nonnull String kind, @Nonnull Dependency[] dependencies) {
+            List<InjectionPoint> injectionPoints = new ArrayList<>(dependencies.length);
+            for (Dependency dependency : dependencies) {
+                injectionPoints.add(new InjectionPoint(kind, dependency));
+            }
+            return injectionPoints;
+        }
+    }
+
+    /**
+     * A unit of work within the graph
+     */
+    abstract class Node {
+
+        /**
+         * The class which is instantiated, or the type which is supplied
+         */
+        final Class<?> type;
+
+        /**
+         * The class which is instantiated, or the class which declares the method marked with @Singleton
+         */
+        final Class<?> declaringClass;
+
+        /**
+         * The nodes which must complete before this one may run
+         */
+        final Set<Node> dependencies = new LinkedHashSet<>();
+
+        /**
+         * The index of this node in the topological order of the graph
+         */
+        int position;
+
+        /**
+         * Whether this node has been run
+         */
+        volatile boolean instantiated;
+
+        /**
+         * Whether the methods marked with @PostConstruct are invoked asynchronously once the graph has been run, rather
+         * than as part of running this node
+         */
+        boolean deferPostConstruct;
+
+        /**
+         * The wall-clock time and the bytes allocated by the running thread while running this node (-1 unless the
+         * graph is being recorded and this node has been run) - published by the write to instantiated
+         */
+        long nanos = -1;
+        long allocatedBytes = -1;
+
+        Node(@Nonnull Class<?> type, @Nonnull Class<?> declaringClass) {
+            this.type = type;
+            this.declaringClass = declaringClass;
+        }
+
+        /**
+         * Whether this node is being run by the thread holding its lock
+         */
+        private boolean instantiating;
+
+        /**
+         * Runs this node and marks it as run, unless it has already been run
+         */
+        synchronized void instantiate() {
+            if (instantiated) {
+                return;
+            }
+            // a Provider.get() of this node while it is being constructed can never be satisfied
+            if (instantiating) {
+                throw new RuntimeException("Circular Dependency Detected: " + type.getName());
+            }
+            instantiating = true;
+            try {
+                if (recording) {
+                    long start = System.nanoTime();
+                    long allocated = GraphExport.allocatedBytes();
+                    run();
+                    nanos = System.nanoTime() - start;
+                    allocatedBytes = allocated < 0 ? -1 : GraphExport.allocatedBytes() - allocated;
+                }
+                else {
+                    run();
+                }
+                instantiated = true;
+            }
+            finally {
+                instantiating = false;
+            }
+        }
+
+        /**
+         * @return - the fields and parameters which must be resolved before this node may run
+         */
+        abstract List<InjectionPoint> injectionPoints();
+
+        /**
+         * @return - the node which must complete before this one regardless of its fields and parameters (or null)
+         */
+        abstract Node prerequisite();
+
+        /**
+         * @return - the binding key of the class instantiated or the object supplied by this node
+         */
+        abstract BindingKey key();
+
+        /**
+         * @return - the kind of node: class, prototype, scoped or supplier
+         */
+        abstract String kind();
+
+        /**
+         * @return - true if running this node produces an instance with methods marked with @PostConstruct
+         */
+        boolean hasPostConstruct() {
+            return false;
+        }
+
+        /**
+         * Invokes the methods marked with @PostConstruct of the instance produced by running this node
+         */
+        void postConstruct() {
+        }
+
+        /**
+         * @return - the singleton produced by running this node, if it must be shut down (see Shutdown), otherwise null
+         */
+        Shutdown.Entry shutdownEntry() {
+            return null;
+        }
+
+        /**
+         * Records every field and parameter of this node in the supplied index
+         */
+        abstract void index(@Nonnull ReverseDependencyIndex index);
+
+        /**
+         * @return - why this node depends upon its prerequisite
+         */
+        abstract String prerequisiteKind();
+
+        abstract void run();
+    }
+
+    /**
+     * Instantiates a class (unless it is the top-level class) and injects its fields and methods
+     */
+    private class ClassNode extends Node {
+
+        private final NovocaineFactory<Object> factory;
+
+        ClassNode(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory) {
+            super(clazz, clazz);
+            this.factory = factory;
+        }
+
+        @Override
+        List<InjectionPoint> injectionPoints() {
+            List<InjectionPoint> injectionPoints = InjectionPoint.of("constructor", factory.constructorDependencies());
+            injectionPoints.addAll(InjectionPoint.of("field", factory.fieldDependencies()));
+            for (Dependency[] methodDependencies : factory.methodDependencies()) {
+                injectionPoints.addAll(InjectionPoint.of("method", methodDependencies));
+            }
+            return injectionPoints;
+        }
+
+        @Override
+        Node prerequisite() {
+            // a class which is also supplied by a method marked with @Singleton is injected into the supplied object
+            return suppliers.get(BindingKey.of(type));
+        }
+
+        @Override
+        BindingKey key() {
+            return BindingKey.of(type);
+        }
+
+        @Override
+        String kind() {
+            return "class";
+        }
+
+        @Override
+        String prerequisiteKind() {
+            return "supplied";
+        }
+
+        @Override
+        boolean hasPostConstruct() {
+            return factory.hasPostConstruct();
+        }
+
+        @Override
+        void postConstruct() {
+            injector.helper.postConstruct(type, factory, topLevel);
+        }
+
+        @Override
+        void index(@Nonnull ReverseDependencyIndex index) {
+            index(index, dependent(null));
+        }
+
+        /**
+         * Records every field and parameter of this class in the supplied index as those of the supplied dependent
+         */
+        void index(@Nonnull ReverseDependencyIndex index, @Nonnull ReverseDependencyIndex.Dependent dependent) {
+            DependencyGraph.this.index(index, dependent, factory.constructorDependencies(), ReverseDependencyIndex.CONSTRUCTOR, 0);
+            Dependency[] fieldDependencies = factory.fieldDependencies();
+            for (int i = 0; i < fieldDependencies.length; i++) {
+                DependencyGraph.this.index(index, dependent, new Dependency[] { fieldDependencies[i] }, ReverseDependencyIndex.FIELD, i);
+            }
+            Dependency[][] methodDependencies = factory.methodDependencies();
+            for (int i = 0; i < methodDependencies.length; i++) {
+                DependencyGraph.this.index(index, dependent, methodDependencies[i], ReverseDependencyIndex.METHOD, i);
+            }
+            Node supplier = prerequisite();
+            if (supplier != null) {
+                index.add(supplier.key(), dependent, ReverseDependencyIndex.INSTANCE, 0);
+            }
+        }
+
+        ReverseDependencyIndex.Dependent dependent(Prototype<?> prototype) {
+            return new ReverseDependencyIndex.Dependent(type, factory, key(), position, -1, prototype);
+        }
+
+        @Override
+        Shutdown.Entry shutdownEntry() {
+            // the top-level class belongs to the caller, and a supplied class is shut down through its supplier
+            if (type == topLevel.getClass() || prerequisite() != null) {
+                return null;
+            }
+            return factory.hasPreDestroy() || AutoCloseable.class.isAssignableFrom(type)
+                    ? new Shutdown.Entry(type, key().toString(), factory, null)
+                    : null;
+        }
+
+        @Override
+        void run() {
+            try {
+                injector.helper.instantiateAndInject(type, factory, topLevel);
+                if (!deferPostConstruct && hasPostConstruct()) {
+                    postConstruct();
+                }
+            }
+            catch (RuntimeException e) {
+                // the singleton is stored as soon as it is constructed - never leave one which failed to be injected or
+                // post-constructed to be found (a supplied object belongs to its supplier)
+                if (type != topLevel.getClass() && prerequisite() == null) {
+                    injector.injectableProvider.remove(type);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Registers the Prototype of an unscoped class (or the Provider of a scoped class, which constructs instances through
+     * the Prototype) - the node instantiates nothing itself, but links the class to its dependencies so that every
+     * singleton it requires is instantiated before anything depending on the class
+     */
+    private class PrototypeNode extends ClassNode {
+
+        private final NovocaineScope scope;
+        private final Prototype<Object> prototype;
+
+        @SuppressWarnings("unchecked")
+        PrototypeNode(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory, NovocaineScope scope) {
+            super(clazz, factory);
+            this.scope = scope;
+            this.prototype = new Prototype<>(injector.helper, clazz, factory);
+            injector.helper.prototypes.put(clazz, scope != null ? scope.scope((Class<Object>) clazz, prototype) : prototype);
+        }
+
+        @Override
+        void index(@Nonnull ReverseDependencyIndex index) {
+            index(index, dependent(prototype));
+        }
+
+        @Override
+        Node prerequisite() {
+            return null;
+        }
+
+        @Override
+        String kind() {
+            return scope != null ? "scoped" : "prototype";
+        }
+
+        @Override
+        boolean hasPostConstruct() {
+            // every instance is post-constructed by the Prototype
+            return false;
+        }
+
+        @Override
+        Shutdown.Entry shutdownEntry() {
+            // instances belong to whoever retrieved them (or to their scope)
+            return null;
+        }
+
+        @Override
+        void run() {
+            // instances are constructed by the Prototype on demand
+        }
+    }
+
+    /**
+     * Invokes a method marked with @Singleton and stores the supplied object
+     */
+    private class SupplierNode extends Node {
+
+        private final Class<?> supplierClass;
+        private final NovocaineFactory<Object> factory;
+        private final int index;
+
+        SupplierNode(@Nonnull Class<?> supplierClass, @Nonnull NovocaineFactory<Object> factory, int index) {
+            super(factory.supplierKeys()[index].getType(), supplierClass);
+            this.supplierClass = supplierClass;
+            this.factory = factory;
+            this.index = index;
+        }
+
+        @Override
+        List<InjectionPoint> injectionPoints() {
+            return InjectionPoint.of("supplier", factory.supplierDependencies()[index]);
+        }
+
+        @Override
+        Node prerequisite() {
+            // the method is invoked on the (fully injected) instance of the supplier class
+            return classNode(supplierClass);
+        }
+
+        @Override
+        BindingKey key() {
+            return BindingKey.of(factory.supplierKeys()[index]);
+        }
+
+        @Override
+        String kind() {
+            return "supplier";
+        }
+
+        @Override
+        String prerequisiteKind() {
+            return "instance";
+        }
+
+        @Override
+        void index(@Nonnull ReverseDependencyIndex reverseDependencies) {
+            ReverseDependencyIndex.Dependent dependent = new ReverseDependencyIndex.Dependent(supplierClass, factory, key(),
+                    position, index, null);
+            DependencyGraph.this.index(reverseDependencies, dependent, factory.supplierDependencies()[index],
+                    ReverseDependencyIndex.SUPPLIER, 0);
+            // the method is invoked upon the singleton of the supplier class
+            Node supplierNode = prerequisite();
+            if (supplierNode != null) {
+                reverseDependencies.add(supplierNode.key(), dependent, ReverseDependencyIndex.SUPPLIER, 0);
+            }
+        }
+
+        @Override
+        Shutdown.Entry shutdownEntry() {
+            // whether the supplied object is AutoCloseable is only known once it has been supplied
+            return new Shutdown.Entry(supplierClass, key().toString(), null, factory.supplierKeys()[index]);
+        }
+
+        @Override
+        void run() {
+            injector.helper.instantiateFromSupplier(supplierClass, factory, index, topLevel);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A snapshot of the dependency graph of Novocaine.inject() (see NovocaineConfig.Builder#recordGraph()), exportable as
+ * JSON or as a Graphviz DOT digraph
+ *
+ * Each node is a binding - a class Novocaine instantiates, or an object supplied by a method marked with @Singleton -
+ * along with the wall-clock time and the bytes allocated by the running thread while it was instantiated and injected
+ * (-1 if it has not been). Times include any singleton instantiated on demand by the node, e.g. via Provider.get().
+ *
+ * Each edge is an injection point, leading from the node which declares it to the node which provides its value, and
+ * is of kind constructor, field, method or supplier (a parameter of a method marked with @Singleton). Two further kinds
+ * order nodes without an injection point: instance (a supplier method needs the instance of its class) and supplied (a
+ * class also supplied by a method is injected into the supplied object).
+ *
+ * The critical path is the chain of dependencies whose instantiation times sum the highest - no parallelism can bring
+ * the instantiation of the whole graph below it.
+ */
+public final class GraphExport {
+
+    private final List<NodeRecord> nodes;
+    private final List<EdgeRecord> edges;
+
+    /**
+     * The dependency each node's critical path continues through (or -1), and whether each node is on the critical path
+     */
+    private final int[] previous;
+    private final boolean[] critical;
+    private final List<Integer> criticalPath = new ArrayList<>();
+    private final long criticalPathNanos;
+
+    GraphExport(@Nonnull List<NodeRecord> nodes, @Nonnull List<EdgeRecord> edges) {
+        this.nodes = nodes;
+        this.edges = edges;
+        this.previous = new int[nodes.size()];
+        this.critical = new boolean[nodes.size()];
+
+        List<List<EdgeRecord>> outgoing = new ArrayList<>(nodes.size());
+        List<Integer> order = new ArrayList<>(nodes.size());
+        for (int id = 0; id < nodes.size(); id++) {
+            outgoing.add(new ArrayList<>());
+            order.add(id);
+        }
+        for (EdgeRecord edge : edges) {
+            // a Provider does not have to be instantiated first
+            if (!edge.provider) {
+                outgoing.get(edge.from).add(edge);
+            }
+        }
+
+        // accumulate the most expensive chain of dependencies ending at each node, in topological order
+        order.sort((a, b) -> Integer.compare(nodes.get(a).position, nodes.get(b).position));
+        long[] longest = new long[nodes.size()];
+        int end = -1;
+        for (int id : order) {
+            int best = -1;
+            for (EdgeRecord edge : outgoing.get(id)) {
+                if (best < 0 || longest[edge.to] > longest[best]) {
+                    best = edge.to;
+                }
+            }
+            previous[id] = best;
+            longest[id] = Math.max(nodes.get(id).nanos, 0) + (best < 0 ? 0 : longest[best]);
+            if (end < 0 || longest[id] > longest[end]) {
+                end = id;
+            }
+        }
+
+        for (int id = end; id >= 0; id = previous[id]) {
+            critical[id] = true;
+            criticalPath.add(0, id);
+        }
+        this.criticalPathNanos = end < 0 ? 0 : longest[end];
+    }
+
+    /**
+     * @return - the summed instantiation time of the nodes on the critical path
+     */
+    public long getCriticalPathNanos() {
+        return criticalPathNanos;
+    }
+
+    /**
+     * Renders the graph as JSON:
+     *
+     *      {"criticalPathNanos": ..., "criticalPath": [ids...],
+     *       "nodes": [{"id", "key", "kind", "declaringClass", "instantiated", "nanos", "allocatedBytes"}...],
+     *       "edges": [{"from", "to", "kind", "dependency", "provider"}...]}
+     *
+     * @return - the JSON document
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"criticalPathNanos\": ").append(criticalPathNanos).append(",\n  \"criticalPath\": ")
+                .append(criticalPath).append(",\n  \"nodes\": [");
+        for (int id = 0; id < nodes.size(); id++) {
+            NodeRecord node = nodes.get(id);
+            sb.append(id == 0 ? "\n" : ",\n")
+                    .append("    {\"id\": ").append(id)
+                    .append(", \"key\": ").append(jsonString(node.key))
+                    .append(", \"kind\": ").append(jsonString(node.kind))
+                    .append(", \"declaringClass\": ").append(jsonString(node.declaringClass))
+                    .append(", \"instantiated\": ").append(node.instantiated)
+                    .append(", \"nanos\": ").append(node.nanos)
+                    .append(", \"allocatedBytes\": ").append(node.allocatedBytes)
+                    .append('}');
+        }
+        sb.append("\n  ],\n  \"edges\": [");
+        for (int i = 0; i < edges.size(); i++) {
+            EdgeRecord edge = edges.get(i);
+            sb.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"from\": ").append(edge.from)
+                    .append(", \"to\": ").append(edge.to)
+                    .append(", \"kind\": ").append(jsonString(edge.kind))
+                    .append(", \"dependency\": ").append(jsonString(edge.dependency))
+                    .append(", \"provider\": ").append(edge.provider)
+                    .append('}');
+        }
+        return sb.append("\n  ]\n}\n").toString();
+    }
+
+    /**
+     * Renders the graph as a Graphviz DOT digraph - each node is labelled with its binding key and cost, each edge with
+     * its kind (dashed for a Provider), and the critical path is drawn in red
+     *
+     * @return - the DOT document
+     */
+    public String toDot() {
+        StringBuilder sb = new StringBuilder("digraph novocaine {\n    rankdir=LR;\n    node [shape=box];\n");
+        for (int id = 0; id < nodes.size(); id++) {
+            NodeRecord node = nodes.get(id);
+            String label = node.key + (node.kind.equals("class") ? "" : "\n(" + node.kind + " of " + node.declaringClass + ")")
+                    + (node.nanos < 0 ? "" : String.format(Locale.ROOT, "\n%.3f ms", node.nanos / 1_000_000.0))
+                    + (node.allocatedBytes < 0 ? "" : "\n" + node.allocatedBytes + " bytes");
+            sb.append("    n").append(id).append(" [label=").append(dotString(label))
+                    .append(critical[id] ? ", color=red" : "")
+                    .append(node.instantiated ? "" : ", style=dotted")
+                    .append("];\n");
+        }
+        for (EdgeRecord edge : edges) {
+            sb.append("    n").append(edge.from).append(" -> n").append(edge.to)
+                    .append(" [label=").append(dotString(edge.kind))
+                    .append(edge.provider ? ", style=dashed" : "")
+                    .append(critical[edge.from] && previous[edge.from] == edge.to ? ", color=red" : "")
+                    .append("];\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    private static String jsonString(@Nonnull String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String dotString(@Nonnull String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    /**
+     * @return - the bytes allocated so far by the current thread (or -1 if the JVM does not track them)
+     */
+    static long allocatedBytes() {
+        return Allocation.THREADS != null
+                ? Allocation.THREADS.getThreadAllocatedBytes(Thread.currentThread().getId())
+                : -1;
+    }
+
+    /**
+     * Holds the HotSpot-specific ThreadMXBean - loaded only once a graph is recorded
+     */
+    private static final class Allocation {
+
+        private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+        private static com.sun.management.ThreadMXBean threads() {
+            try {
+                ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+                if (threads instanceof com.sun.management.ThreadMXBean) {
+                    com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+                    if (allocation.isThreadAllocatedMemorySupported()) {
+                        allocation.setThreadAllocatedMemoryEnabled(true);
+                        return allocation;
+                    }
+                }
+            }
+            catch (LinkageError | RuntimeException e) {
+                // not a HotSpot JVM - allocations are not recorded
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A node of the exported graph
+     */
+    static final class NodeRecord {
+
+        final String key;
+        final String kind;
+        final String declaringClass;
+        final int position;
+        final boolean instantiated;
+        final long nanos;
+        final long allocatedBytes;
+
+        NodeRecord(String key, String kind, String declaringClass, int position, boolean instantiated, long nanos, long allocatedBytes) {
+            this.key = key;
+            this.kind = kind;
+            this.declaringClass = declaringClass;
+            this.position = position;
+            this.instantiated = instantiated;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    /**
+     * An edge of the exported graph
+     */
+    static final class EdgeRecord {
+
+        final int from;
+        final int to;
+        final String kind;
+        final String dependency;
+        final boolean provider;
+
+        EdgeRecord(int from, int to, String kind, String dependency, boolean provider) {
+            this.from = from;
+            this.to = to;
+            this.kind = kind;
+            this.dependency = dependency;
+            this.provider = provider;
+        }
+    }
+}
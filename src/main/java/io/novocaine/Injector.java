@@ -0,0 +1,571 @@
+package io.novocaine;
+
+import org.reflections.Reflections;
+
+import javax.annotation.Nonnull;
+import javax.inject.Provider;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Instantiates, injects and holds one set of singletons - every Injector owns its own binding tables, so any number of
+ * isolated injectors (e.g. one per tenant) may be created and injected concurrently within the same JVM
+ *
+ * Usage:
+ *      Injector injector = new Injector();
+ *      injector.inject(tenant, NovocaineConfig.builder().packages("com.acme.tenant").build());
+ *      PaymentService paymentService = injector.get(PaymentService.class);
+ *
+ * The static methods of Novocaine act on a single default Injector. The factories describing how each class is
+ * instantiated and injected (generated or reflective) hold no singletons and are shared by every Injector.
+ *
+ * An injected Injector may create child Injectors (see child()) which bind a few instances of their own - e.g. for one
+ * request or job - and fall through to their parent for everything else.
+ *
+ * Once the singletons are no longer needed, shutdown() invokes their methods marked with @PreDestroy (or close()) in
+ * reverse dependency order.
+ */
+public final class Injector {
+
+    /**
+     * The Injector this child was created from (or null if this Injector is a root)
+     */
+    final Injector parent;
+
+    /**
+     * The root Injector which holds the singletons (this Injector if it is a root)
+     */
+    final Injector root;
+
+    /**
+     * The instances bound to this child by type - replaced by a copy on every bind(), so lookups never lock and an
+     * unbound child shares a single empty map
+     */
+    private volatile Map<Class<?>, Object> bindings = Collections.emptyMap();
+
+    /**
+     * Map containing the class type to the instantiated object for all injectable classes (null for a child)
+     */
+    final Map<Class<?>, Object> injectableProvider;
+    Reflections reflections;
+
+    /**
+     * The binding tables of this injector's @Qualifier, @Named, supplied and unscoped classes (null for a child)
+     */
+    final NovocaineHelper helper;
+
+    /**
+     * The dependency graph - retained after inject() while lazy singletons remain to be instantiated (or null)
+     */
+    volatile DependencyGraph graph;
+
+    /**
+     * The dependency graph - retained after inject() for export if NovocaineConfig.Builder#recordGraph() was set
+     */
+    volatile DependencyGraph recordedGraph;
+
+    /**
+     * Whether inject() has completed - from then on the singletons (and Prototypes) are looked up via handles
+     */
+    volatile boolean injected;
+
+    /**
+     * The future which completes once every singleton marked with @Background has been instantiated (null until
+     * inject() has completed)
+     */
+    private volatile CompletableFuture<Void> warmedUp;
+
+    /**
+     * The singletons to shut down on shutdown() (null until inject() has completed, and once shutdown() has been called)
+     */
+    private Shutdown pendingShutdown;
+
+    /**
+     * The injection points of every singleton by the binding they depend upon (null unless
+     * NovocaineConfig.Builder#rebindable() was set)
+     */
+    private ReverseDependencyIndex reverseDependencies;
+
+    /**
+     * Map containing the class type to the Provider of its singleton (or its Prototype) - computed on the first lookup
+     * of each type after inject() has completed, so later lookups skip the lazy and unscoped checks (null for a child).
+     * Held by this Injector rather than by each class, so that a discarded Injector is garbage collected.
+     */
+    final Map<Class<?>, Provider<?>> handles;
+
+    public Injector() {
+        this.parent = null;
+        this.root = this;
+        this.injectableProvider = new ConcurrentHashMap<>();
+        this.helper = new NovocaineHelper(this);
+        this.handles = new ConcurrentHashMap<>();
+    }
+
+    private Injector(@Nonnull Injector parent) {
+        this.parent = parent;
+        this.root = parent.root;
+        this.injectableProvider = null;
+        this.helper = null;
+        this.handles = null;
+    }
+
+    /**
+     * Creates a child of this Injector - nothing is copied: the child holds only the instances bound to it (see bind())
+     * and looks up everything else through this Injector, so creating one costs a single small object, and a discarded
+     * child (along with everything bound to it) may be garbage collected immediately
+     *
+     * Usage:
+     *      Injector request = injector.child().bind(Request.class, request);
+     *      RequestHandler handler = request.get(RequestHandler.class);
+     *
+     * @return - the child
+     */
+    public Injector child() {
+        return new Injector(this);
+    }
+
+    /**
+     * Binds an instance to its type within this child, overriding any binding of the type in its parents - the
+     * instance is returned by get() and handle() of this child (and its own children), and is injected into the
+     * unqualified fields and parameters of its type of every unscoped class instantiated through them
+     *
+     * Singletons are always instantiated and injected by the root Injector, so they never see a child's bindings.
+     *
+     * @param type - the type to bind
+     * @param instance - the instance to bind it to
+     *
+     * @return - this child
+     */
+    public synchronized <T> Injector bind(Class<T> type, T instance) {
+        if (parent == null) {
+            throw new RuntimeException("Novocaine#bind may only be called on a child Injector: injector.child().bind(type, instance)");
+        }
+        if (type == null || instance == null) {
+            throw new RuntimeException("Novocaine#bind must be passed a valid, non-null type and instance");
+        }
+        Map<Class<?>, Object> copy = new HashMap<>(bindings);
+        copy.put(type, instance);
+        bindings = copy;
+        return this;
+    }
+
+    /**
+     * Instantiates and injects all relevant classes on the classpath
+     *
+     * @param topLevel - the top-level class
+     *
+     * @return - the future which completes once every method marked with @PostConstruct has returned (see
+     * NovocaineConfig.Builder#asyncPostConstruct())
+     */
+    public CompletableFuture<Void> inject(Object topLevel) {
+        return inject(topLevel, NovocaineConfig.builder().packages("").build());
+    }
+
+    /**
+     * Instantiates and injects all relevant classes within the configured packages (by default the supplied object's
+     * package) - may only be called once per Injector
+     *
+     * @param topLevel - the top-level class
+     * @param config - the packages and jars to scan
+     *
+     * @return - the future which completes once every method marked with @PostConstruct has returned - already complete
+     * unless they are invoked asynchronously (see NovocaineConfig.Builder#asyncPostConstruct())
+     */
+    public synchronized CompletableFuture<Void> inject(Object topLevel, NovocaineConfig config) {
+        if (parent != null) {
+            throw new RuntimeException("Novocaine#inject may not be called on a child Injector - only its root is injected");
+        }
+        if (topLevel == null) {
+            throw new RuntimeException("Novocaine#inject must be passed a valid, non-null, instantiated class: Novocaine.inject(this)");
+        }
+        if (injectableProvider.size() != 0) {
+            throw new RuntimeException(("Novocaine#inject may only be called once per Injector"));
+        }
+        if (config == null) {
+            throw new RuntimeException("Novocaine#inject must be passed a valid, non-null config");
+        }
+
+        Set<URL> roots;
+        BindingIndex index;
+        try (NovocaineEvents.Span span = NovocaineEvents.phase("index")) {
+            roots = ClasspathScanner.rootsOf(config, topLevel);
+            index = ClasspathScanner.loadIndex(config, topLevel, roots);
+        }
+        Set<Class<?>> classes;
+        if (index != null) {
+            // binding indexes were generated at compile time - resolve all @Qualifier and @Named annotations of the
+            // jars and directories they describe from them, and only scan those without an index
+            index.getQualifiers().forEach(helper::registerQualifierAnnotation);
+            index.getNamed().forEach((value, namedClasses) ->
+                    namedClasses.forEach(namedClass -> helper.registerNamedAnnotation(value, namedClass)));
+
+            // the top-level class may not have been compiled with the processor
+            classes = new LinkedHashSet<>(index.getClasses());
+            classes.add(topLevel.getClass());
+
+            List<URL> unindexed = roots.stream()
+                    .filter(root -> !index.getRoots().contains(root.toExternalForm()))
+                    .collect(Collectors.toList());
+            if (!unindexed.isEmpty()) {
+                try (NovocaineEvents.Span span = NovocaineEvents.phase("scan")) {
+                    reflections = ClasspathScanner.scan(config, topLevel, unindexed);
+                }
+                if (reflections != null) {
+                    findAnnotations();
+                    classes.addAll(reflections.getSubTypesOf(Object.class));
+                }
+            }
+        }
+        else {
+            // scan only the configured packages of the classpath
+            try (NovocaineEvents.Span span = NovocaineEvents.phase("scan")) {
+                reflections = ClasspathScanner.scan(config, topLevel);
+            }
+            findAnnotations();
+
+            // next retrieve all classes
+            classes = reflections.getSubTypesOf(Object.class);
+        }
+
+        // build the graph of every class and every method annotated with @Singleton (failing on any cyclic dependency)
+        // then instantiate/inject all @Singletons in dependency order - concurrently if an executor was configured
+        // (the graph is published first - a Provider.get() may instantiate singletons before their turn)
+        DependencyGraph dependencyGraph;
+        try (NovocaineEvents.Span span = NovocaineEvents.phase("graph")) {
+            dependencyGraph = DependencyGraph.build(this, classes, index, topLevel, config);
+        }
+        graph = dependencyGraph;
+        if (config.isGraphRecorded()) {
+            recordedGraph = dependencyGraph;
+        }
+        CompletableFuture<Void> ready;
+        try (NovocaineEvents.Span span = NovocaineEvents.phase("instantiate")) {
+            ready = dependencyGraph.instantiate(config.getExecutor());
+        }
+        pendingShutdown = dependencyGraph.shutdown();
+        if (config.isRebindable()) {
+            reverseDependencies = dependencyGraph.reverseDependencies();
+        }
+        if (!dependencyGraph.hasLazyNodes()) {
+            // every singleton has been instantiated - only retain the graph to instantiate lazy singletons on first use
+            graph = null;
+        }
+
+        // finally, store the top-level class
+        injectableProvider.put(topLevel.getClass(), topLevel);
+        injected = true;
+
+        // now that inject() is about to return, instantiate the singletons marked with @Background
+        warmedUp = dependencyGraph.warmUp();
+        return ready;
+    }
+
+    /**
+     * Finds and resolves all @Qualifier and @Named annotations of the scanned classes
+     */
+    private void findAnnotations() {
+        try (NovocaineEvents.Span span = NovocaineEvents.phase("findQualifierAnnotations")) {
+            helper.findQualifierAnnotations();
+        }
+        try (NovocaineEvents.Span span = NovocaineEvents.phase("findNamedAnnotations")) {
+            helper.findNamedAnnotations();
+        }
+    }
+
+    /**
+     * Replaces the singleton of the supplied type (e.g. a reloaded configuration object, or a feature-flagged
+     * implementation) and re-injects only the singletons which depend upon it, directly or transitively, in dependency
+     * order - without rebuilding the dependency graph. Requires NovocaineConfig.Builder#rebindable().
+     *
+     * Fields and methods marked with @Inject which depend upon the singleton are re-injected in place. A singleton whose
+     * constructor depends upon it is constructed anew (and its @PostConstruct methods invoked), which in turn re-injects
+     * the singletons depending upon that one; the singleton replaced is not shut down. Unscoped and scoped classes
+     * depending upon it are injected with the new singleton from then on.
+     *
+     * Handles retrieved before the rebind, and Providers which have already returned the singleton, keep returning the
+     * singleton they returned before. Rebinding is not atomic with respect to other threads using the dependents.
+     *
+     * @param type - the class of the singleton to replace (or the unqualified type a method marked with @Singleton
+     *               supplies)
+     * @param instance - the singleton replacing it
+     */
+    public <T> void rebind(Class<T> type, T instance) {
+        if (type == null) {
+            throw new RuntimeException("Novocaine#rebind must be passed a valid, non-null type and instance");
+        }
+        rebind(type, BindingKey.of(type), instance);
+    }
+
+    /**
+     * Replaces the singleton injected into the fields and parameters of the supplied type marked with the supplied
+     * @Qualifier-associated annotation - see rebind(Class, Object). Fields and parameters declaring the class it was
+     * resolved to before (and every other qualifier) are left injected with that class's singleton.
+     *
+     * Usage: injector.rebind(Payment.class, CreditPayment.class, new StripePayment())
+     *
+     * @param type - the type of the fields and parameters, e.g. an interface
+     * @param qualifier - the @Qualifier-associated annotation they are marked with
+     * @param instance - the singleton replacing it
+     */
+    public <T> void rebind(Class<T> type, Class<? extends Annotation> qualifier, T instance) {
+        if (type == null || qualifier == null) {
+            throw new RuntimeException("Novocaine#rebind must be passed a valid, non-null type, qualifier and instance");
+        }
+        rebind(type, BindingKey.of(type, qualifier), instance);
+    }
+
+    /**
+     * Replaces the singleton injected into the fields and parameters marked with the supplied @Named value - see
+     * rebind(Class, Object)
+     *
+     * Usage: injector.rebind(Payment.class, "debit", new StripePayment())
+     *
+     * @param type - the type of the fields and parameters, e.g. an interface (the singleton currently bound to the name
+     *               must be of this type)
+     * @param named - the @Named value they are marked with
+     * @param instance - the singleton replacing it
+     */
+    public <T> void rebind(Class<T> type, String named, T instance) {
+        if (type == null || named == null) {
+            throw new RuntimeException("Novocaine#rebind must be passed a valid, non-null type, name and instance");
+        }
+        rebind(type, BindingKey.named(named), instance);
+    }
+
+    private synchronized void rebind(@Nonnull Class<?> type, @Nonnull BindingKey binding, Object instance) {
+        if (parent != null) {
+            throw new RuntimeException("Novocaine#rebind may not be called on a child Injector - use bind() to override a binding within a child");
+        }
+        if (instance == null) {
+            throw new RuntimeException("Novocaine#rebind must be passed a valid, non-null type and instance");
+        }
+        if (!injected) {
+            throw new RuntimeException("Novocaine#rebind may only be called once Novocaine#inject has completed");
+        }
+        if (reverseDependencies == null) {
+            throw new RuntimeException("Novocaine#rebind requires NovocaineConfig.Builder#rebindable()");
+        }
+        Object current = helper.instantiated(binding);
+        if (current == null) {
+            throw new RuntimeException("Novocaine#rebind may only replace a singleton which has been instantiated: " + binding);
+        }
+        if (!type.isInstance(current)) {
+            throw new RuntimeException("Novocaine#rebind may only replace " + binding + " with the type it is bound to ("
+                    + current.getClass().getName() + "), not: " + type.getName());
+        }
+        reverseDependencies.rebind(binding, instance);
+    }
+
+    /**
+     * Shuts down every singleton on the calling thread - see shutdown(Executor, long, TimeUnit)
+     */
+    public synchronized void shutdown() {
+        beginShutdown().run();
+    }
+
+    /**
+     * Shuts down every singleton which has a method marked with @PreDestroy (javax.annotation or jakarta.annotation) or
+     * implements AutoCloseable - invoking its @PreDestroy methods, or otherwise its close() - in reverse dependency
+     * order: no singleton is shut down until every singleton depending upon it has been. Independent singletons are
+     * shut down concurrently on the supplied executor, and each is waited upon for at most the supplied timeout, after
+     * which the singletons it depends upon are shut down regardless - so the whole shutdown is bounded by the timeout
+     * times the length of the longest chain of singletons to shut down.
+     *
+     * Objects supplied by methods marked with @Singleton are closed if they implement AutoCloseable. Unscoped and
+     * scoped instances, lazy singletons which were never instantiated, and the top-level class are not shut down.
+     *
+     * Every singleton is shut down even if others fail - once all have completed (or timed out), the failures are
+     * thrown together. May only be called once, after inject().
+     *
+     * @param executor - the executor on which to shut down the singletons (not shut down by Novocaine)
+     * @param timeout - the longest time to wait for any single singleton
+     * @param unit - the unit of the timeout
+     */
+    public synchronized void shutdown(@Nonnull Executor executor, long timeout, @Nonnull TimeUnit unit) {
+        if (executor == null || unit == null || timeout <= 0) {
+            throw new RuntimeException("Novocaine#shutdown must be passed a valid, non-null executor and a positive timeout");
+        }
+        beginShutdown().run(executor, timeout, unit);
+    }
+
+    /**
+     * @return - the singletons to shut down, which are no longer pending
+     */
+    private Shutdown beginShutdown() {
+        if (parent != null) {
+            throw new RuntimeException("Novocaine#shutdown may not be called on a child Injector - only its root is shut down");
+        }
+        if (!injected) {
+            throw new RuntimeException("Novocaine#shutdown may only be called once Novocaine#inject has completed");
+        }
+        if (pendingShutdown == null) {
+            throw new RuntimeException("Novocaine#shutdown may only be called once per Injector");
+        }
+        Shutdown shutdown = pendingShutdown;
+        pendingShutdown = null;
+        return shutdown;
+    }
+
+    /**
+     * Retrieves the singleton associated with the supplied class type from the classes which have been instantiated
+     * by this injector
+     *
+     * Lazy singletons (see @Lazy and NovocaineConfig.Builder#lazy()) are instantiated on the first call for their type,
+     * and unscoped classes (see NovocaineConfig.Builder#unscopedAsPrototype()) are instantiated on every call. A
+     * background singleton (see @Background) not yet instantiated by the background thread is instantiated by the call.
+     * Either way a singleton is only returned once it has been injected and its methods marked with @PostConstruct have
+     * returned - a call racing the thread instantiating it waits for that thread.
+     *
+     * A child returns the instance bound to the type by itself or its nearest parent, and otherwise the root's singleton
+     *
+     * @param clazz - the type of class to retrieve
+     *
+     * @return - the singleton which was instantiated by this injector (or null)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Class<T> clazz) {
+        if (clazz == null) {
+            return null;
+        }
+        if (parent != null) {
+            Object bound = bound(clazz);
+            if (bound != null) {
+                return (T) bound;
+            }
+            // unscoped classes are instantiated with the bindings of this child
+            Provider<?> prototype = root.helper.prototypes.get(clazz);
+            if (prototype instanceof Prototype) {
+                return (T) ((Prototype<?>) prototype).get(this);
+            }
+            return root.get(clazz);
+        }
+        if (injected) {
+            return (T) handleOf(clazz).get();
+        }
+        return (T) lookup(clazz);
+    }
+
+    /**
+     * Retrieves a handle to the singleton associated with the supplied class type - obtain the handle once (e.g. into a
+     * final field) and call get() on hot paths: for a singleton, get() is a read of a final field
+     *
+     * A lazy singleton is instantiated when its handle is retrieved, and the handle of an unscoped class instantiates
+     * a new instance on every get()
+     *
+     * @param clazz - the type of class to retrieve
+     *
+     * @return - the handle (whose get() returns null if this injector has not instantiated the type)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Provider<T> handle(Class<T> clazz) {
+        if (clazz == null) {
+            throw new RuntimeException("Novocaine#handle must be passed a valid, non-null class");
+        }
+        if (!root.injected) {
+            throw new RuntimeException("Novocaine#handle may only be called once Novocaine#inject has completed");
+        }
+        if (parent != null) {
+            Object bound = bound(clazz);
+            if (bound != null) {
+                return new SingletonHandle<>((T) bound);
+            }
+            Provider<?> prototype = root.helper.prototypes.get(clazz);
+            if (prototype instanceof Prototype) {
+                return () -> (T) ((Prototype<?>) prototype).get(this);
+            }
+        }
+        return (Provider<T>) root.handleOf(clazz);
+    }
+
+    /**
+     * @return - the Provider of the supplied type's singleton (or its Prototype), computed on its first lookup
+     */
+    private Provider<?> handleOf(@Nonnull Class<?> clazz) {
+        Provider<?> handle = handles.get(clazz);
+        if (handle == null) {
+            // not computeIfAbsent() - looking up a lazy singleton may look up the handles of its dependencies
+            Provider<?> prototype = helper.prototypes.get(clazz);
+            handle = prototype != null ? prototype : new SingletonHandle<>(lookup(clazz));
+            Provider<?> raced = handles.putIfAbsent(clazz, handle);
+            if (raced != null) {
+                handle = raced;
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * Retrieves the future of the background warm-up - a singleton marked with @Background which fails to instantiate
+     * on the background thread is left to be instantiated by its first get(), so its failure is only reported here
+     *
+     * Usage: injector.warmedUp().exceptionally(e -> { log.warn("Warm-up failed", e); return null; })
+     *
+     * @return - the future which completes once every singleton marked with @Background has been instantiated -
+     * exceptionally if any of them failed
+     */
+    public CompletableFuture<Void> warmedUp() {
+        if (parent != null) {
+            return root.warmedUp();
+        }
+        CompletableFuture<Void> future = warmedUp;
+        if (future == null) {
+            throw new RuntimeException("Novocaine#warmedUp may only be called once Novocaine#inject has completed");
+        }
+        return future;
+    }
+
+    /**
+     * Exports the dependency graph of inject() - every binding with the time and memory spent instantiating it, every
+     * injection point between bindings and the critical path (see GraphExport)
+     *
+     * @return - the snapshot of the graph (or null if NovocaineConfig.Builder#recordGraph() was not set)
+     */
+    public GraphExport exportGraph() {
+        DependencyGraph recorded = root.recordedGraph;
+        return recorded != null ? recorded.export() : null;
+    }
+
+    /**
+     * @return - the instance bound to the supplied type by this child or its nearest parent (or null)
+     */
+    Object bound(@Nonnull Class<?> type) {
+        for (Injector injector = this; injector.parent != null; injector = injector.parent) {
+            Object instance = injector.bindings.get(type);
+            if (instance != null) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up the singleton (or constructs a new instance of the unscoped class) of the supplied type
+     */
+    private Object lookup(Class<?> clazz) {
+        if (!helper.prototypes.isEmpty() && !injectableProvider.containsKey(clazz)) {
+            // unscoped classes are constructed anew on every call
+            Provider<?> prototype = helper.prototypes.get(clazz);
+            if (prototype != null) {
+                return prototype.get();
+            }
+        }
+        DependencyGraph lazyGraph = graph;
+        if (lazyGraph != null) {
+            // this may be a lazy or background singleton - which is stored as soon as it is constructed, so it is only
+            // read once its node has been run (waiting for any thread which is running it to finish injecting it)
+            return lazyGraph.instantiateLazily(clazz);
+        }
+        return injectableProvider.get(clazz);
+    }
+}
@@ -0,0 +1,25 @@
+package io.novocaine;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose singleton should not be instantiated by Novocaine.inject() unless another (eagerly instantiated)
+ * class depends upon it - otherwise it is instantiated, along with any of its dependencies, on the first call to
+ * Novocaine.get() for its type
+ *
+ * Usage:
+ *      \@Lazy
+ *      \@Singleton
+ *      public class ReportGenerator { ... }
+ *
+ * To make every singleton lazy, use NovocaineConfig.builder().lazy() instead
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Lazy {
+}
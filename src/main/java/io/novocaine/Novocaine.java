@@ -1,13 +1,10 @@
 package io.novocaine;
 
-import org.reflections.Reflections;
-import org.reflections.scanners.SubTypesScanner;
-import org.reflections.scanners.TypeAnnotationsScanner;
-
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import javax.inject.Provider;
+import java.lang.annotation.Annotation;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides full functionality of the native javax.inject annotations
@@ -15,7 +12,10 @@ import java.util.concurrent.ConcurrentHashMap;
  * Supported Annotations:
  *      \@Inject
  *      \@Named
+ *      \@PostConstruct (javax.annotation or jakarta.annotation)
+ *      \@PreDestroy (javax.annotation or jakarta.annotation)
  *      \@Qualifier
+ *      \@Scope (see NovocaineScope)
  *      \@Singleton
  *
  * Supported Injection Strategies:
@@ -23,64 +23,182 @@ import java.util.concurrent.ConcurrentHashMap;
  *      Field
  *      Setter
  *
+ * Classes compiled with the novocaine-processor annotation processor are instantiated and injected through their
+ * generated NovocaineFactory - all other classes are instantiated and injected via reflection
+ *
+ * The static methods act on a single default Injector - create further Injectors for isolated sets of singletons
+ *
  *
  *  View README.md for usage and examples
  */
 public class Novocaine {
 
     /**
-     * Map containing the class type to the instantiated object for all injectable classes
+     * The Injector behind the static methods
      */
-    static Map<Class<?>, Object> injectableProvider = new ConcurrentHashMap<>();
-    static Reflections reflections;
+    static final Injector defaultInjector = new Injector();
 
     /**
-     * Instantiates and injects all relevant classes within the supplied object's package
+     * Instantiates and injects all relevant classes on the classpath
      *
      * Usage: Novocaine.inject(this)
      *
      * @param topLevel - the top-level class
+     *
+     * @return - the future which completes once every method marked with @PostConstruct has returned
+     */
+    public static CompletableFuture<Void> inject(Object topLevel) {
+        return defaultInjector.inject(topLevel);
+    }
+
+    /**
+     * Instantiates and injects all relevant classes within the configured packages (by default the supplied object's
+     * package)
+     *
+     * Usage: Novocaine.inject(this, NovocaineConfig.builder().packages("com.acme").build())
+     *
+     * @param topLevel - the top-level class
+     * @param config - the packages and jars to scan
+     *
+     * @return - the future which completes once every method marked with @PostConstruct has returned - already complete
+     * unless they are invoked asynchronously (see NovocaineConfig.Builder#asyncPostConstruct())
      */
-    public static void inject(Object topLevel) {
-        if (topLevel == null) {
-            throw new RuntimeException("Novocaine#inject must be passed a valid, non-null, instantiated class: Novocaine.inject(this)");
-        }
-        if (injectableProvider.size() != 0) {
-            throw new RuntimeException(("Novocaine#inject may only be called once"));
-        }
+    public static CompletableFuture<Void> inject(Object topLevel, NovocaineConfig config) {
+        return defaultInjector.inject(topLevel, config);
+    }
 
-        reflections = new Reflections("", new SubTypesScanner(false), new TypeAnnotationsScanner());
+    /**
+     * Retrieves the singleton associated with the supplied class type from the classes which have been instantiated by Novocaine
+     *
+     * Lazy singletons (see @Lazy and NovocaineConfig.Builder#lazy()) are instantiated on the first call for their type,
+     * and unscoped classes (see NovocaineConfig.Builder#unscopedAsPrototype()) are instantiated on every call. A
+     * background singleton (see @Background) not yet instantiated by the background thread is instantiated by the call.
+     *
+     * @param clazz - the type of class to retrieve
+     *
+     * @return - the singleton which was instantiated by Novocaine (or null)
+     */
+    public static <T> T get(Class<T> clazz) {
+        return defaultInjector.get(clazz);
+    }
+
+    /**
+     * Retrieves a handle to the singleton associated with the supplied class type - obtain the handle once (e.g. into a
+     * static final field) and call get() on hot paths: for a singleton, get() is a read of a final field
+     *
+     * A lazy singleton is instantiated when its handle is retrieved, and the handle of an unscoped class instantiates
+     * a new instance on every get()
+     *
+     * Usage: private static final Provider<PaymentService> PAYMENT_SERVICE = Novocaine.handle(PaymentService.class);
+     *
+     * @param clazz - the type of class to retrieve
+     *
+     * @return - the handle (whose get() returns null if Novocaine has not instantiated the type)
+     */
+    public static <T> Provider<T> handle(Class<T> clazz) {
+        return defaultInjector.handle(clazz);
+    }
+
+    /**
+     * Creates a child of the default Injector, which binds instances of its own and falls through to the default
+     * Injector for everything else (see Injector#child())
+     *
+     * Usage: Novocaine.child().bind(Request.class, request).get(RequestHandler.class)
+     *
+     * @return - the child
+     */
+    public static Injector child() {
+        return defaultInjector.child();
+    }
 
-        // find and resolve all @Qualifier and @Named annotations
-        NovocaineHelper.findQualifierAnnotations();
-        NovocaineHelper.findNamedAnnotations();
+    /**
+     * Replaces the singleton of the supplied type and re-injects only the singletons which depend upon it, directly or
+     * transitively (requires NovocaineConfig.Builder#rebindable())
+     *
+     * Usage: Novocaine.rebind(PaymentConfig.class, PaymentConfig.load())
+     *
+     * @param type - the class of the singleton to replace (or the unqualified type a method marked with @Singleton
+     *               supplies)
+     * @param instance - the singleton replacing it
+     */
+    public static <T> void rebind(Class<T> type, T instance) {
+        defaultInjector.rebind(type, instance);
+    }
 
-        // next retrieve all classes
-        Set<Class<?>> classes = reflections.getSubTypesOf(Object.class);
+    /**
+     * Replaces the singleton injected into the fields and parameters of the supplied type marked with the supplied
+     * @Qualifier-associated annotation (requires NovocaineConfig.Builder#rebindable())
+     *
+     * Usage: Novocaine.rebind(PaymentProcessor.class, Primary.class, new StripePaymentProcessor())
+     *
+     * @param type - the type of the fields and parameters, e.g. an interface
+     * @param qualifier - the @Qualifier-associated annotation they are marked with
+     * @param instance - the singleton replacing it
+     */
+    public static <T> void rebind(Class<T> type, Class<? extends Annotation> qualifier, T instance) {
+        defaultInjector.rebind(type, qualifier, instance);
+    }
 
-        // "seen" will represent classes we have already instantiated during a recursive call - if we come across an
-        // already seen class, then we know there's a cyclic dependency and we must throw an exception
-        Set<Class<?>> seen = new HashSet<>();
+    /**
+     * Replaces the singleton injected into the fields and parameters marked with the supplied @Named value (requires
+     * NovocaineConfig.Builder#rebindable())
+     *
+     * Usage: Novocaine.rebind(PaymentProcessor.class, "primary", new StripePaymentProcessor())
+     *
+     * @param type - the type of the fields and parameters, e.g. an interface (the singleton currently bound to the name
+     *               must be of this type)
+     * @param named - the @Named value they are marked with
+     * @param instance - the singleton replacing it
+     */
+    public static <T> void rebind(Class<T> type, String named, T instance) {
+        defaultInjector.rebind(type, named, instance);
+    }
 
-        // iterate over each method annotated with @Singleton in each class and invoke the method to instantiate the provided classes
-        classes.forEach(clazz -> NovocaineHelper.instantiateSuppliedClasses(clazz, seen, topLevel));
+    /**
+     * Shuts down every singleton on the calling thread, in reverse dependency order
+     *
+     * Usage: Runtime.getRuntime().addShutdownHook(new Thread(Novocaine::shutdown))
+     */
+    public static void shutdown() {
+        defaultInjector.shutdown();
+    }
 
-        // iterate over each class, check for cyclic dependencies, and instantiate/inject all @Singletons
-        classes.forEach(clazz -> NovocaineHelper.checkCyclicDependenciesAndInject(clazz, seen, topLevel));
+    /**
+     * Shuts down every singleton which has a method marked with @PreDestroy or implements AutoCloseable, in reverse
+     * dependency order - independent singletons concurrently on the supplied executor, each waited upon for at most the
+     * supplied timeout
+     *
+     * Usage: Novocaine.shutdown(executor, 5, TimeUnit.SECONDS)
+     *
+     * @param executor - the executor on which to shut down the singletons
+     * @param timeout - the longest time to wait for any single singleton
+     * @param unit - the unit of the timeout
+     */
+    public static void shutdown(Executor executor, long timeout, TimeUnit unit) {
+        defaultInjector.shutdown(executor, timeout, unit);
+    }
 
-        // finally, store the top-level class
-        injectableProvider.put(topLevel.getClass(), topLevel);
+    /**
+     * Retrieves the future of the background warm-up of every singleton marked with @Background (see Background)
+     *
+     * Usage: Novocaine.warmedUp().exceptionally(e -> { log.warn("Warm-up failed", e); return null; })
+     *
+     * @return - the future which completes once every singleton marked with @Background has been instantiated -
+     * exceptionally if any of them failed
+     */
+    public static CompletableFuture<Void> warmedUp() {
+        return defaultInjector.warmedUp();
     }
 
     /**
-     * Retrieves the singleton associated with the supplied class type from the classes which have been instantiated by Novocaine
+     * Exports the dependency graph of Novocaine.inject() - every binding with the time and memory spent instantiating
+     * it, every injection point between bindings and the critical path (see GraphExport)
      *
-     * @param clazz - the type of class to retrieve
+     * Usage: Files.write(Paths.get("novocaine.dot"), Novocaine.exportGraph().toDot().getBytes(UTF_8))
      *
-     * @return - the singleton which was instantiated by Novocaine (or null)
+     * @return - the snapshot of the graph (or null if NovocaineConfig.Builder#recordGraph() was not set)
      */
-    @SuppressWarnings("unchecked")
-    public static <T> T get(Class<T> clazz) {
-        return clazz != null ? (T) injectableProvider.get(clazz) : null;
+    public static GraphExport exportGraph() {
+        return defaultInjector.exportGraph();
     }
 }
@@ -0,0 +1,405 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Scope;
+import javax.inject.Singleton;
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Configures how Novocaine.inject() locates the classes to instantiate and inject
+ *
+ * Usage:
+ *      Novocaine.inject(this, NovocaineConfig.builder()
+ *              .packages("com.acme.server", "com.acme.payment")
+ *              .excludePackages("com.acme.server.generated")
+ *              .excludeJars("netty-", "jackson-")
+ *              .scanParallelism(8)
+ *              .executor(ForkJoinPool.commonPool())
+ *              .build());
+ *
+ * If no packages are supplied, only the package of the top-level class (and its sub-packages) is scanned. Supply the
+ * empty package ("") to scan every class on the classpath.
+ *
+ * When binding indexes generated by the novocaine-processor module are present on the classpath, the same packages are
+ * read from the indexes instead - only the jars and directories without an index are scanned.
+ *
+ * Otherwise the jars and directories of the classpath are scanned concurrently on a fork-join pool with one thread
+ * per available processor (see scanParallelism()).
+ *
+ * Singletons are instantiated on the calling thread unless an executor is supplied, in which case every singleton is
+ * instantiated as soon as all of its dependencies have been - independent singletons are instantiated concurrently.
+ *
+ * In lazy mode only the singletons reachable from the top-level class are instantiated by Novocaine.inject() - all
+ * others are instantiated on the first call to Novocaine.get() for their type (see also @Lazy).
+ *
+ * Singletons marked with @Background (or passed to background()) are instantiated on a low-priority background thread
+ * once Novocaine.inject() has returned, unless an eagerly instantiated singleton depends upon them.
+ *
+ * By default every injectable class is instantiated once. With unscopedAsPrototype(), classes not marked with
+ * @Singleton are instead constructed anew for every injection point, Provider.get() and Novocaine.get().
+ *
+ * Classes marked with any other scope annotation are instantiated by the NovocaineScope registered for it (see
+ * scope()) - @ThreadScoped and @RequestScoped are registered by default.
+ *
+ * Methods marked with @PostConstruct are invoked as soon as each singleton has been injected, within
+ * Novocaine.inject() - with asyncPostConstruct() they are instead invoked concurrently on an executor, and
+ * Novocaine.inject() returns a future which completes once they all have returned.
+ *
+ * With rebindable(), the reverse of the dependency graph is retained so that singletons may be replaced at runtime
+ * (see Injector#rebind()).
+ *
+ * With recordGraph(), the dependency graph along with the time and memory spent on each node is retained for export
+ * as JSON or Graphviz DOT (see Novocaine.exportGraph()).
+ */
+public final class NovocaineConfig {
+
+    private final Set<String> packages;
+    private final Set<String> excludedPackages;
+    private final Set<String> excludedJars;
+    private final boolean bindingIndexIgnored;
+    private final int scanParallelism;
+    private final Executor executor;
+    private final boolean lazy;
+    private final boolean unscopedAsPrototype;
+    private final boolean graphRecorded;
+    private final Map<Class<? extends Annotation>, NovocaineScope> scopes;
+    private final Executor postConstructExecutor;
+    private final Set<Class<?>> backgroundClasses;
+    private final Executor backgroundExecutor;
+    private final boolean rebindable;
+
+    private NovocaineConfig(@Nonnull Builder builder) {
+        this.packages = Collections.unmodifiableSet(new LinkedHashSet<>(builder.packages));
+        this.excludedPackages = Collections.unmodifiableSet(new LinkedHashSet<>(builder.excludedPackages));
+        this.excludedJars = Collections.unmodifiableSet(new LinkedHashSet<>(builder.excludedJars));
+        this.bindingIndexIgnored = builder.bindingIndexIgnored;
+        this.scanParallelism = builder.scanParallelism;
+        this.executor = builder.executor;
+        this.lazy = builder.lazy;
+        this.unscopedAsPrototype = builder.unscopedAsPrototype;
+        this.graphRecorded = builder.graphRecorded;
+        this.scopes = Collections.unmodifiableMap(new LinkedHashMap<>(builder.scopes));
+        this.postConstructExecutor = builder.postConstructExecutor;
+        this.backgroundClasses = Collections.unmodifiableSet(new LinkedHashSet<>(builder.backgroundClasses));
+        this.backgroundExecutor = builder.backgroundExecutor;
+        this.rebindable = builder.rebindable;
+    }
+
+    /**
+     * @return - a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return - the package prefixes to scan (if empty, the package of the top-level class is scanned)
+     */
+    public Set<String> getPackages() {
+        return packages;
+    }
+
+    /**
+     * @return - the package prefixes to exclude from scanning
+     */
+    public Set<String> getExcludedPackages() {
+        return excludedPackages;
+    }
+
+    /**
+     * @return - the jar file name prefixes to exclude from scanning
+     */
+    public Set<String> getExcludedJars() {
+        return excludedJars;
+    }
+
+    /**
+     * @return - true if the classpath should be scanned even when binding indexes are present
+     */
+    public boolean isBindingIndexIgnored() {
+        return bindingIndexIgnored;
+    }
+
+    /**
+     * @return - the maximum number of classpath entries scanned concurrently
+     */
+    public int getScanParallelism() {
+        return scanParallelism;
+    }
+
+    /**
+     * @return - the executor on which singletons are instantiated (or null to instantiate them on the calling thread)
+     */
+    @Nullable
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return - true if only the singletons reachable from the top-level class are instantiated by Novocaine.inject()
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * @return - true if classes not marked with @Singleton are constructed anew for every injection point
+     */
+    public boolean isUnscopedAsPrototype() {
+        return unscopedAsPrototype;
+    }
+
+    /**
+     * @return - true if the dependency graph and the cost of each node are retained for Novocaine.exportGraph()
+     */
+    public boolean isGraphRecorded() {
+        return graphRecorded;
+    }
+
+    /**
+     * @return - the scope annotations (other than @Singleton) to the NovocaineScope which implements each
+     */
+    public Map<Class<? extends Annotation>, NovocaineScope> getScopes() {
+        return scopes;
+    }
+
+    /**
+     * @return - the executor on which the methods marked with @PostConstruct of eager singletons are invoked (or null to
+     * invoke them within Novocaine.inject())
+     */
+    @Nullable
+    public Executor getPostConstructExecutor() {
+        return postConstructExecutor;
+    }
+
+    /**
+     * @return - the classes instantiated in the background as if marked with @Background
+     */
+    public Set<Class<?>> getBackgroundClasses() {
+        return backgroundClasses;
+    }
+
+    /**
+     * @return - the executor on which background singletons are instantiated (or null to instantiate them on a single
+     * low-priority daemon thread)
+     */
+    @Nullable
+    public Executor getBackgroundExecutor() {
+        return backgroundExecutor;
+    }
+
+    /**
+     * @return - true if singletons may be replaced at runtime via Injector#rebind()
+     */
+    public boolean isRebindable() {
+        return rebindable;
+    }
+
+    public static final class Builder {
+
+        private final Set<String> packages = new LinkedHashSet<>();
+        private final Set<String> excludedPackages = new LinkedHashSet<>();
+        private final Set<String> excludedJars = new LinkedHashSet<>();
+        private boolean bindingIndexIgnored;
+        private int scanParallelism = Runtime.getRuntime().availableProcessors();
+        private Executor executor;
+        private boolean lazy;
+        private boolean unscopedAsPrototype;
+        private boolean graphRecorded;
+        private final Map<Class<? extends Annotation>, NovocaineScope> scopes = new LinkedHashMap<>();
+        private Executor postConstructExecutor;
+        private final Set<Class<?>> backgroundClasses = new LinkedHashSet<>();
+        private Executor backgroundExecutor;
+        private boolean rebindable;
+
+        private Builder() {
+            scopes.put(ThreadScoped.class, new ThreadScope());
+            scopes.put(RequestScoped.class, RequestScope.REQUEST);
+        }
+
+        /**
+         * Restricts scanning to the supplied package prefixes
+         *
+         * @param packages - the package prefixes to scan, e.g. "com.acme"
+         */
+        public Builder packages(@Nonnull String... packages) {
+            this.packages.addAll(Arrays.asList(packages));
+            return this;
+        }
+
+        /**
+         * Excludes the supplied package prefixes from scanning
+         *
+         * @param packages - the package prefixes to exclude, e.g. "com.acme.generated"
+         */
+        public Builder excludePackages(@Nonnull String... packages) {
+            this.excludedPackages.addAll(Arrays.asList(packages));
+            return this;
+        }
+
+        /**
+         * Excludes the jars (or classpath directories) whose file names start with any of the supplied prefixes from
+         * scanning
+         *
+         * @param jars - the jar file name prefixes to exclude, e.g. "netty-"
+         */
+        public Builder excludeJars(@Nonnull String... jars) {
+            this.excludedJars.addAll(Arrays.asList(jars));
+            return this;
+        }
+
+        /**
+         * Scans the classpath even when binding indexes (META-INF/novocaine/bindings.idx) are present - use when some
+         * injectable classes were compiled without the novocaine-processor module into a jar or directory which has an
+         * index
+         */
+        public Builder ignoreBindingIndex() {
+            this.bindingIndexIgnored = true;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of jars and directories scanned concurrently (defaults to the number of available
+         * processors)
+         *
+         * @param parallelism - the parallelism of the scanning fork-join pool, 1 scans on the calling thread
+         */
+        public Builder scanParallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new RuntimeException("NovocaineConfig scanParallelism must be at least 1, was: " + parallelism);
+            }
+            this.scanParallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Instantiates independent singletons concurrently on the supplied executor - each singleton is instantiated as
+         * soon as all of its dependencies have been. The executor is not shut down by Novocaine.
+         *
+         * @param executor - the executor on which to instantiate singletons
+         */
+        public Builder executor(@Nonnull Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Instantiates independent singletons concurrently, each on its own virtual thread (requires Java 21 or newer)
+         */
+        public Builder virtualThreads() {
+            try {
+                this.executor = (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            }
+            catch (ReflectiveOperationException e) {
+                throw new RuntimeException("NovocaineConfig virtualThreads requires Java 21 or newer", e);
+            }
+            return this;
+        }
+
+        /**
+         * Only instantiates the singletons reachable from the top-level class in Novocaine.inject() - every other
+         * singleton is instantiated on the first call to Novocaine.get() for its type
+         */
+        public Builder lazy() {
+            this.lazy = true;
+            return this;
+        }
+
+        /**
+         * Constructs a new instance of every class not marked with @Singleton for each field or parameter it is
+         * injected into, and on each Provider.get() or Novocaine.get() of it - rather than a single shared instance.
+         * Classes supplying or supplied by methods marked with @Singleton remain singletons.
+         */
+        public Builder unscopedAsPrototype() {
+            this.unscopedAsPrototype = true;
+            return this;
+        }
+
+        /**
+         * Records the wall-clock time and the bytes allocated while instantiating each singleton and retains the
+         * dependency graph, so that it can be exported as JSON or Graphviz DOT via Novocaine.exportGraph()
+         */
+        public Builder recordGraph() {
+            this.graphRecorded = true;
+            return this;
+        }
+
+        /**
+         * Instantiates classes marked with the supplied scope annotation through the supplied scope - replacing any
+         * scope already registered for the annotation
+         *
+         * @param annotation - the scope annotation (marked with @javax.inject.Scope), e.g. JobScoped.class
+         * @param scope - the scope, e.g. new RequestScope("job")
+         */
+        public Builder scope(@Nonnull Class<? extends Annotation> annotation, @Nonnull NovocaineScope scope) {
+            if (annotation.getAnnotation(Scope.class) == null) {
+                throw new RuntimeException("NovocaineConfig scope must be passed an annotation marked with @Scope, was: " + annotation.getName());
+            }
+            if (annotation == Singleton.class) {
+                throw new RuntimeException("NovocaineConfig scope cannot replace the scope of @Singleton");
+            }
+            this.scopes.put(annotation, scope);
+            return this;
+        }
+
+        /**
+         * Invokes the methods marked with @PostConstruct of every eagerly instantiated singleton on the supplied
+         * executor rather than within Novocaine.inject() - each as soon as those of every singleton it depends upon
+         * have returned, so independent ones run concurrently. Novocaine.inject() returns once every singleton has been
+         * injected, with a future which completes when every method has returned. The executor is not shut down by
+         * Novocaine.
+         *
+         * @param executor - the executor on which to invoke the methods marked with @PostConstruct
+         */
+        public Builder asyncPostConstruct(@Nonnull Executor executor) {
+            this.postConstructExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Instantiates the singletons of the supplied classes in the background once Novocaine.inject() has returned,
+         * as if they were marked with @Background
+         *
+         * @param classes - the classes to instantiate in the background
+         */
+        public Builder background(@Nonnull Class<?>... classes) {
+            this.backgroundClasses.addAll(Arrays.asList(classes));
+            return this;
+        }
+
+        /**
+         * Instantiates the singletons marked with @Background on the supplied executor (each along with its
+         * dependencies, in dependency order) rather than on a single low-priority daemon thread. The executor is not
+         * shut down by Novocaine.
+         *
+         * @param executor - the executor on which to instantiate background singletons
+         */
+        public Builder backgroundExecutor(@Nonnull Executor executor) {
+            this.backgroundExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Retains every injection point of the dependency graph, indexed by the binding it depends upon, so that a
+         * singleton may be replaced at runtime via Novocaine.rebind() - which then revisits only the singletons which
+         * depend upon it
+         */
+        public Builder rebindable() {
+            this.rebindable = true;
+            return this;
+        }
+
+        public NovocaineConfig build() {
+            return new NovocaineConfig(this);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package io.novocaine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Emits Java Flight Recorder events for each phase of Novocaine.inject() - so that a slow startup can be correlated
+ * with GC, class loading and I/O in the same recording:
+ *
+ *      io.novocaine.Phase          - scan, findQualifierAnnotations, findNamedAnnotations, index, graph, instantiate
+ *      io.novocaine.Construction   - the invocation of a singleton's constructor
+ *      io.novocaine.Injection      - the setting of a field or the invocation of a method marked with @Inject
+ *      io.novocaine.Supplier       - the invocation of a method marked with @Singleton
+ *      io.novocaine.Reflection     - the walk of a class's members, for a class without a generated factory
+ *
+ * Each event carries the binding key it concerns along with its duration. Unless a recording is running (or the JVM
+ * has no jdk.jfr module at all) every span is a shared no-op, so instrumented code pays a single volatile read.
+ *
+ * Usage:
+ *      try (NovocaineEvents.Span span = NovocaineEvents.phase("scan")) {
+ *          ...
+ *      }
+ */
+final class NovocaineEvents {
+
+    /**
+     * A started event - committed (if its event type is enabled in the recording) when closed
+     */
+    interface Span extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    private static final Span NONE = () -> { };
+
+    /**
+     * Whether any flight recording is running - maintained by a FlightRecorderListener (always false without jdk.jfr)
+     */
+    static volatile boolean recording;
+
+    static {
+        if (jfrAvailable()) {
+            Jfr.listen();
+        }
+    }
+
+    private NovocaineEvents() {
+    }
+
+    /**
+     * @param phase - the phase of Novocaine.inject() being started
+     *
+     * @return - the span to close once the phase completes
+     */
+    static Span phase(@Nonnull String phase) {
+        return recording ? Jfr.phase(phase) : NONE;
+    }
+
+    /**
+     * @param clazz - the class whose constructor is being invoked
+     *
+     * @return - the span to close once the constructor returns
+     */
+    static Span construction(@Nonnull Class<?> clazz) {
+        return recording ? Jfr.construction(clazz) : NONE;
+    }
+
+    /**
+     * @param clazz - the class being injected
+     * @param kind - field, method, postConstruct or preDestroy
+     * @param dependency - the field, or the first parameter of the method (or null if it has none)
+     *
+     * @return - the span to close once the field is set or the method returns
+     */
+    static Span injection(@Nonnull Class<?> clazz, @Nonnull String kind, Dependency dependency) {
+        return recording ? Jfr.injection(clazz, kind, dependency) : NONE;
+    }
+
+    /**
+     * @param clazz - the class declaring the method marked with @Singleton
+     * @param key - the type (and qualifier or @Named value) the method supplies
+     *
+     * @return - the span to close once the method returns
+     */
+    static Span supplier(@Nonnull Class<?> clazz, @Nonnull Dependency key) {
+        return recording ? Jfr.supplier(clazz, key) : NONE;
+    }
+
+    /**
+     * @param clazz - the class whose constructors, fields and methods are being walked
+     *
+     * @return - the span to close once the class has been described
+     */
+    static Span reflection(@Nonnull Class<?> clazz) {
+        return recording ? Jfr.reflection(clazz) : NONE;
+    }
+
+    private static boolean jfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder", false, NovocaineEvents.class.getClassLoader());
+            return FlightRecorder.isAvailable();
+        }
+        catch (ClassNotFoundException | LinkageError e) {
+            // no jdk.jfr module - events are never emitted
+            return false;
+        }
+    }
+
+    /**
+     * Every reference to jdk.jfr beyond the availability check - only loaded when the module is present
+     */
+    private static final class Jfr {
+
+        static void listen() {
+            FlightRecorder.addListener(new FlightRecorderListener() {
+                @Override
+                public void recorderInitialized(FlightRecorder recorder) {
+                    update();
+                }
+
+                @Override
+                public void recordingStateChanged(Recording changed) {
+                    update();
+                }
+            });
+            update();
+        }
+
+        private static void update() {
+            boolean running = false;
+            if (FlightRecorder.isInitialized()) {
+                for (Recording r : FlightRecorder.getFlightRecorder().getRecordings()) {
+                    running |= r.getState() == RecordingState.RUNNING;
+                }
+            }
+            recording = running;
+        }
+
+        static Span phase(String phase) {
+            PhaseEvent event = new PhaseEvent();
+            event.phase = phase;
+            event.begin();
+            return event;
+        }
+
+        static Span construction(Class<?> clazz) {
+            ConstructionEvent event = new ConstructionEvent();
+            event.bindingKey = clazz.getName();
+            event.begin();
+            return event;
+        }
+
+        static Span injection(Class<?> clazz, String kind, Dependency dependency) {
+            InjectionEvent event = new InjectionEvent();
+            event.bindingKey = clazz.getName();
+            event.kind = kind;
+            event.dependency = dependency != null ? dependency.toString() : null;
+            event.begin();
+            return event;
+        }
+
+        static Span supplier(Class<?> clazz, Dependency key) {
+            SupplierEvent event = new SupplierEvent();
+            event.bindingKey = BindingKey.of(key).toString();
+            event.declaringClass = clazz;
+            event.begin();
+            return event;
+        }
+
+        static Span reflection(Class<?> clazz) {
+            ReflectionEvent event = new ReflectionEvent();
+            event.bindingKey = clazz.getName();
+            event.begin();
+            return event;
+        }
+    }
+
+    /**
+     * Commits the event on close - the shared behaviour of every Novocaine event
+     */
+    @Category("Novocaine")
+    @StackTrace(false)
+    private abstract static class SpanEvent extends Event implements Span {
+
+        @Override
+        public void close() {
+            end();
+            if (shouldCommit()) {
+                commit();
+            }
+        }
+    }
+
+    @Name("io.novocaine.Phase")
+    @Label("Injection Phase")
+    @Description("A phase of Novocaine.inject()")
+    private static final class PhaseEvent extends SpanEvent {
+
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("io.novocaine.Construction")
+    @Label("Singleton Construction")
+    @Description("The invocation of a singleton's constructor")
+    private static final class ConstructionEvent extends SpanEvent {
+
+        @Label("Binding Key")
+        String bindingKey;
+    }
+
+    @Name("io.novocaine.Injection")
+    @Label("Member Injection")
+    @Description("The setting of a field or the invocation of a method marked with @Inject, @PostConstruct or @PreDestroy")
+    private static final class InjectionEvent extends SpanEvent {
+
+        @Label("Binding Key")
+        String bindingKey;
+
+        @Label("Kind")
+        String kind;
+
+        @Label("Dependency")
+        String dependency;
+    }
+
+    @Name("io.novocaine.Supplier")
+    @Label("Supplier Method")
+    @Description("The invocation of a method marked with @Singleton")
+    private static final class SupplierEvent extends SpanEvent {
+
+        @Label("Binding Key")
+        String bindingKey;
+
+        @Label("Declaring Class")
+        Class<?> declaringClass;
+    }
+
+    @Name("io.novocaine.Reflection")
+    @Label("Reflective Description")
+    @Description("The walk of a class's constructors, fields and methods, for a class without a generated factory")
+    private static final class ReflectionEvent extends SpanEvent {
+
+        @Label("Binding Key")
+        String bindingKey;
+    }
+}
@@ -0,0 +1,123 @@
+package io.novocaine;
+
+/**
+ * Instantiates and injects a single class
+ *
+ * Implementations are generated at compile time by the novocaine-processor module (one per injectable class, named
+ * {ClassName}_NovocaineFactory) and registered in META-INF/services/io.novocaine.NovocaineFactory. Generated factories
+ * invoke constructors, set fields and call methods directly - Novocaine.inject() uses one whenever it is present for a
+ * class and falls back to reflection otherwise.
+ *
+ * Injection points are addressed by index: the n-th entry of fieldDependencies() describes the field set by
+ * injectField(instance, n, value), the n-th entry of methodDependencies() describes the parameters of the method
+ * invoked by injectMethod(instance, n, args), and so on. The returned arrays are shared and must not be modified.
+ *
+ * @param <T> - the class this factory instantiates and injects
+ */
+public interface NovocaineFactory<T> {
+
+    /**
+     * @return - the class this factory instantiates and injects
+     */
+    Class<T> type();
+
+    /**
+     * @return - true if the class declares a public constructor marked with @Inject
+     */
+    boolean hasInjectConstructor();
+
+    /**
+     * @return - the parameters of the constructor marked with @Inject (empty if there is none)
+     */
+    Dependency[] constructorDependencies();
+
+    /**
+     * Invokes the constructor marked with @Inject (or the no-arg constructor if there is none)
+     *
+     * @param args - the resolved constructor arguments
+     *
+     * @return - the new instance
+     */
+    T newInstance(Object[] args) throws Exception;
+
+    /**
+     * @return - the fields marked with @Inject, including those declared by superclasses
+     */
+    Dependency[] fieldDependencies();
+
+    /**
+     * Sets the field marked with @Inject at the supplied index
+     *
+     * @param instance - the instance on which to set the field
+     * @param index - the index of the field within fieldDependencies()
+     * @param value - the resolved value
+     */
+    void injectField(T instance, int index, Object value) throws Exception;
+
+    /**
+     * @return - the parameters of each public method marked with @Inject
+     */
+    Dependency[][] methodDependencies();
+
+    /**
+     * Invokes the method marked with @Inject at the supplied index
+     *
+     * @param instance - the instance on which to invoke the method
+     * @param index - the index of the method within methodDependencies()
+     * @param args - the resolved method arguments
+     */
+    void injectMethod(T instance, int index, Object[] args) throws Exception;
+
+    /**
+     * @return - the types (and @Named values) provided by each public method marked with @Singleton
+     */
+    Dependency[] supplierKeys();
+
+    /**
+     * @return - the parameters of each public method marked with @Singleton
+     */
+    Dependency[][] supplierDependencies();
+
+    /**
+     * Invokes the method marked with @Singleton at the supplied index
+     *
+     * @param instance - the instance on which to invoke the method
+     * @param index - the index of the method within supplierKeys()
+     * @param args - the resolved method arguments
+     *
+     * @return - the supplied object
+     */
+    Object invokeSupplier(T instance, int index, Object[] args) throws Exception;
+
+    /**
+     * @return - true if the class declares a method marked with @PostConstruct (javax.annotation or jakarta.annotation),
+     * including those declared by superclasses
+     */
+    default boolean hasPostConstruct() {
+        return false;
+    }
+
+    /**
+     * Invokes every method marked with @PostConstruct - those declared by superclasses first
+     *
+     * @param instance - the fully injected instance
+     */
+    default void postConstruct(T instance) throws Exception {
+    }
+
+    /**
+     * @return - true if the class declares a method marked with @PreDestroy (javax.annotation or jakarta.annotation),
+     * including those declared by superclasses
+     */
+    default boolean hasPreDestroy() {
+        return false;
+    }
+
+    /**
+     * Invokes every method marked with @PreDestroy - those declared by superclasses first
+     *
+     * @param instance - the singleton being shut down
+     */
+    default void preDestroy(T instance) throws Exception {
+    }
+}
@@ -1,186 +1,344 @@
 package io.novocaine;
 
-import org.apache.commons.lang3.reflect.FieldUtils;
-
 import javax.annotation.Nonnull;
-import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.inject.Qualifier;
-import javax.inject.Singleton;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.*;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Resolves and injects the bindings of a single Injector - holds the binding tables of its @Qualifier, @Named,
+ * supplied and unscoped classes, while the factories of each class are shared by every Injector in the JVM
+ */
 class NovocaineHelper {
 
     /**
      * Map containing the annotation marked with @Qualifier to the class which represents the concrete implementation
      */
-    static Map<Class<? extends Annotation>, Class<?>> qualifierAnnotationMap = new ConcurrentHashMap<>();
+    final Map<Class<? extends Annotation>, Class<?>> qualifierAnnotationMap = new ConcurrentHashMap<>();
 
     /**
      * Map containing the class name marked with @Named to the class which represents the concrete implementation
      */
-    static Map<String, Class<?>> namedAnnotationMap = new ConcurrentHashMap<>();
+    final Map<String, Class<?>> namedAnnotationMap = new ConcurrentHashMap<>();
 
     /**
-     * Set containing all classes which have methods marked with @Singleton
+     * Map containing the @Named annotation toString() to the instantiated object for supplied methods
      */
-    static Set<Class<?>> supplierClasses = new HashSet<>();
+    final Map<String, Object> suppliedNamedAnnotationMap = new ConcurrentHashMap<>();
 
     /**
-     * Set containing all classes which are provided by methods marked with @Singleton
+     * Map containing the binding key (type and @Qualifier-associated annotation) to the instantiated object for
+     * supplied methods annotated with a @Qualifier-associated annotation
      */
-    static Set<Class<?>> suppliedClasses = new HashSet<>();
+    final Map<BindingKey, Object> suppliedQualifierAnnotationMap = new ConcurrentHashMap<>();
 
     /**
-     * Map containing the @Named annotation toString() to the instantiated object for supplied methods
+     * Map containing the class type to its Prototype for all unscoped classes (see NovocaineConfig.Builder#unscopedAsPrototype())
+     * and to the Provider of its scope for all classes marked with a scope annotation other than @Singleton
+     */
+    final Map<Class<?>, Provider<?>> prototypes = new ConcurrentHashMap<>();
+
+    /**
+     * The location of the files listing every factory generated by the novocaine-processor module
+     */
+    private static final String SERVICE_FILE = "META-INF/services/" + NovocaineFactory.class.getName();
+
+    /**
+     * Map containing the class loader to the names of the generated factories listed in its service files - each class
+     * loader's files are read once, and only names are held so that no class loader is kept reachable
+     */
+    private static final Map<ClassLoader, Set<String>> generatedFactoryNames = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * The generated (reflection-free) factory of each class processed by the novocaine-processor module (or null) -
+     * located by name on the first use of each class and held by the class itself
+     */
+    private static final ClassValue<NovocaineFactory<?>> generatedFactories = new ClassValue<NovocaineFactory<?>>() {
+        @Override
+        protected NovocaineFactory<?> computeValue(Class<?> type) {
+            return loadGeneratedFactory(type);
+        }
+    };
+
+    /**
+     * Map containing the class type to the factory registered in place of its own - for classes defined at runtime,
+     * whose injection points cannot be declared (empty unless registered, e.g. by tests)
      */
-    static Map<String, Object> suppliedNamedAnnotationMap = new ConcurrentHashMap<>();
+    static final Map<Class<?>, NovocaineFactory<?>> registeredFactories = new ConcurrentHashMap<>();
+
+    /**
+     * The ReflectiveFactory of each class without a generated factory - each class's constructors, fields and methods
+     * are walked once and the resulting injection points are shared by every phase and every Injector. Held by the
+     * class itself, so that the cache never keeps a class (or its class loader) reachable.
+     */
+    private static final ClassValue<NovocaineFactory<?>> reflectiveFactories = new ClassValue<NovocaineFactory<?>>() {
+        @Override
+        protected NovocaineFactory<?> computeValue(Class<?> type) {
+            try (NovocaineEvents.Span span = NovocaineEvents.reflection(type)) {
+                return new ReflectiveFactory<>(type);
+            }
+        }
+    };
+
+    /**
+     * The toString() of an @Named annotation whose value is NAMED_KEY_VALUE - used to build the @Named keys for
+     * injection points which were described at compile time rather than read via reflection
+     */
+    private static final String NAMED_KEY_VALUE = "io.novocaine.NamedKey";
+    private static final String NAMED_KEY_TEMPLATE = namedKeyTemplate();
+
+    @Named(NAMED_KEY_VALUE)
+    private static Object namedKeyHolder;
+
+    /**
+     * The Injector whose singletons, scanned classes and dependency graph these bindings resolve against
+     */
+    private final Injector injector;
+
+    NovocaineHelper(@Nonnull Injector injector) {
+        this.injector = injector;
+    }
+
+    /**
+     * Loads the factory which the novocaine-processor module generated for the supplied class - named
+     * {ClassName}_NovocaineFactory (Outer_Inner_NovocaineFactory for a nested class) in the class's own package
+     *
+     * @param type - the class to instantiate and inject
+     *
+     * @return - the generated factory (or null if the class was not processed)
+     */
+    private static NovocaineFactory<?> loadGeneratedFactory(@Nonnull Class<?> type) {
+        ClassLoader classLoader = type.getClassLoader();
+        if (classLoader == null) {
+            return null;
+        }
+        String name = type.getName().replace('$', '_') + "_NovocaineFactory";
+        if (!generatedFactoryNames.computeIfAbsent(classLoader, NovocaineHelper::readGeneratedFactoryNames).contains(name)) {
+            return null;
+        }
+        try {
+            NovocaineFactory<?> factory = (NovocaineFactory<?>) Class.forName(name, true, classLoader).getConstructor().newInstance();
+            return factory.type() == type ? factory : null;
+        }
+        catch (ReflectiveOperationException | ClassCastException e) {
+            throw new RuntimeException("Cannot load generated factory: " + name, e);
+        }
+    }
+
+    /**
+     * @return - the names of the generated factories listed in every service file visible to the supplied class loader
+     */
+    private static Set<String> readGeneratedFactoryNames(@Nonnull ClassLoader classLoader) {
+        Set<String> names = new HashSet<>();
+        try {
+            Enumeration<URL> files = classLoader.getResources(SERVICE_FILE);
+            while (files.hasMoreElements()) {
+                URL file = files.nextElement();
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.openStream(), StandardCharsets.UTF_8))) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        int comment = line.indexOf('#');
+                        String name = (comment < 0 ? line : line.substring(0, comment)).trim();
+                        if (!name.isEmpty()) {
+                            names.add(name);
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Cannot read generated factories: " + SERVICE_FILE, e);
+        }
+        return names;
+    }
 
     /**
      * Locates all annotations marked with with @Qualifier and determines which concrete implementation to associate
      */
     @SuppressWarnings("unchecked")
-    static void findQualifierAnnotations() {
+    void findQualifierAnnotations() {
         // retrieve all types marked with @Qualifier
-        Set<Class<?>> qualifiers = Novocaine.reflections.getTypesAnnotatedWith(Qualifier.class, true);
+        Set<Class<?>> qualifiers = injector.reflections.getTypesAnnotatedWith(Qualifier.class, true);
 
         for (Class<?> qualifier : qualifiers) {
             // ensure this is an annotation
             if (qualifier.isAnnotation()) {
                 // now find the class marked with this annotation - this class will be the implementation
-                Set<Class<?>> implementations = Novocaine.reflections.getTypesAnnotatedWith((Class<? extends Annotation>) qualifier, true);
+                Set<Class<?>> implementations = injector.reflections.getTypesAnnotatedWith((Class<? extends Annotation>) qualifier, true);
 
-                // ensure an implementation has been found
-                if (implementations.isEmpty()) {
-                    throw new RuntimeException(qualifier.getName() + " must be implemented by a class");
-                }
+                registerQualifierAnnotation((Class<? extends Annotation>) qualifier, implementations);
+            }
+        }
+    }
 
-                // ensure only one implementation exists
-                if (implementations.size() > 1) {
-                    throw new RuntimeException(qualifier.getName() + " may only be implemented by a single class");
-                }
+    /**
+     * Associates the supplied @Qualifier-associated annotation with its single concrete implementation
+     *
+     * @param qualifier - the annotation marked with @Qualifier
+     * @param implementations - all classes marked with this annotation
+     */
+    void registerQualifierAnnotation(@Nonnull Class<? extends Annotation> qualifier, @Nonnull Set<Class<?>> implementations) {
+        // ensure an implementation has been found
+        if (implementations.isEmpty()) {
+            throw new RuntimeException(qualifier.getName() + " must be implemented by a class");
+        }
 
-                // store the annotation to its implementing class
-                qualifierAnnotationMap.put((Class<? extends Annotation>) qualifier, implementations.iterator().next());
-            }
+        // ensure only one implementation exists
+        if (implementations.size() > 1) {
+            throw new RuntimeException(qualifier.getName() + " may only be implemented by a single class");
         }
+
+        // store the annotation to its implementing class
+        qualifierAnnotationMap.put(qualifier, implementations.iterator().next());
     }
 
     /**
      * Locates all classes marked with with @Named and stores the value to concrete implementation class association
      */
-    static void findNamedAnnotations() {
+    void findNamedAnnotations() {
         // retrieve all types marked with @Named
-        Set<Class<?>> namedClasses = Novocaine.reflections.getTypesAnnotatedWith(Named.class, true);
+        Set<Class<?>> namedClasses = injector.reflections.getTypesAnnotatedWith(Named.class, true);
 
         for (Class<?> namedClass : namedClasses) {
-            // the key will be the toString() of the @Named annotation in order to retain the value field
-            String key = namedClass.getAnnotation(Named.class).toString();
-
-            // ensure only one implementation exists
-            if (namedAnnotationMap.get(key) != null) {
-                throw new RuntimeException("Multiple classes marked with @Named annotation with value: " + namedClass.getAnnotation(Named.class).value());
-            }
-
-            // store the annotation to its implementing class
-            namedAnnotationMap.put(key, namedClass);
+            registerNamedAnnotation(namedClass.getAnnotation(Named.class).value(), namedClass);
         }
     }
 
     /**
-     * Invokes each method annotated with @Singleton in the class in order to instantiate provided classes
+     * Associates the supplied @Named value with its concrete implementation
      *
-     * @param clazz - the class which may or may not contain methods marked with @Singleton
-     * @param seen - the set of classes which have already been seen while checking for cyclic dependencies
-     * @param topLevel - the top level class which called Novocaine.inject(this)
+     * @param value - the value of the @Named annotation
+     * @param namedClass - the class marked with this @Named annotation
      */
-    static void instantiateSuppliedClasses(@Nonnull Class<?> clazz, @Nonnull Set<Class<?>> seen, @Nonnull Object topLevel) {
-        // populate the set of classes which are supplied by suppliers
-        for (Method method: clazz.getMethods()) {
-            if (method.getReturnType() != null) {
-                if (method.isAnnotationPresent(Singleton.class)) {
-                    supplierClasses.add(clazz);
-                    if (!method.isAnnotationPresent(Named.class)) {
-                        suppliedClasses.add(method.getReturnType());
-                    }
-                }
-            }
+    void registerNamedAnnotation(@Nonnull String value, @Nonnull Class<?> namedClass) {
+        // the key will be the toString() of the @Named annotation in order to retain the value field
+        String key = namedKey(value);
 
+        // ensure only one implementation exists
+        if (namedAnnotationMap.get(key) != null) {
+            throw new RuntimeException("Multiple classes marked with @Named annotation with value: " + value);
         }
-        if (supplierClasses.contains(clazz)) {
-            // instantiate objects provided by methods marked with @Singleton in this class
-            instantiateMethodSingletons(clazz, seen, topLevel);
-        }
+
+        // store the annotation to its implementing class
+        namedAnnotationMap.put(key, namedClass);
     }
 
     /**
-     * Verifies that no cyclic dependency exists in this class hierarchy and injects/instantiates all relevant classes
+     * Instantiates the supplied class (unless it is the top-level class or has already been instantiated) and injects
+     * its fields and methods - every class it depends upon must already have been instantiated
      *
-     * @param clazz - the class which may or may not contain fields/constructors/methods marked with @Inject
-     * @param seen - the set of classes which have already been seen while checking for cyclic dependencies
+     * @param clazz - the class to instantiate and inject
+     * @param factory - the factory for this class
      * @param topLevel - the top level class which called Novocaine.inject(this)
      */
-    static void checkCyclicDependenciesAndInject(@Nonnull Class<?> clazz, @Nonnull Set<Class<?>> seen, @Nonnull Object topLevel) {
-        if (Modifier.isAbstract(clazz.getModifiers())) return;
-
-        // add this class to our set of "seen" classes in order to ensure we don't have a cyclic dependency
-        seen.add(clazz);
-
+    void instantiateAndInject(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory, @Nonnull Object topLevel) {
         // inject singletons into any constructor annotated with @Inject
-        handleConstructorInjection(clazz, seen, topLevel);
+        handleConstructorInjection(clazz, factory, topLevel);
 
         // inject singletons into any field annotated with @Inject
-        handleFieldInjection(clazz, seen, topLevel);
+        handleFieldInjection(clazz, factory, topLevel);
 
         // inject singletons into any method annotated with @Inject
-        handleMethodInjection(clazz, seen, topLevel);
+        handleMethodInjection(clazz, factory, topLevel);
 
-        // all fields/methods marked with @Inject have been resolved - instantiate this class if it's marked with @Singleton
-        if (!Novocaine.injectableProvider.containsKey(clazz) && (clazz.getAnnotation(Singleton.class) != null || resolveAnnotatedClassToType(clazz).isPresent())) {
+        // all fields/methods marked with @Inject have been resolved - instantiate this class if it's not yet been
+        if (clazz != topLevel.getClass()) {
             instantiateClass(clazz);
         }
     }
 
+    /**
+     * Invokes the methods marked with @PostConstruct of the singleton of the supplied class (or of the top-level class)
+     *
+     * @param clazz - the class which declares methods marked with @PostConstruct
+     * @param factory - the factory for this class
+     * @param topLevel - the top level class which called Novocaine.inject(this)
+     */
+    void postConstruct(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory, @Nonnull Object topLevel) {
+        invokePostConstruct(clazz, factory, targetFor(clazz, topLevel));
+    }
+
+    /**
+     * Invokes the methods marked with @PostConstruct of the supplied, fully injected instance
+     *
+     * @param clazz - the class which declares methods marked with @PostConstruct
+     * @param factory - the factory for this class
+     * @param instance - the instance
+     */
+    static <T> void invokePostConstruct(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<T> factory, @Nonnull T instance) {
+        try (NovocaineEvents.Span span = NovocaineEvents.injection(clazz, "postConstruct", null)) {
+            factory.postConstruct(instance);
+        }
+        catch (Exception e) {
+            throw new RuntimeException("Cannot invoke @PostConstruct method on class: " + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * Retrieves the factory which instantiates and injects the supplied class - the generated factory if the class was
+     * processed by the novocaine-processor module, otherwise the (cached) one which uses reflection
+     *
+     * Both are cached on the class itself (see generatedFactories and reflectiveFactories).
+     *
+     * @param clazz - the class to instantiate and inject
+     *
+     * @return - the factory for this class
+     */
+    @SuppressWarnings("unchecked")
+    static NovocaineFactory<Object> factoryFor(@Nonnull Class<?> clazz) {
+        NovocaineFactory<?> factory = registeredFactories.get(clazz);
+        if (factory == null) {
+            factory = generatedFactories.get(clazz);
+        }
+        if (factory == null) {
+            factory = reflectiveFactories.get(clazz);
+        }
+        return (NovocaineFactory<Object>) factory;
+    }
 
     /**
      * Resolves and instantiates any field marked with @Inject on the supplied class
      *
      * @param clazz - the class which may or may not contain fields marked with @Inject
-     * @param seen - the set of classes which have already been seen while checking for cyclic dependencies
+     * @param factory - the factory for this class
      * @param topLevel - the top level class which called Novocaine.inject(this)
      */
-    private static void handleFieldInjection(@Nonnull Class<?> clazz, @Nonnull Set<Class<?>> seen, @Nonnull Object topLevel) {
-        // iterate over each field in the class
-        for (Field field : FieldUtils.getAllFields(clazz)) {
-            // check if the field is marked with @Inject
-            if (field.isAnnotationPresent(Inject.class)) {
-                if (field.isAnnotationPresent(Named.class) && suppliedNamedAnnotationMap.containsKey(field.getAnnotation(Named.class).toString())) {
-                    setField(field, suppliedNamedAnnotationMap.get(field.getAnnotation(Named.class).toString()), clazz, topLevel);
-                }
-                else {
-                    // determine the type of field this is (if interface, determine the concrete implementation)
-                    Class<?> type = determineType(field);
-                    // check if we've already instantiated this type
-                    if (Novocaine.injectableProvider.containsKey(type)) {
-                        // we've already instantiated this type - just set the field to its instantiation
-                        setField(field, type, clazz, topLevel);
-                    }
-                    else {
-                        // check if we've already seen this type - if so, this is a circular dependency
-                        if (seen.contains(type))
-                            throw new RuntimeException("Circular Dependency Detected: " + type.getName());
+    private void handleFieldInjection(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory, @Nonnull Object topLevel) {
+        for (int i = 0; i < factory.fieldDependencies().length; i++) {
+            injectField(clazz, factory, i, topLevel);
+        }
+    }
+
+    /**
+     * Resolves the field marked with @Inject at the supplied index and sets it on the singleton of the supplied class
+     * (or on the top-level class)
+     *
+     * @param clazz - the class which contains the field
+     * @param factory - the factory for this class
+     * @param index - the index of the field within the factory's fieldDependencies()
+     * @param topLevel - the top level class which called Novocaine.inject(this)
+     */
+    void injectField(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory, int index, @Nonnull Object topLevel) {
+        Dependency dependency = factory.fieldDependencies()[index];
 
-                        // recursively check for cyclic dependencies of classes used by this one
-                        checkCyclicDependenciesAndInject(type, seen, topLevel);
+        // resolve the field's type (already instantiated, as the dependency graph is executed in order)
+        Object value = resolveDependency(dependency);
 
-                        // all classes used by this class have been resolved - set the field with the fully instantiated object
-                        setField(field, type, clazz, topLevel);
-                    }
-                }
-            }
+        // all classes used by this class have been resolved - set the field with the fully instantiated object
+        Object target = targetFor(clazz, topLevel);
+        try (NovocaineEvents.Span span = NovocaineEvents.injection(clazz, "field", dependency)) {
+            factory.injectField(target, index, value);
+        }
+        catch (Exception e) {
+            throw new RuntimeException("Cannot set field of type: " + dependency.getType().getName() + " on class: " + clazz.getName(), e);
         }
     }
 
@@ -188,32 +346,26 @@ class NovocaineHelper {
      * Resolves and instantiates the first constructor encountered marked with @Inject on the supplied class
      *
      * @param clazz - the class which may or may not contain a constructor marked with @Inject
-     * @param seen - the set of classes which have already been seen while checking for cyclic dependencies
+     * @param factory - the factory for this class
      * @param topLevel - the top level class which called Novocaine.inject(this)
      */
-    private static void handleConstructorInjection(@Nonnull Class<?> clazz, @Nonnull Set<Class<?>> seen, @Nonnull Object topLevel) {
-        // check if we've already instantiated this class
-        if (Novocaine.injectableProvider.containsKey(clazz)) {
+    private void handleConstructorInjection(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory, @Nonnull Object topLevel) {
+        // check if this is the top-level class, if we've already instantiated this class or if it has no constructor
+        // marked with @Inject
+        if (clazz == topLevel.getClass() || injector.injectableProvider.containsKey(clazz) || !factory.hasInjectConstructor()) {
             return;
         }
-        // iterate over each constructor in this class
-        for (Constructor constructor : clazz.getConstructors()) {
-            // check if this constructor is marked with @Inject
-            if (constructor.isAnnotationPresent(Inject.class)) {
 
-                // resolve all arguments required by this constructor (checking for cyclic dependencies along the way)
-                List<Object> args = resolveArgs(constructor.getParameters(), constructor.getParameterAnnotations(), seen, topLevel);
+        // resolve all arguments required by this constructor
+        Object[] args = resolveArgs(factory.constructorDependencies());
 
-                try {
-                    // instantiate this class by invoking the constructor with the resolved args
-                    Object o = constructor.newInstance(args.toArray());
-                    Novocaine.injectableProvider.put(clazz, o);
-                    break;
-                }
-                catch (Exception e) {
-                    throw new RuntimeException("Cannot instantiate class: " + clazz.getName(), e);
-                }
-            }
+        try (NovocaineEvents.Span span = NovocaineEvents.construction(clazz)) {
+            // instantiate this class by invoking the constructor with the resolved args
+            Object o = factory.newInstance(args);
+            injector.injectableProvider.put(clazz, o);
+        }
+        catch (Exception e) {
+            throw new RuntimeException("Cannot instantiate class: " + clazz.getName(), e);
         }
     }
 
@@ -221,181 +373,315 @@ class NovocaineHelper {
      * Resolves and instantiates any method marked with @Inject on the supplied class
      *
      * @param clazz - the class which may or may not contain methods marked with @Inject
-     * @param seen - the set of classes which have already been seen while checking for cyclic dependencies
+     * @param factory - the factory for this class
      * @param topLevel - the top level class which called Novocaine.inject(this)
      */
-    private static void handleMethodInjection(@Nonnull Class<?> clazz, @Nonnull Set<Class<?>> seen, @Nonnull Object topLevel) {
-        // iterate over each method in this class
-        for (Method method : clazz.getMethods()) {
-            // check if this method is marked with @Inject
-            if (method.isAnnotationPresent(Inject.class)) {
-                if (method.isAnnotationPresent(Named.class) && suppliedNamedAnnotationMap.containsKey(method.getAnnotation(Named.class).toString())) {
-                    if (method.getParameterCount() != 1) {
-                        throw new RuntimeException("Method " + clazz.getName() + "#" + method.getName()
-                                + " requires " + method.getParameterCount() + " parameters but is annotated with @Named");
-                    }
-                    // resolve the single parameter (checking for cyclic dependencies)
-                    List<Object> args = Collections.singletonList(suppliedNamedAnnotationMap.get(method.getAnnotation(Named.class).toString()));
+    private void handleMethodInjection(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory, @Nonnull Object topLevel) {
+        for (int i = 0; i < factory.methodDependencies().length; i++) {
+            injectMethod(clazz, factory, i, topLevel);
+        }
+    }
 
-                    // invoke this setter with the resolved arg
-                    invokeMethod(method, args, topLevel);
-                }
-                else {
-                    // check to see if the method itself is annotated with @Named or one of the @Qualifier annotations
-                    Class<?> type = resolveAnnotationsToType(method.getAnnotations()).orElse(null);
-                    if (type != null) {
-                        // the method is annotated, it MUST only have one parameter:
-                        if (method.getParameterCount() != 1) {
-                            throw new RuntimeException("Method " + clazz.getName() + "#" + method.getName()
-                                    + " requires " + method.getParameterCount() + " parameters but is annotated with @Named or a @Qualifier-associated annotation");
-                        }
-                        // resolve the single parameter (checking for cyclic dependencies)
-                        List<Object> args = Collections.singletonList(resolveArg(type, seen, topLevel));
+    /**
+     * Resolves the parameters of the method marked with @Inject at the supplied index and invokes it on the singleton
+     * of the supplied class (or on the top-level class)
+     *
+     * @param clazz - the class which contains the method
+     * @param factory - the factory for this class
+     * @param index - the index of the method within the factory's methodDependencies()
+     * @param topLevel - the top level class which called Novocaine.inject(this)
+     */
+    void injectMethod(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory, int index, @Nonnull Object topLevel) {
+        Dependency[] dependencies = factory.methodDependencies()[index];
 
-                        // invoke this setter with the resolved arg
-                        invokeMethod(method, args, topLevel);
-                    }
-                    else {
-                        // resolve all arguments required by this method (checking for cyclic dependencies along the way)
-                        List<Object> args = resolveArgs(method.getParameters(), method.getParameterAnnotations(), seen, topLevel);
+        // resolve all arguments required by this method
+        Object[] args = resolveArgs(dependencies);
 
-                        // invoke the setter with the resolved args
-                        invokeMethod(method, args, topLevel);
-                    }
-                }
-            }
+        // invoke the setter with the resolved args
+        Object target = targetFor(clazz, topLevel);
+        try (NovocaineEvents.Span span = NovocaineEvents.injection(clazz, "method", dependencies.length > 0 ? dependencies[0] : null)) {
+            factory.injectMethod(target, index, args);
+        }
+        catch (Exception e) {
+            throw new RuntimeException("Cannot invoke @Inject method on class: " + clazz.getName(), e);
         }
     }
 
-    private static void instantiateMethodSingletons(@Nonnull Class<?> clazz, @Nonnull Set<Class<?>> seen, @Nonnull Object topLevel) {
-        // iterate over each method in this class
-        for (Method method : clazz.getMethods()) {
-            // check if this method is marked with @Singleton
-            if (method.isAnnotationPresent(Singleton.class)) {
-                if (method.isAnnotationPresent(Named.class)) {
-                    String key = method.getAnnotation(Named.class).toString();
-                    if (!suppliedNamedAnnotationMap.containsKey(key)) {
-                        // resolve all arguments required by this method (checking for cyclic dependencies along the way)
-                        List<Object> args = resolveArgs(method.getParameters(), method.getParameterAnnotations(), seen, topLevel);
-                        // invoke the method with the resolved args
-                        Object o = invokeMethod(method, args, topLevel);
-                        if (o != null) {
-                            suppliedNamedAnnotationMap.put(key, o);
-                        }
-                    }
-                }
-                else if (!Novocaine.injectableProvider.containsKey(method.getReturnType())) {
-                    // resolve all arguments required by this method (checking for cyclic dependencies along the way)
-                    List<Object> args = resolveArgs(method.getParameters(), method.getParameterAnnotations(), seen, topLevel);
-
-                    // invoke the method with the resolved args
-                    Object o = invokeMethod(method, args, topLevel);
-                    if (o != null) {
-                        Novocaine.injectableProvider.put(method.getReturnType(), o);
-                    }
-                }
-            }
+    /**
+     * Constructs and fully injects a new singleton of the supplied class, then replaces the current singleton with it
+     * - used once a singleton which its constructor depends upon has been rebound
+     *
+     * @param clazz - the class to construct
+     * @param factory - the factory for this class
+     */
+    void reconstruct(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory) {
+        Object o;
+        Object[] args = resolveArgs(factory.constructorDependencies());
+        try (NovocaineEvents.Span span = NovocaineEvents.construction(clazz)) {
+            o = factory.newInstance(args);
+        }
+        catch (Exception e) {
+            throw new RuntimeException("Cannot instantiate class: " + clazz.getName(), e);
         }
+
+        // the new singleton is injected as its own top level, so that it is only published once fully injected
+        for (int i = 0; i < factory.fieldDependencies().length; i++) {
+            injectField(clazz, factory, i, o);
+        }
+        for (int i = 0; i < factory.methodDependencies().length; i++) {
+            injectMethod(clazz, factory, i, o);
+        }
+        if (factory.hasPostConstruct()) {
+            invokePostConstruct(clazz, factory, o);
+        }
+        injector.injectableProvider.put(clazz, o);
     }
 
     /**
-     * Resolves and instantiates the parameters required for this constructor or method to be invoked
+     * Invokes the method marked with @Singleton at the supplied index and stores the supplied object under its binding
+     * key (the dependency graph guarantees no other method supplies the same one)
      *
-     * @param parameters - the parameters of the constructor or method to be invoked
-     * @param parameterAnnotations - the annotations of the parameters of the constructor or method to be invoked
-     * @param seen - the set of classes which have already been seen while checking for cyclic dependencies
+     * @param clazz - the class which contains the method marked with @Singleton
+     * @param factory - the factory for this class
+     * @param index - the index of the method within the factory's supplierKeys()
      * @param topLevel - the top level class which called Novocaine.inject(this)
+     */
+    void instantiateFromSupplier(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory, int index, @Nonnull Object topLevel) {
+        supply(clazz, factory, index, topLevel, false);
+    }
+
+    /**
+     * Invokes the method marked with @Singleton at the supplied index again and replaces the object it supplied - used
+     * once a singleton which the method depends upon has been rebound
      *
-     * @return - the args with which to invoke the constructor or method
+     * @param clazz - the class which contains the method marked with @Singleton
+     * @param factory - the factory for this class
+     * @param index - the index of the method within the factory's supplierKeys()
+     * @param topLevel - the top level class which called Novocaine.inject(this)
      */
-    private static List<Object> resolveArgs(@Nonnull Parameter[] parameters, @Nonnull Annotation[][] parameterAnnotations, @Nonnull Set<Class<?>> seen, @Nonnull Object topLevel) {
-        List<Object> args = new ArrayList<>();
-        for (int i = 0; i < parameters.length; i++) {
-            Parameter parameter = parameters[i];
-            if (parameter.isAnnotationPresent(Named.class) && suppliedNamedAnnotationMap.containsKey(parameter.getAnnotation(Named.class).toString())) {
-                args.add(suppliedNamedAnnotationMap.get(parameter.getAnnotation(Named.class).toString()));
+    void resupply(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory, int index, @Nonnull Object topLevel) {
+        supply(clazz, factory, index, topLevel, true);
+    }
+
+    private void supply(@Nonnull Class<?> clazz, @Nonnull NovocaineFactory<Object> factory, int index, @Nonnull Object topLevel, boolean replace) {
+        Dependency key = factory.supplierKeys()[index];
+
+        // resolve all arguments required by this method
+        Object[] args = resolveArgs(factory.supplierDependencies()[index]);
+
+        // invoke the method with the resolved args
+        Object target = targetFor(clazz, topLevel);
+        Object o;
+        try (NovocaineEvents.Span span = NovocaineEvents.supplier(clazz, key)) {
+            o = factory.invokeSupplier(target, index, args);
+        }
+        catch (Exception e) {
+            throw new RuntimeException("Cannot invoke @Singleton method supplying: " + key + " on class: " + clazz.getName(), e);
+        }
+
+        if (o != null) {
+            if (key.getNamed() != null) {
+                store(suppliedNamedAnnotationMap, namedKey(key.getNamed()), o, replace);
+            }
+            else if (key.getQualifier() != null) {
+                store(suppliedQualifierAnnotationMap, BindingKey.of(key.getType(), key.getQualifier()), o, replace);
             }
             else {
-                Class<?> type = determineParameterType(parameter.getType(), parameterAnnotations[i]);
-                args.add(resolveArg(type, seen, topLevel));
+                store(injector.injectableProvider, key.getType(), o, replace);
             }
         }
+    }
+
+    private static <K> void store(@Nonnull Map<K, Object> map, @Nonnull K key, @Nonnull Object value, boolean replace) {
+        if (replace) {
+            map.put(key, value);
+        }
+        else {
+            map.putIfAbsent(key, value);
+        }
+    }
+
+    /**
+     * Resolves the already instantiated parameters required for this constructor or method to be invoked
+     *
+     * @param dependencies - the parameters of the constructor or method to be invoked
+     *
+     * @return - the args with which to invoke the constructor or method
+     */
+    private Object[] resolveArgs(@Nonnull Dependency[] dependencies) {
+        Object[] args = new Object[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            args[i] = resolveDependency(dependencies[i]);
+        }
         return args;
     }
 
     /**
-     * Resolves and instantiates the supplied argument type - or recursively continues down the stack if more classes must be instantiated first
+     * Resolves the already instantiated object to inject for a single field or parameter
      *
-     * @param type - the type of argument
-     * @param seen - the set of classes which have already been seen while checking for cyclic dependencies
-     * @param topLevel - the top level class which called Novocaine.inject(this)
-     * @return
+     * @param dependency - the field or parameter
+     *
+     * @return - the object to inject (or null)
      */
-    private static Object resolveArg(Class<?> type, Set<Class<?>> seen, Object topLevel) {
-        if (!Novocaine.injectableProvider.containsKey(type)) {
-            if (seen.contains(type)) {
-                throw new RuntimeException("Circular Dependency Detected: " + type.getName());
-            }
-            else if (suppliedClasses.contains(type)) {
-                instantiateFromSupplier(type, seen, topLevel);
-            }
-            else {
-                checkCyclicDependenciesAndInject(type, seen, topLevel);
-            }
+    private Object resolveDependency(@Nonnull Dependency dependency) {
+        if (dependency.isProvider()) {
+            return providerOf(dependency);
         }
-        return Novocaine.injectableProvider.get(type);
+        // unscoped classes are constructed anew for every injection point (scoped classes once within their scope)
+        Provider<?> prototype = prototypeOf(dependency);
+        return prototype != null ? prototype.get() : resolveInstance(dependency);
     }
 
-    private static void instantiateFromSupplier(Class<?> type, Set<Class<?>> seen, Object topLevel) {
-        for (Class<?> supplierClass : supplierClasses) {
-            for (Method method : supplierClass.getMethods()) {
-                if (method.isAnnotationPresent(Singleton.class) && method.getReturnType() == type) {
-                    if (!Novocaine.injectableProvider.containsKey(type)) {
-                        seen.add(type);
-                        // resolve all arguments required by this method (checking for cyclic dependencies along the way)
-                        List<Object> args = resolveArgs(method.getParameters(), method.getParameterAnnotations(), seen, topLevel);
+    /**
+     * Resolves the Provider to inject for a single field or parameter declared as a Provider
+     *
+     * @param dependency - the field or parameter
+     *
+     * @return - the Prototype of an unscoped class, otherwise a Provider which only resolves (and instantiates if need
+     * be) the singleton on its first get()
+     */
+    private Provider<?> providerOf(@Nonnull Dependency dependency) {
+        Provider<?> prototype = prototypeOf(dependency);
+        return prototype != null ? prototype : new SingletonProvider<>(this, dependency);
+    }
 
-                        // invoke the method with the resolved args
-                        Object o = invokeMethod(method, args, topLevel);
-                        if (o != null) {
-                            Novocaine.injectableProvider.put(method.getReturnType(), o);
-                            return;
-                        }
-                    }
-                }
-            }
+    /**
+     * Resolves a single field or parameter of an unscoped class, once, to the Provider of the value to inject into
+     * every instance of that class
+     *
+     * @param dependency - the field or parameter
+     *
+     * @return - the Provider of the value to inject
+     */
+    Provider<?> resolverOf(@Nonnull Dependency dependency) {
+        if (dependency.isProvider()) {
+            Provider<?> provider = providerOf(dependency);
+            return () -> provider;
+        }
+        return providerOf(dependency);
+    }
+
+    /**
+     * @return - the Prototype of the unscoped class (or the Provider of the scoped class) which the supplied field or
+     * parameter resolves to (or null)
+     */
+    private Provider<?> prototypeOf(@Nonnull Dependency dependency) {
+        if (prototypes.isEmpty()) {
+            return null;
+        }
+        if (dependency.getNamed() != null && suppliedNamedAnnotationMap.containsKey(namedKey(dependency.getNamed()))) {
+            return null;
+        }
+        if (dependency.getQualifier() != null && suppliedQualifierAnnotationMap.containsKey(BindingKey.of(dependency.getType(), dependency.getQualifier()))) {
+            return null;
+        }
+        if (dependency.getType().isInterface() && dependency.getNamed() == null && dependency.getQualifier() == null) {
+            // only a method marked with @Singleton can supply an unqualified interface
+            return null;
         }
+        return prototypes.get(determineType(dependency));
     }
 
     /**
-     * Determines which class type this field should be considered as
+     * Resolves the object supplied by a Provider for a single field or parameter - instantiating it (along with any
+     * of its dependencies) first if it is lazy or has not yet been instantiated
      *
-     * @param field
-     * @return
+     * @param dependency - the field or parameter declared as a Provider
+     *
+     * @return - the provided object (or null)
      */
-    private static Class<?> determineType(@Nonnull Field field) {
-        if (!field.getType().isInterface()) {
-            return field.getType();
+    Object resolveProvided(@Nonnull Dependency dependency) {
+        DependencyGraph graph = injector.graph;
+        if (graph != null) {
+            graph.instantiateLazily(dependency);
         }
-        return resolveAnnotationsToType(field.getDeclaredAnnotations())
-                .orElseThrow(() -> new RuntimeException("Cannot instantiate interface: " + field.getType().getName()));
+        return resolveInstance(dependency);
     }
 
     /**
-     * Determines which class type this parameter should be considered as
+     * Retrieves the singleton the supplied binding resolves to - an object supplied by a method marked with @Singleton,
+     * or the singleton of the (qualified or @Named) class it resolves to
      *
-     * @param clazz
-     * @param annotations
-     * @return
+     * @param binding - the binding
+     *
+     * @return - the singleton (or null if it has not been instantiated, or the binding resolves to an unscoped or
+     * scoped class)
      */
-    private static Class<?> determineParameterType(@Nonnull Class<?> clazz, @Nonnull Annotation[] annotations) {
-        if (!clazz.isInterface()) {
-            return clazz;
+    Object instantiated(@Nonnull BindingKey binding) {
+        Class<?> type;
+        if (binding.getNamed() != null) {
+            Object supplied = suppliedNamedAnnotationMap.get(namedKey(binding.getNamed()));
+            if (supplied != null) {
+                return supplied;
+            }
+            type = namedAnnotationMap.get(namedKey(binding.getNamed()));
+        }
+        else if (binding.getQualifier() != null) {
+            Object supplied = suppliedQualifierAnnotationMap.get(binding);
+            if (supplied != null) {
+                return supplied;
+            }
+            type = qualifierAnnotationMap.get(binding.getQualifier());
+        }
+        else {
+            type = binding.getType();
         }
-        return resolveAnnotationsToType(annotations)
-                .orElseThrow(() -> new RuntimeException("Cannot instantiate interface: " + clazz.getName()));
+        return type == null || prototypes.containsKey(type) ? null : injector.injectableProvider.get(type);
     }
 
+    /**
+     * @param key - the binding key of a method marked with @Singleton
+     *
+     * @return - the object the method supplied (or null if it has not been invoked)
+     */
+    Object suppliedBy(@Nonnull Dependency key) {
+        if (key.getNamed() != null) {
+            return suppliedNamedAnnotationMap.get(namedKey(key.getNamed()));
+        }
+        if (key.getQualifier() != null) {
+            return suppliedQualifierAnnotationMap.get(BindingKey.of(key.getType(), key.getQualifier()));
+        }
+        return injector.injectableProvider.get(key.getType());
+    }
+
+    private Object resolveInstance(@Nonnull Dependency dependency) {
+        if (dependency.getNamed() != null) {
+            Object supplied = suppliedNamedAnnotationMap.get(namedKey(dependency.getNamed()));
+            if (supplied != null) {
+                return supplied;
+            }
+        }
+        else if (dependency.getQualifier() != null) {
+            Object supplied = suppliedQualifierAnnotationMap.get(BindingKey.of(dependency.getType(), dependency.getQualifier()));
+            if (supplied != null) {
+                return supplied;
+            }
+        }
+        else if (dependency.getType().isInterface()) {
+            // an interface can only be resolved without a qualifier if a method marked with @Singleton supplies it
+            Object supplied = injector.injectableProvider.get(dependency.getType());
+            if (supplied != null) {
+                return supplied;
+            }
+        }
+        return injector.injectableProvider.get(determineType(dependency));
+    }
+
+    /**
+     * Determines which class type this field or parameter should be considered as
+     *
+     * @param dependency - the field or parameter
+     *
+     * @return - the concrete class to inject
+     */
+    Class<?> determineType(@Nonnull Dependency dependency) {
+        Class<?> type = dependency.getType();
+        if (!type.isInterface()) {
+            return type;
+        }
+        return resolveToType(dependency.getNamed(), dependency.getQualifier())
+                .orElseThrow(() -> new RuntimeException("Cannot instantiate interface: " + type.getName()));
+    }
 
     /**
      * Attempts to resolve the supplied class to its concrete type based on its annotations
@@ -404,7 +690,7 @@ class NovocaineHelper {
      * @return
      */
     //TODO: We could improve this by storing known class impls with custom annotations in a Set
-    private static Optional<Class<?>> resolveAnnotatedClassToType(@Nonnull Class<?> clazz) {
+    Optional<Class<?>> resolveAnnotatedClassToType(@Nonnull Class<?> clazz) {
         return resolveAnnotationsToType(clazz.getDeclaredAnnotations());
     }
 
@@ -414,11 +700,11 @@ class NovocaineHelper {
      * @param annotations
      * @return
      */
-    private static Optional<Class<?>> resolveAnnotationsToType(@Nonnull Annotation[] annotations) {
+    private Optional<Class<?>> resolveAnnotationsToType(@Nonnull Annotation[] annotations) {
         // simply return the first one that resolves
         for (Annotation annotation : annotations) {
             if (annotation.annotationType() == Named.class) {
-                return Optional.of(namedAnnotationMap.get(annotation.toString()));
+                return Optional.of(namedAnnotationMap.get(namedKey(((Named) annotation).value())));
             }
             if (qualifierAnnotationMap.containsKey(annotation.annotationType())) {
                 return Optional.of(qualifierAnnotationMap.get(annotation.annotationType()));
@@ -428,65 +714,58 @@ class NovocaineHelper {
     }
 
     /**
-     * Sets the field marked with @Inject on its declaring class (or the top level class)
+     * Attempts to resolve the @Named value or the @Qualifier-associated annotation to the qualified concrete class
      *
-     * @param field - the field to set
-     * @param type - the type of class this field resolves to
-     * @param topLevel - the top level class which called Novocaine.inject(this)
+     * @param named - the value of the @Named annotation (or null)
+     * @param qualifier - the @Qualifier-associated annotation (or null)
+     *
+     * @return - the qualified concrete class
      */
-    private static void setField(@Nonnull Field field, @Nonnull Class<?> type, @Nonnull Class<?> onClass, @Nonnull Object topLevel) {
-        setField(field, Novocaine.injectableProvider.get(type), onClass, topLevel);
+    private Optional<Class<?>> resolveToType(String named, Class<? extends Annotation> qualifier) {
+        if (named != null && namedAnnotationMap.containsKey(namedKey(named))) {
+            return Optional.of(namedAnnotationMap.get(namedKey(named)));
+        }
+        if (qualifier != null && qualifierAnnotationMap.containsKey(qualifier)) {
+            return Optional.of(qualifierAnnotationMap.get(qualifier));
+        }
+        return Optional.empty();
     }
 
     /**
-     * Sets the field marked with @Inject on its declaring class (or the top level class)
+     * Builds the key under which the @Named annotation with the supplied value is stored - the toString() of that
+     * annotation as rendered by the running JVM
      *
-     * @param field - the field to set
-     * @param o - the instantiated object to set for this field
-     * @param topLevel - the top level class which called Novocaine.inject(this)
+     * @param value - the value of the @Named annotation
+     *
+     * @return - the key
      */
-    private static void setField(@Nonnull Field field, @Nonnull Object o, @Nonnull Class<?> onClass, @Nonnull Object topLevel) {
-        if (!field.isAccessible()) {
-            field.setAccessible(true);
-        }
+    static String namedKey(@Nonnull String value) {
+        return NAMED_KEY_TEMPLATE.replace(NAMED_KEY_VALUE, value);
+    }
+
+    private static String namedKeyTemplate() {
         try {
-            //Class<?> clazz = field.getDeclaringClass();
-            if (onClass == topLevel.getClass()) {
-                field.set(topLevel, o);
-            }
-            else {
-                instantiateClass(onClass);
-                field.set(Novocaine.injectableProvider.get(onClass), o);
-            }
+            return NovocaineHelper.class.getDeclaredField("namedKeyHolder").getAnnotation(Named.class).toString();
         }
-        catch (Exception e) {
-            throw new RuntimeException("Cannot set field: " + field.getName() + " on class: " + field.getDeclaringClass().getName(), e);
+        catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
         }
     }
 
     /**
-     * Invokes the supplied method marked with @Inject using the supplied args on its declaring class (or the top level class)
+     * Retrieves the object on which to set fields or invoke methods of the supplied class (or the top level class)
      *
-     * @param method - the method to invoke
-     * @param args - the arguments to provide to the method during invocation
+     * @param clazz - the class declaring the fields or methods
      * @param topLevel - the top level class which called Novocaine.inject(this)
+     *
+     * @return - the instance of this class
      */
-    private static Object invokeMethod(@Nonnull Method method, @Nonnull List<Object> args, @Nonnull Object topLevel) {
-        if (!method.isAccessible()) {
-            method.setAccessible(true);
-        }
-        try {
-            Class<?> clazz = method.getDeclaringClass();
-            if (clazz == topLevel.getClass()) {
-                return method.invoke(topLevel, args.toArray());
-            }
-            else {
-                instantiateClass(clazz);
-                return method.invoke(Novocaine.injectableProvider.get(clazz), args.toArray());
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Cannot invoke method: " + method.getName() + " on class: " + method.getDeclaringClass().getName(), e);
+    private Object targetFor(@Nonnull Class<?> clazz, @Nonnull Object topLevel) {
+        if (clazz == topLevel.getClass()) {
+            return topLevel;
         }
+        instantiateClass(clazz);
+        return injector.injectableProvider.get(clazz);
     }
 
     /**
@@ -494,11 +773,11 @@ class NovocaineHelper {
      *
      * @param clazz - the class to instantiate and store
      */
-    static void instantiateClass(@Nonnull Class<?> clazz) {
-        if (!Novocaine.injectableProvider.containsKey(clazz) && !Modifier.isAbstract(clazz.getModifiers())) {
-            try {
-                Object o = clazz.newInstance();
-                Novocaine.injectableProvider.put(clazz, o);
+    void instantiateClass(@Nonnull Class<?> clazz) {
+        if (!injector.injectableProvider.containsKey(clazz) && !Modifier.isAbstract(clazz.getModifiers())) {
+            try (NovocaineEvents.Span span = NovocaineEvents.construction(clazz)) {
+                Object o = factoryFor(clazz).newInstance(new Object[0]);
+                injector.injectableProvider.put(clazz, o);
             }
             catch (Throwable t) {
                 throw new RuntimeException("Unable to instantiate class: " + clazz.getName());
@@ -0,0 +1,30 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import javax.inject.Provider;
+
+/**
+ * Implements a scope annotation (an annotation marked with @javax.inject.Scope) - decides which instance of each class
+ * marked with the annotation is injected into a field or parameter, or returned by Provider.get() or Novocaine.get()
+ *
+ * Usage:
+ *      Novocaine.inject(this, NovocaineConfig.builder()
+ *              .scope(JobScoped.class, new RequestScope("job"))
+ *              .build());
+ *
+ * @ThreadScoped (see ThreadScope) and @RequestScoped (see RequestScope) are registered by default.
+ */
+public interface NovocaineScope {
+
+    /**
+     * Scopes a class marked with the scope's annotation - called once for each such class while Novocaine.inject()
+     * builds the dependency graph
+     *
+     * @param type - the scoped class
+     * @param unscoped - the provider which constructs a new, fully injected instance of the class on every get()
+     *
+     * @return - the provider of the instance of the class within the current scope, called for every injection point,
+     * Provider.get() and Novocaine.get() of the class (it should not allocate once the instance exists)
+     */
+    <T> Provider<T> scope(@Nonnull Class<T> type, @Nonnull Provider<T> unscoped);
+}
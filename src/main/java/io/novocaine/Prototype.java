@@ -0,0 +1,302 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import javax.inject.Provider;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Constructs a new, fully injected instance of an unscoped class (one not marked with @Singleton) on every get() - it
+ * is the Provider injected into fields and parameters declared as Provider<T> of the class, and is invoked once for
+ * every other field and parameter of the class
+ *
+ * Every injection point of the class is resolved to a Provider of its value once, on the first get(). Each instance
+ * is then created through the class's NovocaineFactory (a direct constructor call for classes processed by the
+ * novocaine-processor module) without resolving any annotations or types again.
+ *
+ * Instances constructed through a child Injector (see get(Injector)) are injected with the instances bound to the child
+ * in place of the providers resolved by the root.
+ *
+ * @param <T> - the unscoped class
+ */
+class Prototype<T> implements Provider<T> {
+
+    private final NovocaineHelper helper;
+    private final Class<?> type;
+    private final NovocaineFactory<T> factory;
+
+    /**
+     * The providers of the values of every injection point of the class (or null until the first get())
+     */
+    private volatile Resolvers resolvers;
+
+    Prototype(@Nonnull NovocaineHelper helper, @Nonnull Class<?> type, @Nonnull NovocaineFactory<T> factory) {
+        this.helper = helper;
+        this.type = type;
+        this.factory = factory;
+    }
+
+    @Override
+    public T get() {
+        return get(null);
+    }
+
+    /**
+     * Constructs a new instance, injecting the instances bound to the supplied child Injector (and its parents) into
+     * every unqualified field and parameter of their type - of this class and of every unscoped class it depends upon
+     *
+     * @param scope - the child Injector (or null to inject only what the root resolves)
+     *
+     * @return - the new instance
+     */
+    @SuppressWarnings("unchecked")
+    T get(Injector scope) {
+        Resolvers r = resolvers();
+        if (scope == null && !r.nested) {
+            // nothing to construct first - resolve every value straight into the factory
+            return newInstance(r);
+        }
+
+        // unscoped dependencies are constructed on an explicit stack rather than through nested calls to get(), so a
+        // chain of unscoped classes is only bounded by the heap and not by the depth of the calling thread's stack
+        Construction construction = new Construction(this, scope);
+        Deque<Construction> stack = null;
+        while (true) {
+            Provider<?> next = construction.next();
+            while (next != null && !(next instanceof Prototype)) {
+                construction.accept(next.get());
+                next = construction.next();
+            }
+            if (next != null) {
+                // construct the unscoped dependency first
+                if (stack == null) {
+                    stack = new ArrayDeque<>();
+                }
+                stack.push(construction);
+                construction = new Construction((Prototype<?>) next, scope);
+                continue;
+            }
+            Object instance = construction.build();
+            if (stack == null || stack.isEmpty()) {
+                return (T) instance;
+            }
+            construction = stack.pop();
+            construction.accept(instance);
+        }
+    }
+
+    /**
+     * @return - the providers of the values of every injection point of the class, resolved on the first call
+     */
+    private Resolvers resolvers() {
+        Resolvers r = resolvers;
+        if (r == null) {
+            // racing threads resolve identical providers - whichever is published last is used
+            r = new Resolvers(helper, factory);
+            resolvers = r;
+        }
+        return r;
+    }
+
+    /**
+     * Discards the providers resolved on the first get(), so that the next get() resolves every injection point again
+     * - used once a singleton which the class depends upon has been rebound
+     */
+    void reset() {
+        resolvers = null;
+    }
+
+    private T newInstance(@Nonnull Resolvers r) {
+        try {
+            T instance = factory.newInstance(valuesOf(r.constructor));
+            for (int i = 0; i < r.fields.length; i++) {
+                factory.injectField(instance, i, r.fields[i].get());
+            }
+            for (int i = 0; i < r.methods.length; i++) {
+                factory.injectMethod(instance, i, valuesOf(r.methods[i]));
+            }
+            if (factory.hasPostConstruct()) {
+                NovocaineHelper.invokePostConstruct(type, factory, instance);
+            }
+            return instance;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new RuntimeException("Cannot instantiate class: " + type.getName(), e);
+        }
+    }
+
+    private T newInstance(@Nonnull Object[][] values) {
+        try {
+            T instance = factory.newInstance(values[0]);
+            for (int i = 0; i < values[1].length; i++) {
+                factory.injectField(instance, i, values[1][i]);
+            }
+            for (int i = 2; i < values.length; i++) {
+                factory.injectMethod(instance, i - 2, values[i]);
+            }
+            if (factory.hasPostConstruct()) {
+                NovocaineHelper.invokePostConstruct(type, factory, instance);
+            }
+            return instance;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new RuntimeException("Cannot instantiate class: " + type.getName(), e);
+        }
+    }
+
+    private static Object[] valuesOf(@Nonnull Provider<?>[] providers) {
+        Object[] values = new Object[providers.length];
+        for (int i = 0; i < providers.length; i++) {
+            values[i] = providers[i].get();
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "Prototype<" + type.getName() + ">";
+    }
+
+    /**
+     * An instance of an unscoped class being constructed - the values of its constructor parameters, fields and method
+     * parameters (in that order) are resolved one at a time, then the instance is created and injected with them
+     */
+    private static final class Construction {
+
+        private final Prototype<?> prototype;
+
+        /**
+         * The providers and resolved values of the constructor parameters, the fields and the parameters of each method
+         */
+        private final Provider<?>[][] providers;
+        private final Object[][] values;
+
+        /**
+         * The position of the next value to resolve
+         */
+        private int group;
+        private int index;
+
+        Construction(@Nonnull Prototype<?> prototype, Injector scope) {
+            this.prototype = prototype;
+            Resolvers r = prototype.resolvers();
+            this.providers = new Provider<?>[2 + r.methods.length][];
+            this.providers[0] = r.constructor;
+            this.providers[1] = r.fields;
+            System.arraycopy(r.methods, 0, this.providers, 2, r.methods.length);
+            this.values = new Object[providers.length][];
+            for (int i = 0; i < providers.length; i++) {
+                this.values[i] = new Object[providers[i].length];
+            }
+            if (scope != null) {
+                bind(r.dependencies, scope);
+            }
+        }
+
+        /**
+         * Replaces the provider of every unqualified field or parameter whose type is bound by the child Injector with
+         * the bound instance - the shared provider arrays are only copied if the child binds one of them
+         */
+        private void bind(@Nonnull Dependency[][] dependencies, @Nonnull Injector scope) {
+            for (int g = 0; g < dependencies.length; g++) {
+                boolean copied = false;
+                for (int i = 0; i < dependencies[g].length; i++) {
+                    Dependency dependency = dependencies[g][i];
+                    if (dependency.isProvider() || dependency.getNamed() != null || dependency.getQualifier() != null) {
+                        continue;
+                    }
+                    Object bound = scope.bound(dependency.getType());
+                    if (bound != null) {
+                        if (!copied) {
+                            providers[g] = providers[g].clone();
+                            copied = true;
+                        }
+                        providers[g][i] = new SingletonHandle<>(bound);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return - the provider of the next value to resolve (or null once every value has been resolved)
+         */
+        Provider<?> next() {
+            while (group < providers.length && index == providers[group].length) {
+                group++;
+                index = 0;
+            }
+            return group < providers.length ? providers[group][index] : null;
+        }
+
+        void accept(Object value) {
+            values[group][index++] = value;
+        }
+
+        Object build() {
+            return prototype.newInstance(values);
+        }
+    }
+
+    /**
+     * The providers of the values of every constructor parameter, field and method parameter of the class
+     */
+    private static final class Resolvers {
+
+        private final Provider<?>[] constructor;
+        private final Provider<?>[] fields;
+        private final Provider<?>[][] methods;
+
+        /**
+         * The fields and parameters themselves - the constructor parameters, the fields and the parameters of each
+         * method, in the order of the providers
+         */
+        private final Dependency[][] dependencies;
+
+        /**
+         * Whether any value is provided by a Prototype - and so must be constructed before the class itself
+         */
+        private final boolean nested;
+
+        Resolvers(@Nonnull NovocaineHelper helper, @Nonnull NovocaineFactory<?> factory) {
+            this.constructor = resolve(helper, factory.constructorDependencies());
+            this.fields = resolve(helper, factory.fieldDependencies());
+            Dependency[][] methodDependencies = factory.methodDependencies();
+            this.dependencies = new Dependency[2 + methodDependencies.length][];
+            this.dependencies[0] = factory.constructorDependencies();
+            this.dependencies[1] = factory.fieldDependencies();
+            System.arraycopy(methodDependencies, 0, this.dependencies, 2, methodDependencies.length);
+            this.methods = new Provider<?>[methodDependencies.length][];
+            for (int i = 0; i < methodDependencies.length; i++) {
+                this.methods[i] = resolve(helper, methodDependencies[i]);
+            }
+            boolean prototype = anyPrototype(constructor) || anyPrototype(fields);
+            for (Provider<?>[] method : methods) {
+                prototype |= anyPrototype(method);
+            }
+            this.nested = prototype;
+        }
+
+        private static boolean anyPrototype(@Nonnull Provider<?>[] providers) {
+            for (Provider<?> provider : providers) {
+                if (provider instanceof Prototype) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static Provider<?>[] resolve(@Nonnull NovocaineHelper helper, @Nonnull Dependency[] dependencies) {
+            Provider<?>[] providers = new Provider<?>[dependencies.length];
+            for (int i = 0; i < dependencies.length; i++) {
+                providers[i] = helper.resolverOf(dependencies[i]);
+            }
+            return providers;
+        }
+    }
+}
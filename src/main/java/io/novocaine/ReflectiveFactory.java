@@ -0,0 +1,476 @@
+package io.novocaine;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Qualifier;
+import javax.inject.Singleton;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The fallback NovocaineFactory used for any class which has no generated factory - locates the injection points via
+ * reflection and injects them through MethodHandles
+ *
+ * Every member is made accessible once, when the factory is created. The constructor, each field and each method is
+ * compiled into a MethodHandle the first time it is used and the handle is reused from then on, so repeated injection
+ * (prototypes, rebinding) skips the access checks and argument copying of Constructor.newInstance, Field.set and
+ * Method.invoke.
+ *
+ * @param <T> - the class this factory instantiates and injects
+ */
+class ReflectiveFactory<T> implements NovocaineFactory<T> {
+
+    /**
+     * The most arguments with which a compiled constructor or method is invoked directly rather than spread from an
+     * array
+     */
+    private static final int MAX_EXACT_ARITY = 3;
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Class<T> type;
+    private final Constructor<T> constructor;
+    private final Dependency[] constructorDependencies;
+    private final Field[] fields;
+    private final Dependency[] fieldDependencies;
+    private final Method[] methods;
+    private final Dependency[][] methodDependencies;
+    private final Method[] suppliers;
+    private final Dependency[] supplierKeys;
+    private final Dependency[][] supplierDependencies;
+    private final Method[] postConstructs;
+    private final Method[] preDestroys;
+
+    // the compiled constructor (null until first invoked)
+    private volatile MethodHandle constructorHandle;
+
+    // the compiled members, by index (each null until first used) - a handle is immutable, so a racing thread at worst
+    // compiles it again
+    private final MethodHandle[] fieldHandles;
+    private final MethodHandle[] methodHandles;
+    private final MethodHandle[] supplierHandles;
+    private final MethodHandle[] postConstructHandles;
+    private final MethodHandle[] preDestroyHandles;
+
+    @SuppressWarnings("unchecked")
+    ReflectiveFactory(@Nonnull Class<T> type) {
+        this.type = type;
+
+        // the first public constructor marked with @Inject
+        Constructor<T> injectConstructor = null;
+        for (Constructor<?> constructor : type.getConstructors()) {
+            if (constructor.isAnnotationPresent(Inject.class)) {
+                injectConstructor = (Constructor<T>) constructor;
+                break;
+            }
+        }
+        this.constructor = injectConstructor;
+        this.constructorDependencies = injectConstructor != null
+                ? dependenciesOf(injectConstructor)
+                : new Dependency[0];
+
+        // every field marked with @Inject, including those declared by superclasses
+        List<Field> fields = new ArrayList<>();
+        List<Dependency> fieldDependencies = new ArrayList<>();
+        for (Field field : FieldUtils.getAllFields(type)) {
+            if (field.isAnnotationPresent(Inject.class)) {
+                fields.add(field);
+                fieldDependencies.add(dependencyOf(field.getGenericType(), field.getDeclaredAnnotations()));
+            }
+        }
+        this.fields = fields.toArray(new Field[0]);
+        this.fieldDependencies = fieldDependencies.toArray(new Dependency[0]);
+
+        // every public method marked with @Inject or @Singleton
+        List<Method> methods = new ArrayList<>();
+        List<Dependency[]> methodDependencies = new ArrayList<>();
+        List<Method> suppliers = new ArrayList<>();
+        List<Dependency> supplierKeys = new ArrayList<>();
+        List<Dependency[]> supplierDependencies = new ArrayList<>();
+        for (Method method : type.getMethods()) {
+            if (method.isAnnotationPresent(Inject.class)) {
+                methods.add(method);
+                methodDependencies.add(injectMethodDependencies(method));
+            }
+            if (method.isAnnotationPresent(Singleton.class)) {
+                Dependency qualifiers = dependencyOf(Object.class, method.getDeclaredAnnotations());
+                suppliers.add(method);
+                supplierKeys.add(Dependency.of(method.getReturnType(), qualifiers.getNamed(), qualifiers.getQualifier()));
+                supplierDependencies.add(dependenciesOf(method));
+            }
+        }
+        this.methods = methods.toArray(new Method[0]);
+        this.methodDependencies = methodDependencies.toArray(new Dependency[0][]);
+        this.suppliers = suppliers.toArray(new Method[0]);
+        this.supplierKeys = supplierKeys.toArray(new Dependency[0]);
+        this.supplierDependencies = supplierDependencies.toArray(new Dependency[0][]);
+
+        // every method marked with @PostConstruct or @PreDestroy, those declared by superclasses first
+        this.postConstructs = lifecycleMethodsOf(type, "PostConstruct");
+        this.preDestroys = lifecycleMethodsOf(type, "PreDestroy");
+
+        AccessibleObject.setAccessible(this.fields, true);
+        AccessibleObject.setAccessible(this.methods, true);
+        AccessibleObject.setAccessible(this.suppliers, true);
+        AccessibleObject.setAccessible(this.postConstructs, true);
+        AccessibleObject.setAccessible(this.preDestroys, true);
+        this.fieldHandles = new MethodHandle[this.fields.length];
+        this.methodHandles = new MethodHandle[this.methods.length];
+        this.supplierHandles = new MethodHandle[this.suppliers.length];
+        this.postConstructHandles = new MethodHandle[this.postConstructs.length];
+        this.preDestroyHandles = new MethodHandle[this.preDestroys.length];
+    }
+
+    @Override
+    public Class<T> type() {
+        return type;
+    }
+
+    @Override
+    public boolean hasInjectConstructor() {
+        return constructor != null;
+    }
+
+    @Override
+    public Dependency[] constructorDependencies() {
+        return constructorDependencies;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T newInstance(Object[] args) throws Exception {
+        MethodHandle handle = constructorHandle;
+        if (handle == null) {
+            handle = constructorHandle = constructorHandleOf(type, constructor);
+        }
+        try {
+            return (T) invoke(handle, args);
+        }
+        catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @Override
+    public Dependency[] fieldDependencies() {
+        return fieldDependencies;
+    }
+
+    @Override
+    public void injectField(T instance, int index, Object value) throws Exception {
+        MethodHandle handle = fieldHandles[index];
+        if (handle == null) {
+            handle = fieldHandles[index] = setterHandleOf(fields[index]);
+        }
+        try {
+            handle.invokeExact((Object) instance, value);
+        }
+        catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @Override
+    public Dependency[][] methodDependencies() {
+        return methodDependencies;
+    }
+
+    @Override
+    public void injectMethod(T instance, int index, Object[] args) throws Exception {
+        invoke(methodHandles, methods, index, instance, args);
+    }
+
+    @Override
+    public Dependency[] supplierKeys() {
+        return supplierKeys;
+    }
+
+    @Override
+    public Dependency[][] supplierDependencies() {
+        return supplierDependencies;
+    }
+
+    @Override
+    public Object invokeSupplier(T instance, int index, Object[] args) throws Exception {
+        return invoke(supplierHandles, suppliers, index, instance, args);
+    }
+
+    @Override
+    public boolean hasPostConstruct() {
+        return postConstructs.length > 0;
+    }
+
+    @Override
+    public void postConstruct(T instance) throws Exception {
+        for (int i = 0; i < postConstructs.length; i++) {
+            invoke(postConstructHandles, postConstructs, i, instance, NO_ARGS);
+        }
+    }
+
+    @Override
+    public boolean hasPreDestroy() {
+        return preDestroys.length > 0;
+    }
+
+    @Override
+    public void preDestroy(T instance) throws Exception {
+        for (int i = 0; i < preDestroys.length; i++) {
+            invoke(preDestroyHandles, preDestroys, i, instance, NO_ARGS);
+        }
+    }
+
+    /**
+     * @return - true if the supplied method is marked with an annotation of the supplied simple name - matched by name,
+     * so that the annotations of either javax.annotation or jakarta.annotation are recognised without depending upon
+     * either
+     */
+    private static boolean isAnnotatedWith(@Nonnull Method method, @Nonnull String annotation) {
+        for (Annotation declared : method.getDeclaredAnnotations()) {
+            if (declared.annotationType().getSimpleName().equals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Locates every method marked with @PostConstruct (or @PreDestroy) on the supplied class and its superclasses - a
+     * method which is overridden is only invoked once (through its override)
+     *
+     * @param type - the class
+     * @param annotation - the simple name of the annotation: PostConstruct or PreDestroy
+     *
+     * @return - the methods, those declared by superclasses first
+     */
+    private static Method[] lifecycleMethodsOf(@Nonnull Class<?> type, @Nonnull String annotation) {
+        Deque<Class<?>> hierarchy = new ArrayDeque<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.push(c);
+        }
+        List<Method> methods = new ArrayList<>();
+        Set<String> overridable = new HashSet<>();
+        for (Class<?> c : hierarchy) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (!isAnnotatedWith(method, annotation)) {
+                    continue;
+                }
+                if (method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers())) {
+                    throw new RuntimeException("Method " + c.getName() + "#" + method.getName()
+                            + " is marked with @" + annotation + " but is static or takes parameters");
+                }
+                if (Modifier.isPrivate(method.getModifiers()) || overridable.add(method.getName())) {
+                    methods.add(method);
+                }
+            }
+        }
+        return methods.toArray(new Method[0]);
+    }
+
+    /**
+     * Invokes one of the supplied methods on the instance, compiling it first if it has not been yet
+     *
+     * @param handles - the compiled methods (each null until first invoked)
+     * @param methods - the methods
+     * @param index - the index of the method to invoke
+     * @param instance - the instance to invoke it upon
+     * @param args - the arguments
+     *
+     * @return - the value returned by the method (null if it is void)
+     */
+    private static Object invoke(@Nonnull MethodHandle[] handles, @Nonnull Method[] methods, int index, Object instance,
+                                 @Nonnull Object[] args) throws Exception {
+        MethodHandle handle = handles[index];
+        if (handle == null) {
+            handle = handles[index] = generic(MethodHandles.lookup().unreflect(methods[index]), 1);
+        }
+        try {
+            switch (args.length) {
+                case 0: return (Object) handle.invokeExact(instance);
+                case 1: return (Object) handle.invokeExact(instance, args[0]);
+                case 2: return (Object) handle.invokeExact(instance, args[0], args[1]);
+                case 3: return (Object) handle.invokeExact(instance, args[0], args[1], args[2]);
+                default: return (Object) handle.invokeExact(instance, args);
+            }
+        }
+        catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Compiles a field marked with @Inject into a handle taking the instance and the value as Objects
+     */
+    private static MethodHandle setterHandleOf(@Nonnull Field field) throws IllegalAccessException {
+        return MethodHandles.lookup().unreflectSetter(field)
+                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+    }
+
+    /**
+     * Compiles the constructor marked with @Inject (or the no-arg constructor if there is none) into a handle taking
+     * and returning Objects (see generic()) - as with Constructor.newInstance, the constructor must
+     * be accessible to Novocaine
+     *
+     * @param type - the class to instantiate
+     * @param constructor - the constructor marked with @Inject (or null)
+     *
+     * @return - the handle which invokes the constructor
+     */
+    private static MethodHandle constructorHandleOf(@Nonnull Class<?> type, Constructor<?> constructor) throws Exception {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle = constructor != null
+                ? lookup.unreflectConstructor(constructor)
+                : lookup.findConstructor(type, MethodType.methodType(void.class));
+        return generic(handle, 0);
+    }
+
+    /**
+     * Converts a constructor or method handle to take and return Objects. Up to MAX_EXACT_ARITY arguments are passed
+     * individually - calling a handle with its exact arguments is considerably cheaper than spreading an array - while
+     * any more are spread from a single Object[]
+     *
+     * @param handle - the handle of the constructor or method
+     * @param leading - the number of leading parameters which are never spread (1 for the instance of a method)
+     *
+     * @return - the converted handle
+     */
+    private static MethodHandle generic(@Nonnull MethodHandle handle, int leading) {
+        int arity = handle.type().parameterCount() - leading;
+        if (arity <= MAX_EXACT_ARITY) {
+            return handle.asType(MethodType.genericMethodType(leading + arity));
+        }
+        return handle.asSpreader(Object[].class, arity)
+                .asType(MethodType.genericMethodType(leading, true));
+    }
+
+    /**
+     * Invokes a handle compiled by constructorHandleOf() with the supplied arguments
+     */
+    private static Object invoke(@Nonnull MethodHandle handle, @Nonnull Object[] args) throws Throwable {
+        switch (args.length) {
+            case 0: return (Object) handle.invokeExact();
+            case 1: return (Object) handle.invokeExact(args[0]);
+            case 2: return (Object) handle.invokeExact(args[0], args[1]);
+            case 3: return (Object) handle.invokeExact(args[0], args[1], args[2]);
+            default: return (Object) handle.invokeExact(args);
+        }
+    }
+
+    /**
+     * @return - the supplied exception (to be thrown by the caller) - or throws it directly if it is an Error
+     */
+    private static Exception rethrow(@Nonnull Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return t instanceof Exception ? (Exception) t : new RuntimeException(t);
+    }
+
+    /**
+     * Determines the dependencies of a method marked with @Inject - if the method itself is annotated with @Named or a
+     * @Qualifier-associated annotation, then that annotation applies to its single parameter
+     *
+     * @param method - the method marked with @Inject
+     *
+     * @return - the dependencies of each of the method's parameters
+     */
+    private static Dependency[] injectMethodDependencies(@Nonnull Method method) {
+        Dependency methodDependency = dependencyOf(Object.class, method.getDeclaredAnnotations());
+        if (methodDependency.getNamed() == null && methodDependency.getQualifier() == null) {
+            return dependenciesOf(method);
+        }
+        // the method is annotated, it MUST only have one parameter:
+        if (method.getParameterCount() != 1) {
+            throw new RuntimeException("Method " + method.getDeclaringClass().getName() + "#" + method.getName()
+                    + " requires " + method.getParameterCount() + " parameters but is annotated with @Named or a @Qualifier-associated annotation");
+        }
+        Dependency parameter = dependencyOf(method.getGenericParameterTypes()[0], new Annotation[0]);
+        return new Dependency[] {
+                parameter.isProvider()
+                        ? Dependency.provider(parameter.getType(), methodDependency.getNamed(), methodDependency.getQualifier())
+                        : Dependency.of(parameter.getType(), methodDependency.getNamed(), methodDependency.getQualifier())
+        };
+    }
+
+    /**
+     * Determines the dependencies of each parameter of a constructor or method
+     *
+     * @param executable - the constructor or method
+     *
+     * @return - the dependencies of each parameter
+     */
+    private static Dependency[] dependenciesOf(@Nonnull Executable executable) {
+        Type[] parameterTypes = executable.getGenericParameterTypes();
+        if (parameterTypes.length != executable.getParameterCount()) {
+            // the generic signature omits synthetic parameters (e.g. the outer instance of an inner class)
+            parameterTypes = executable.getParameterTypes();
+        }
+        Annotation[][] parameterAnnotations = executable.getParameterAnnotations();
+        Dependency[] dependencies = new Dependency[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            dependencies[i] = dependencyOf(parameterTypes[i], parameterAnnotations[i]);
+        }
+        return dependencies;
+    }
+
+    /**
+     * Determines the dependency of a single field or parameter from its type and annotations
+     *
+     * @param type - the declared (generic) type of the field or parameter
+     * @param annotations - the annotations of the field or parameter
+     *
+     * @return - the dependency
+     */
+    static Dependency dependencyOf(@Nonnull Type type, @Nonnull Annotation[] annotations) {
+        String named = null;
+        Class<? extends Annotation> qualifier = null;
+        for (Annotation annotation : annotations) {
+            if (annotation.annotationType() == Named.class) {
+                if (named == null) {
+                    named = ((Named) annotation).value();
+                }
+            }
+            else if (qualifier == null && annotation.annotationType().isAnnotationPresent(Qualifier.class)) {
+                qualifier = annotation.annotationType();
+            }
+        }
+        if (rawTypeOf(type) == Provider.class) {
+            if (!(type instanceof ParameterizedType)) {
+                throw new RuntimeException("javax.inject.Provider must declare the type it provides: " + type.getTypeName());
+            }
+            return Dependency.provider(rawTypeOf(((ParameterizedType) type).getActualTypeArguments()[0]), named, qualifier);
+        }
+        return Dependency.of(rawTypeOf(type), named, qualifier);
+    }
+
+    /**
+     * @return - the erasure of the supplied (generic) type
+     */
+    private static Class<?> rawTypeOf(@Nonnull Type type) {
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof TypeVariable) {
+            return rawTypeOf(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        if (type instanceof WildcardType) {
+            return rawTypeOf(((WildcardType) type).getUpperBounds()[0]);
+        }
+        if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawTypeOf(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        return (Class<?>) type;
+    }
+}
@@ -0,0 +1,193 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import javax.inject.Provider;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An explicitly entered and exited scope - within enter() and exit() on a thread, one instance of each scoped class is
+ * constructed on its first get() and every later get() on that thread returns it. Instances are released by exit().
+ *
+ * Usage:
+ *      RequestScope.REQUEST.enter();
+ *      try {
+ *          handlers.get().handle(request);
+ *      }
+ *      finally {
+ *          RequestScope.REQUEST.exit();
+ *      }
+ *
+ * Every scoped class is assigned a slot when it is scoped, and each thread reuses a single array of slots for all of
+ * its requests - so entering, exiting and retrieving an instance already constructed within the request allocate
+ * nothing. The slot is released once the class's scoped Provider (along with the Injector which scoped it) has been
+ * garbage collected and assigned to the next class scoped, so the slots of a scope shared by many Injectors (such as
+ * REQUEST) never outnumber the scoped classes of the live ones. A get() outside of the scope fails: inject a Provider of
+ * a scoped class into singletons.
+ */
+public final class RequestScope implements NovocaineScope {
+
+    /**
+     * The scope of @RequestScoped classes
+     */
+    public static final RequestScope REQUEST = new RequestScope("request");
+
+    private final String name;
+
+    /**
+     * The number of slots assigned to scoped classes
+     */
+    final AtomicInteger slots = new AtomicInteger();
+
+    /**
+     * The slots whose scoped Provider has been garbage collected - assigned again before any new slot
+     */
+    private final Queue<Integer> released = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The slot of every scoped Provider - held until the Provider has been garbage collected and its slot released
+     */
+    private final Set<Slot> assigned = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<Provider<?>> collected = new ReferenceQueue<>();
+
+    private final ThreadLocal<Context> contexts = ThreadLocal.withInitial(Context::new);
+
+    /**
+     * @param name - the name of the scope, e.g. "job"
+     */
+    public RequestScope(@Nonnull String name) {
+        this.name = name;
+    }
+
+    /**
+     * Enters the scope on the calling thread
+     */
+    public void enter() {
+        Context context = contexts.get();
+        if (context.active) {
+            throw new RuntimeException("RequestScope#enter called twice: the " + name + " scope is already active on this thread");
+        }
+        context.active = true;
+    }
+
+    /**
+     * Exits the scope on the calling thread, releasing every instance constructed within it
+     */
+    public void exit() {
+        Context context = contexts.get();
+        if (!context.active) {
+            throw new RuntimeException("RequestScope#exit called without enter: the " + name + " scope is not active on this thread");
+        }
+        Arrays.fill(context.instances, 0, context.used, null);
+        Arrays.fill(context.owners, 0, context.used, null);
+        context.used = 0;
+        context.active = false;
+    }
+
+    /**
+     * @return - true if the scope has been entered (and not yet exited) on the calling thread
+     */
+    public boolean isActive() {
+        return contexts.get().active;
+    }
+
+    @Override
+    public <T> Provider<T> scope(@Nonnull Class<T> type, @Nonnull Provider<T> unscoped) {
+        for (Reference<?> reference = collected.poll(); reference != null; reference = collected.poll()) {
+            Slot slot = (Slot) reference;
+            assigned.remove(slot);
+            released.add(slot.index);
+        }
+        Integer free = released.poll();
+        Scoped<T> scoped = new Scoped<>(free != null ? free : slots.getAndIncrement(), type, unscoped);
+        assigned.add(new Slot(scoped, collected));
+        return scoped;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestScope(" + name + ")";
+    }
+
+    /**
+     * The Provider of a scoped class - constructs one instance per request in its slot
+     */
+    private final class Scoped<T> implements Provider<T> {
+
+        private final int slot;
+        private final Class<T> type;
+        private final Provider<T> unscoped;
+
+        Scoped(int slot, @Nonnull Class<T> type, @Nonnull Provider<T> unscoped) {
+            this.slot = slot;
+            this.type = type;
+            this.unscoped = unscoped;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get() {
+            Context context = contexts.get();
+            if (!context.active) {
+                throw new RuntimeException("No " + name + " scope is active on this thread, cannot provide: " + type.getName());
+            }
+            // a released slot may still hold the instance of the Provider it was assigned to before
+            if (slot < context.instances.length && context.owners[slot] == this) {
+                return (T) context.instances[slot];
+            }
+            // constructing the instance may fill (and grow) other slots first
+            T instance = unscoped.get();
+            context.store(slot, this, instance);
+            return instance;
+        }
+    }
+
+    /**
+     * The slot assigned to a scoped Provider - enqueued once the Provider has been garbage collected
+     */
+    private static final class Slot extends WeakReference<Provider<?>> {
+
+        private final int index;
+
+        Slot(@Nonnull Scoped<?> scoped, @Nonnull ReferenceQueue<Provider<?>> collected) {
+            super(scoped, collected);
+            this.index = scoped.slot;
+        }
+    }
+
+    /**
+     * The slots of one thread - reused by all of its requests
+     */
+    private static final class Context {
+
+        private Object[] instances = new Object[16];
+
+        /**
+         * The scoped Provider which stored each instance
+         */
+        private Object[] owners = new Object[16];
+
+        /**
+         * The slots which may be filled - one past the highest slot stored since the scope was entered
+         */
+        private int used;
+        private boolean active;
+
+        void store(int slot, Object owner, Object instance) {
+            if (slot >= instances.length) {
+                instances = Arrays.copyOf(instances, Math.max(slot + 1, instances.length * 2));
+                owners = Arrays.copyOf(owners, instances.length);
+            }
+            instances[slot] = instance;
+            owners[slot] = owner;
+            used = Math.max(used, slot + 1);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Every injection point of the dependency graph, indexed by the binding which provides its value - retained after
+ * Novocaine.inject() (see NovocaineConfig.Builder#rebindable()) so that a singleton may be replaced at runtime by
+ * revisiting only the injection points which depend upon it, directly or transitively
+ *
+ * A dependent injected through its fields or methods is re-injected in place. A dependent whose constructor depends
+ * upon a replaced binding is constructed anew, as is the object supplied by a method marked with @Singleton, and the
+ * Prototype of an unscoped (or scoped) dependent resolves its dependencies again on its next get() - each of which in
+ * turn replaces a binding, so their own dependents are revisited in the same way.
+ *
+ * Holds nothing of the dependency graph itself, which is discarded once every singleton has been instantiated.
+ */
+final class ReverseDependencyIndex {
+
+    static final int CONSTRUCTOR = 0;
+    static final int FIELD = 1;
+    static final int METHOD = 2;
+    static final int SUPPLIER = 3;
+    static final int INSTANCE = 4;
+
+    private final Injector injector;
+    private final Object topLevel;
+
+    /**
+     * The injection points whose value is provided by each binding
+     */
+    private final Map<BindingKey, List<InjectionSite>> sites = new HashMap<>();
+
+    ReverseDependencyIndex(@Nonnull Injector injector, @Nonnull Object topLevel) {
+        this.injector = injector;
+        this.topLevel = topLevel;
+    }
+
+    /**
+     * Records an injection point of the supplied dependent
+     *
+     * @param binding - the binding which provides the value of the injection point
+     * @param dependent - the class, Prototype or method marked with @Singleton declaring the injection point
+     * @param kind - CONSTRUCTOR, FIELD, METHOD, SUPPLIER (a parameter of the method marked with @Singleton, or the
+     *             instance it is invoked upon) or INSTANCE (the dependent is the object supplied by the binding)
+     * @param index - the index of the field or method within its factory (unused for constructors and suppliers)
+     */
+    void add(@Nonnull BindingKey binding, @Nonnull Dependent dependent, int kind, int index) {
+        sites.computeIfAbsent(binding, key -> new ArrayList<>()).add(new InjectionSite(dependent, kind, index));
+    }
+
+    /**
+     * Replaces the singleton of the supplied binding and revisits every injection point which depends upon it, in
+     * dependency order - each dependent once, however many of its injection points were affected
+     *
+     * A qualified or @Named binding is replaced just as the object supplied by a method marked with @Singleton would
+     * be, so it takes precedence over the class it was resolved to before - which is itself left in place.
+     *
+     * @param binding - the binding of the singleton
+     * @param instance - the singleton replacing it
+     */
+    void rebind(@Nonnull BindingKey binding, @Nonnull Object instance) {
+        if (binding.getNamed() != null) {
+            injector.helper.suppliedNamedAnnotationMap.put(NovocaineHelper.namedKey(binding.getNamed()), instance);
+        }
+        else if (binding.getQualifier() != null) {
+            injector.helper.suppliedQualifierAnnotationMap.put(binding, instance);
+        }
+        else {
+            injector.injectableProvider.put(binding.getType(), instance);
+            injector.handles.remove(binding.getType());
+        }
+
+        // the dependents left to revisit, by their position in the graph's topological order
+        TreeMap<Integer, Pending> pending = new TreeMap<>();
+        schedule(binding, pending);
+        while (!pending.isEmpty()) {
+            Pending next = pending.pollFirstEntry().getValue();
+            if (revisit(next)) {
+                // the dependent is now a different object (or Prototype) - its own dependents must be revisited too
+                schedule(next.dependent.key, pending);
+            }
+        }
+    }
+
+    /**
+     * Adds every injection point depending upon the supplied binding to those pending
+     */
+    private void schedule(@Nonnull BindingKey binding, @Nonnull TreeMap<Integer, Pending> pending) {
+        for (InjectionSite site : sites.getOrDefault(binding, Collections.emptyList())) {
+            Pending dependent = pending.computeIfAbsent(site.dependent.position, position -> new Pending(site.dependent));
+            switch (site.kind) {
+                case CONSTRUCTOR:
+                case SUPPLIER:
+                    dependent.constructed = true;
+                    break;
+                case FIELD:
+                    dependent.fields.set(site.index);
+                    break;
+                case INSTANCE:
+                    // a new object was supplied - every field and method must be injected into it
+                    dependent.fields.set(0, dependent.dependent.factory.fieldDependencies().length);
+                    dependent.methods.set(0, dependent.dependent.factory.methodDependencies().length);
+                    break;
+                default:
+                    dependent.methods.set(site.index);
+            }
+        }
+    }
+
+    /**
+     * Revisits the affected injection points of a single dependent
+     *
+     * @return - true if the dependent's binding now provides a different object
+     */
+    private boolean revisit(@Nonnull Pending pending) {
+        Dependent dependent = pending.dependent;
+        if (dependent.prototype != null) {
+            dependent.prototype.reset();
+            return true;
+        }
+        // a lazy singleton which was never instantiated resolves the new binding when it is
+        boolean topLevelClass = dependent.type == topLevel.getClass();
+        if (!topLevelClass && !injector.injectableProvider.containsKey(dependent.type)) {
+            return false;
+        }
+        if (dependent.supplierIndex >= 0) {
+            injector.helper.resupply(dependent.type, dependent.factory, dependent.supplierIndex, topLevel);
+            Dependency supplied = dependent.factory.supplierKeys()[dependent.supplierIndex];
+            if (supplied.getQualifier() == null && supplied.getNamed() == null) {
+                injector.handles.remove(supplied.getType());
+            }
+            return true;
+        }
+        if (pending.constructed && !topLevelClass) {
+            injector.helper.reconstruct(dependent.type, dependent.factory);
+            injector.handles.remove(dependent.type);
+            return true;
+        }
+        for (int i = pending.fields.nextSetBit(0); i >= 0; i = pending.fields.nextSetBit(i + 1)) {
+            injector.helper.injectField(dependent.type, dependent.factory, i, topLevel);
+        }
+        for (int i = pending.methods.nextSetBit(0); i >= 0; i = pending.methods.nextSetBit(i + 1)) {
+            injector.helper.injectMethod(dependent.type, dependent.factory, i, topLevel);
+        }
+        return false;
+    }
+
+    /**
+     * A node of the dependency graph which declares injection points
+     */
+    static final class Dependent {
+
+        /**
+         * The class which is instantiated, or the class which declares the method marked with @Singleton
+         */
+        final Class<?> type;
+
+        final NovocaineFactory<Object> factory;
+
+        /**
+         * The binding this node provides
+         */
+        final BindingKey key;
+
+        /**
+         * The index of this node in the topological order of the graph
+         */
+        final int position;
+
+        /**
+         * The index of the method marked with @Singleton within the factory's supplierKeys() (or -1)
+         */
+        final int supplierIndex;
+
+        /**
+         * The Prototype constructing every instance of an unscoped or scoped class (or null)
+         */
+        final Prototype<?> prototype;
+
+        Dependent(@Nonnull Class<?> type, @Nonnull NovocaineFactory<Object> factory, @Nonnull BindingKey key, int position,
+                  int supplierIndex, Prototype<?> prototype) {
+            this.type = type;
+            this.factory = factory;
+            this.key = key;
+            this.position = position;
+            this.supplierIndex = supplierIndex;
+            this.prototype = prototype;
+        }
+    }
+
+    private static final class InjectionSite {
+
+        final Dependent dependent;
+        final int kind;
+        final int index;
+
+        InjectionSite(@Nonnull Dependent dependent, int kind, int index) {
+            this.dependent = dependent;
+            this.kind = kind;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The affected injection points of a dependent which is yet to be revisited
+     */
+    private static final class Pending {
+
+        final Dependent dependent;
+        final BitSet fields = new BitSet();
+        final BitSet methods = new BitSet();
+
+        /**
+         * Whether a constructor parameter (or a parameter of the method marked with @Singleton) is affected
+         */
+        boolean constructed;
+
+        Pending(@Nonnull Dependent dependent) {
+            this.dependent = dependent;
+        }
+    }
+}
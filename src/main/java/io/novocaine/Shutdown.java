@@ -0,0 +1,187 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The singletons an Injector shuts down - every singleton which has a method marked with @PreDestroy or implements
+ * AutoCloseable, each linked to the others among them which depend upon it (directly or through singletons which need
+ * no shutting down), so that no singleton is shut down while one still using it is running
+ *
+ * Holds nothing of the dependency graph itself, which is discarded once every singleton has been instantiated.
+ */
+final class Shutdown {
+
+    private final Injector injector;
+
+    /**
+     * The singletons to shut down, each following every singleton it depends upon
+     */
+    private final List<Entry> entries;
+
+    Shutdown(@Nonnull Injector injector, @Nonnull List<Entry> entries) {
+        this.injector = injector;
+        this.entries = entries;
+    }
+
+    /**
+     * Shuts down every singleton on the calling thread, those depending upon others first
+     */
+    void run() {
+        List<Throwable> failures = new ArrayList<>();
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            try {
+                shutDown(entries.get(i));
+            }
+            catch (RuntimeException e) {
+                failures.add(e);
+            }
+        }
+        throwIfFailed(failures);
+    }
+
+    /**
+     * Shuts down every singleton on the supplied executor, each as soon as every singleton depending upon it has been
+     * shut down (or has failed or timed out) - independent singletons are shut down concurrently
+     *
+     * @param executor - the executor on which to shut down the singletons
+     * @param timeout - the longest time to wait for any single singleton
+     * @param unit - the unit of the timeout
+     */
+    void run(@Nonnull Executor executor, long timeout, @Nonnull TimeUnit unit) {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "novocaine-shutdown-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // walk the entries backwards so that the futures of a singleton's dependents exist before its own
+            Map<Entry, CompletableFuture<Void>> futures = new HashMap<>();
+            List<CompletableFuture<Void>> order = new ArrayList<>(entries.size());
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                Entry entry = entries.get(i);
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                CompletableFuture<?>[] dependents = entry.dependents.stream()
+                        .map(futures::get)
+                        .toArray(CompletableFuture[]::new);
+                // a dependent which failed or timed out does not hold up the singletons it depends upon
+                CompletableFuture.allOf(dependents).whenComplete((result, failure) -> {
+                    timer.schedule(() -> future.completeExceptionally(new RuntimeException("Timed out after "
+                            + unit.toMillis(timeout) + "ms shutting down singleton: " + entry.description)), timeout, unit);
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                shutDown(entry);
+                                future.complete(null);
+                            }
+                            catch (Throwable t) {
+                                future.completeExceptionally(t);
+                            }
+                        });
+                    }
+                    catch (RejectedExecutionException e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+                futures.put(entry, future);
+                order.add(future);
+            }
+
+            List<Throwable> failures = new ArrayList<>();
+            for (CompletableFuture<Void> future : order) {
+                try {
+                    future.join();
+                }
+                catch (CompletionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+            throwIfFailed(failures);
+        }
+        finally {
+            timer.shutdownNow();
+        }
+    }
+
+    /**
+     * Invokes the methods marked with @PreDestroy of the supplied singleton, or otherwise its close() - unless it was
+     * never instantiated (a lazy singleton which was never used)
+     */
+    private void shutDown(@Nonnull Entry entry) {
+        Object instance = entry.factory != null
+                ? injector.injectableProvider.get(entry.declaringClass)
+                : injector.helper.suppliedBy(entry.key);
+        if (instance == null) {
+            return;
+        }
+        try (NovocaineEvents.Span span = NovocaineEvents.injection(entry.declaringClass, "preDestroy", null)) {
+            if (entry.factory != null && entry.factory.hasPreDestroy()) {
+                entry.factory.preDestroy(instance);
+            }
+            else if (instance instanceof AutoCloseable) {
+                ((AutoCloseable) instance).close();
+            }
+        }
+        catch (Exception e) {
+            throw new RuntimeException("Cannot shut down singleton: " + entry.description, e);
+        }
+    }
+
+    private static void throwIfFailed(@Nonnull List<Throwable> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        RuntimeException e = new RuntimeException("Novocaine#shutdown failed to shut down " + failures.size()
+                + " singleton(s): " + failures.get(0).getMessage(), failures.get(0));
+        failures.stream().skip(1).forEach(e::addSuppressed);
+        throw e;
+    }
+
+    /**
+     * A singleton to shut down
+     */
+    static final class Entry {
+
+        /**
+         * The class of the singleton, or the class which declares the method marked with @Singleton supplying it
+         */
+        final Class<?> declaringClass;
+
+        /**
+         * The binding key of the singleton, for messages
+         */
+        final String description;
+
+        /**
+         * The factory of the singleton's class (or null if the singleton is supplied by a method marked with @Singleton)
+         */
+        final NovocaineFactory<Object> factory;
+
+        /**
+         * The binding key of the method marked with @Singleton supplying the singleton (or null)
+         */
+        final Dependency key;
+
+        /**
+         * The singletons to shut down before this one
+         */
+        final List<Entry> dependents = new ArrayList<>();
+
+        Entry(@Nonnull Class<?> declaringClass, @Nonnull String description, NovocaineFactory<Object> factory, Dependency key) {
+            this.declaringClass = declaringClass;
+            this.description = description;
+            this.factory = factory;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package io.novocaine;
+
+import javax.inject.Provider;
+
+/**
+ * The Provider returned by Novocaine.handle() for a singleton - holds the singleton (or null if Novocaine has no
+ * singleton of the type) in a final field, so every get() is a single field read which the JIT may hoist out of loops
+ *
+ * @param <T> - the type of the singleton
+ */
+final class SingletonHandle<T> implements Provider<T> {
+
+    private final T instance;
+
+    SingletonHandle(T instance) {
+        this.instance = instance;
+    }
+
+    @Override
+    public T get() {
+        return instance;
+    }
+
+    @Override
+    public String toString() {
+        return "SingletonHandle<" + (instance != null ? instance.getClass().getName() : "null") + ">";
+    }
+}
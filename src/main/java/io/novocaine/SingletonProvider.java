@@ -0,0 +1,41 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import javax.inject.Provider;
+
+/**
+ * The javax.inject.Provider injected into every field or parameter declared as Provider<T> - retrieves the singleton
+ * on its first get() (instantiating it then if it is lazy or has not been instantiated yet) and caches it
+ *
+ * Once get() has returned the singleton, every further call costs a single volatile read. No lock is ever taken by the
+ * provider itself: threads racing on the first get() each resolve the singleton, but always resolve the same instance.
+ *
+ * @param <T> - the type of the singleton
+ */
+class SingletonProvider<T> implements Provider<T> {
+
+    private final NovocaineHelper helper;
+    private final Dependency dependency;
+    private volatile T instance;
+
+    SingletonProvider(@Nonnull NovocaineHelper helper, @Nonnull Dependency dependency) {
+        this.helper = helper;
+        this.dependency = dependency;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get() {
+        T result = instance;
+        if (result == null) {
+            result = (T) helper.resolveProvided(dependency);
+            instance = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return dependency.toString();
+    }
+}
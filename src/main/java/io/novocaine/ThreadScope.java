@@ -0,0 +1,24 @@
+package io.novocaine;
+
+import javax.annotation.Nonnull;
+import javax.inject.Provider;
+
+/**
+ * The scope of @ThreadScoped classes - each thread constructs its own instance of a class on its first get(), which is
+ * then held (by a ThreadLocal of the class) for as long as the thread lives
+ *
+ * Register it for further scope annotations with NovocaineConfig.Builder#scope(annotation, new ThreadScope())
+ */
+public final class ThreadScope implements NovocaineScope {
+
+    @Override
+    public <T> Provider<T> scope(@Nonnull Class<T> type, @Nonnull Provider<T> unscoped) {
+        ThreadLocal<T> instances = ThreadLocal.withInitial(unscoped::get);
+        return instances::get;
+    }
+
+    @Override
+    public String toString() {
+        return "ThreadScope";
+    }
+}
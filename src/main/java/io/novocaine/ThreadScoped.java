@@ -0,0 +1,23 @@
+package io.novocaine;
+
+import javax.inject.Scope;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class of which one instance is constructed per thread - on the thread's first injection, Provider.get() or
+ * Novocaine.get() of the class (see ThreadScope)
+ *
+ * Usage:
+ *      \@ThreadScoped
+ *      public class DateFormatter { ... }
+ */
+@Scope
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ThreadScoped {
+}
@@ -0,0 +1,202 @@
+package io.novocaine;
+
+import io.novocaine.example.service.BackgroundService;
+import io.novocaine.example.service.InitServiceTwo;
+import io.novocaine.example.service.LowLevelService;
+import io.novocaine.example.service.PostConstruct;
+import io.novocaine.example.service.TopLevelService;
+import org.junit.Test;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class BackgroundTest {
+
+    @Test
+    public void test_background() {
+        List<Runnable> tasks = new ArrayList<>();
+        Injector injector = injected(tasks);
+        assertFalse(injector.injectableProvider.containsKey(BackgroundService.class));
+        assertEquals(1, tasks.size());
+
+        assertFalse(injector.warmedUp().isDone());
+        tasks.forEach(Runnable::run);
+        assertTrue(injector.warmedUp().isDone());
+        assertFalse(injector.warmedUp().isCompletedExceptionally());
+        BackgroundService service = (BackgroundService) injector.injectableProvider.get(BackgroundService.class);
+        assertNotNull(service);
+        assertTrue(service.isWarm());
+        assertSame(service, injector.get(BackgroundService.class));
+        assertSame(injector.get(LowLevelService.class), service.getLowLevelService());
+    }
+
+    @Test
+    public void test_background_getFirst() {
+        List<Runnable> tasks = new ArrayList<>();
+        Injector injector = injected(tasks);
+        BackgroundService service = injector.get(BackgroundService.class);
+        assertTrue(service.isWarm());
+
+        // the background task finds the singleton already instantiated
+        tasks.forEach(Runnable::run);
+        assertSame(service, injector.get(BackgroundService.class));
+    }
+
+    @Test
+    public void test_background_configured() {
+        List<Runnable> tasks = new ArrayList<>();
+        Injector injector = new Injector();
+        injector.inject(new TopLevelService(), NovocaineConfig.builder()
+                .packages("io.novocaine.example")
+                .background(InitServiceTwo.class)
+                .backgroundExecutor(tasks::add)
+                .build());
+        assertFalse(injector.injectableProvider.containsKey(InitServiceTwo.class));
+        assertEquals(2, tasks.size());
+
+        tasks.forEach(Runnable::run);
+        assertTrue(injector.get(InitServiceTwo.class).isInitialized());
+    }
+
+    @Test
+    public void test_background_failure() {
+        List<Runnable> tasks = new ArrayList<>();
+        Injector injector = new Injector();
+        DependencyGraph graph = DependencyGraph.build(injector, Collections.singletonList(Failing.class), new Object(),
+                NovocaineConfig.builder().backgroundExecutor(tasks::add).build());
+        graph.instantiate(null);
+        CompletableFuture<Void> warmedUp = graph.warmUp();
+        tasks.forEach(Runnable::run);
+
+        // the failure is reported rather than swallowed
+        try {
+            warmedUp.join();
+            fail("Expected the warm-up to fail");
+        }
+        catch (CompletionException e) {
+            assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains(Failing.class.getName()));
+        }
+        // and the singleton is left to be instantiated - and to fail again - on first use
+        assertFalse(injector.injectableProvider.containsKey(Failing.class));
+        try {
+            graph.instantiateLazily(Failing.class);
+            fail("Expected the first use to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(Failing.class.getName()));
+        }
+    }
+
+    @Test
+    public void test_background_getDuringWarmUp() throws Exception {
+        Warming.constructed = new CountDownLatch(1);
+        Warming.released = new CountDownLatch(1);
+        Injector injector = new Injector();
+        DependencyGraph graph = DependencyGraph.build(injector, Collections.singletonList(Warming.class), new Object(),
+                NovocaineConfig.builder().backgroundExecutor(runnable -> new Thread(runnable).start()).build());
+        graph.instantiate(null);
+        injector.graph = graph;
+        injector.injected = true;
+        CompletableFuture<Void> warmedUp = graph.warmUp();
+
+        // the background thread has constructed the singleton, but has not finished its @PostConstruct method
+        Warming.constructed.await();
+        AtomicReference<Warming> got = new AtomicReference<>();
+        Thread getter = new Thread(() -> got.set(injector.get(Warming.class)));
+        getter.start();
+
+        // the get() waits for the warm-up rather than returning the singleton half-initialised
+        awaitBlocked(getter);
+        Warming.released.countDown();
+        getter.join();
+        warmedUp.join();
+        assertTrue(got.get().isWarm());
+        assertSame(got.get(), injector.get(Warming.class));
+    }
+
+    @Test
+    public void test_background_postConstructFailure() {
+        List<Runnable> tasks = new ArrayList<>();
+        Injector injector = new Injector();
+        DependencyGraph graph = DependencyGraph.build(injector, Collections.singletonList(FailingPostConstruct.class),
+                new Object(), NovocaineConfig.builder().backgroundExecutor(tasks::add).build());
+        graph.instantiate(null);
+        CompletableFuture<Void> warmedUp = graph.warmUp();
+        tasks.forEach(Runnable::run);
+        assertTrue(warmedUp.isCompletedExceptionally());
+
+        // the constructed singleton is not left behind half-initialised
+        assertFalse(injector.injectableProvider.containsKey(FailingPostConstruct.class));
+    }
+
+    /**
+     * Waits until the supplied thread blocks on a lock - failing if it completes instead
+     */
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.BLOCKED) {
+            if (thread.getState() == Thread.State.TERMINATED) {
+                fail("Expected " + thread.getName() + " to wait for the singleton to be initialised");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static Injector injected(List<Runnable> tasks) {
+        Injector injector = new Injector();
+        injector.inject(new TopLevelService(), NovocaineConfig.builder()
+                .packages("io.novocaine.example")
+                .backgroundExecutor(tasks::add)
+                .build());
+        return injector;
+    }
+
+    @Background
+    @Singleton
+    public static class Failing {
+
+        @Inject
+        public Failing() {
+            throw new IllegalStateException("cold");
+        }
+    }
+
+    @Background
+    @Singleton
+    public static class Warming {
+
+        static volatile CountDownLatch constructed;
+        static volatile CountDownLatch released;
+
+        private volatile boolean warm;
+
+        @PostConstruct
+        void warm() throws InterruptedException {
+            constructed.countDown();
+            released.await();
+            warm = true;
+        }
+
+        boolean isWarm() {
+            return warm;
+        }
+    }
+
+    @Background
+    @Singleton
+    public static class FailingPostConstruct {
+
+        @PostConstruct
+        void warm() {
+            throw new IllegalStateException("cold");
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package io.novocaine;
+
+import io.novocaine.example.qualifier.CashPayment;
+import io.novocaine.example.qualifier.CashPaymentImpl;
+import io.novocaine.example.service.FifthLevelService;
+import io.novocaine.example.service.TopLevelService;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class BindingIndexTest {
+
+    @Test
+    public void test_load_records() throws IOException {
+        BindingIndex index = load(
+                "# comment",
+                "singleton\tio.novocaine.example.service.TopLevelService",
+                "inject\tio.novocaine.example.service.FifthLevelService",
+                "named\tmy\\tname\tio.novocaine.example.service.FifthLevelService",
+                "qualifier\tio.novocaine.example.qualifier.CashPayment\tio.novocaine.example.qualifier.CashPaymentImpl");
+        assertNotNull(index);
+        assertEquals(3, index.getClasses().size());
+        assertTrue(index.getClasses().contains(TopLevelService.class));
+        assertTrue(index.getNamed().get("my\tname").contains(FifthLevelService.class));
+        assertTrue(index.getQualifiers().get(CashPayment.class).contains(CashPaymentImpl.class));
+    }
+
+    @Test
+    public void test_load_noIndex() {
+        assertNull(BindingIndex.load(new URLClassLoader(new URL[0], null), url -> true, className -> true));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_load_unknownClass() throws IOException {
+        load("singleton\tio.novocaine.example.service.DoesNotExist");
+    }
+
+    @Test
+    public void test_load_excludedIndex() throws IOException {
+        Path root = index("singleton\tio.novocaine.example.service.TopLevelService");
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { root.toUri().toURL() }, BindingIndexTest.class.getClassLoader())) {
+            assertNull(BindingIndex.load(classLoader, url -> false, className -> true));
+        }
+    }
+
+    @Test
+    public void test_inject_unprocessedClassInIndexedDirectory() throws Exception {
+        // Unprocessed was compiled next to the indexed classes, but without the processor
+        Path app = compileApp();
+        index(app, "inject\tcom.example.indexed.App", "singleton\tcom.example.indexed.Indexed");
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { app.toUri().toURL() }, BindingIndexTest.class.getClassLoader())) {
+            inject(classLoader);
+            fail("Expected a class missing from the binding index to fail injection");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("com.example.indexed.Unprocessed is missing from the binding index"));
+        }
+    }
+
+    @Test
+    public void test_inject_scansDirectoryWithoutIndex() throws Exception {
+        Path app = compileApp();
+        index(app, "inject\tcom.example.indexed.App", "singleton\tcom.example.indexed.Indexed",
+                "singleton\tcom.example.indexed.Unprocessed");
+        // a second directory of the same package, compiled without the processor - nothing depends upon its class
+        Path plugin = Files.createTempDirectory("novocaine-plugin");
+        compile(plugin, app + File.pathSeparator + System.getProperty("java.class.path"), "com.example.indexed.Standalone",
+                "package com.example.indexed;\n" +
+                "@javax.inject.Singleton\n" +
+                "public class Standalone { @javax.inject.Inject public Indexed indexed; }\n");
+
+        URL[] urls = { app.toUri().toURL(), plugin.toUri().toURL() };
+        try (URLClassLoader classLoader = new URLClassLoader(urls, BindingIndexTest.class.getClassLoader())) {
+            Injector injector = inject(classLoader);
+            Class<?> standalone = classLoader.loadClass("com.example.indexed.Standalone");
+            assertNotNull(standalone.getField("indexed").get(injector.get(standalone)));
+        }
+    }
+
+    @Test
+    public void test_inject_indexOutsidePackages() throws Exception {
+        // a library's index which lists nothing within the configured packages - the application is scanned
+        Path app = compileApp();
+        compile(app, app + File.pathSeparator + System.getProperty("java.class.path"), "com.example.indexed.Listener",
+                "package com.example.indexed;\n" +
+                "@javax.inject.Singleton\n" +
+                "public class Listener { @javax.inject.Inject public Indexed indexed; }\n");
+        Path library = index("singleton\torg.library.Client");
+        URL[] urls = { app.toUri().toURL(), library.toUri().toURL() };
+        try (URLClassLoader classLoader = new URLClassLoader(urls, BindingIndexTest.class.getClassLoader())) {
+            Injector injector = inject(classLoader);
+            Class<?> listener = classLoader.loadClass("com.example.indexed.Listener");
+            assertNotNull(listener.getField("indexed").get(injector.get(listener)));
+        }
+    }
+
+    @Test
+    public void test_unescape() {
+        assertEquals("a\tb\nc\\d", BindingIndex.unescape("a\\tb\\nc\\\\d"));
+        assertEquals("plain", BindingIndex.unescape("plain"));
+    }
+
+    private static BindingIndex load(String... lines) throws IOException {
+        Path root = index(lines);
+        // only the temporary directory may contribute indexes, the classes themselves come from the test classpath
+        URL rootUrl = root.toUri().toURL();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { rootUrl }, BindingIndexTest.class.getClassLoader())) {
+            return BindingIndex.load(classLoader, url -> url.toString().startsWith(rootUrl.toString()), className -> true);
+        }
+    }
+
+    private static Path index(String... lines) throws IOException {
+        return index(Files.createTempDirectory("novocaine-index"), lines);
+    }
+
+    private static Path index(Path root, String... lines) throws IOException {
+        Path file = root.resolve(BindingIndex.LOCATION);
+        Files.createDirectories(file.getParent());
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return root;
+    }
+
+    /**
+     * Compiles a small application into a new directory, which the test classpath knows nothing of
+     */
+    private static Path compileApp() throws IOException {
+        Path root = Files.createTempDirectory("novocaine-app");
+        String classpath = System.getProperty("java.class.path");
+        compile(root, classpath, "com.example.indexed.Unprocessed",
+                "package com.example.indexed;\n" +
+                "@javax.inject.Singleton\n" +
+                "public class Unprocessed { }\n");
+        classpath = root + File.pathSeparator + classpath;
+        compile(root, classpath, "com.example.indexed.Indexed",
+                "package com.example.indexed;\n" +
+                "@javax.inject.Singleton\n" +
+                "public class Indexed { @javax.inject.Inject public Unprocessed unprocessed; }\n");
+        compile(root, classpath, "com.example.indexed.App",
+                "package com.example.indexed;\n" +
+                "public class App { @javax.inject.Inject public Indexed indexed; }\n");
+        return root;
+    }
+
+    private static void compile(Path root, String classpath, String name, String code) throws IOException {
+        Path source = Files.createTempDirectory("novocaine-source").resolve(name.substring(name.lastIndexOf('.') + 1) + ".java");
+        Files.write(source, Collections.singletonList(code), StandardCharsets.UTF_8);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, "-proc:none", "-classpath", classpath, "-d", root.toString(), source.toString()));
+    }
+
+    private static Injector inject(ClassLoader classLoader) throws Exception {
+        Injector injector = new Injector();
+        injector.inject(classLoader.loadClass("com.example.indexed.App").newInstance(),
+                NovocaineConfig.builder().packages("com.example.indexed").build());
+        return injector;
+    }
+}
@@ -0,0 +1,125 @@
+package io.novocaine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Defines (once) a long chain of distinct, empty classes at runtime, along with factories which make each class in the
+ * chain depend upon the one before it - graphs far deeper than any thread's stack, without compiling a class for each
+ */
+final class ChainClasses {
+
+    static final int DEPTH = 100_000;
+
+    private static List<Class<?>> classes;
+
+    private ChainClasses() {
+    }
+
+    /**
+     * @return - the classes of the chain, in order
+     */
+    static synchronized List<Class<?>> classes() {
+        if (classes == null) {
+            Loader loader = new Loader();
+            List<Class<?>> defined = new ArrayList<>(DEPTH);
+            for (int i = 0; i < DEPTH; i++) {
+                defined.add(loader.define("io/novocaine/chain/Link" + i));
+            }
+            classes = Collections.unmodifiableList(defined);
+        }
+        return classes;
+    }
+
+    /**
+     * Builds the factory of a class in the chain - its constructor takes the previous class in the chain (if any) and
+     * every instance is an Object[] holding the previous instance
+     *
+     * @param index - the position of the class in the chain
+     */
+    @SuppressWarnings("unchecked")
+    static NovocaineFactory<Object> factory(int index) {
+        List<Class<?>> chain = classes();
+        Dependency[] dependencies = index == 0
+                ? new Dependency[0]
+                : new Dependency[] { Dependency.of(chain.get(index - 1), null, null) };
+        return new ReflectiveFactory<Object>((Class<Object>) chain.get(index)) {
+            @Override
+            public boolean hasInjectConstructor() {
+                return true;
+            }
+
+            @Override
+            public Dependency[] constructorDependencies() {
+                return dependencies;
+            }
+
+            @Override
+            public Object newInstance(Object[] args) {
+                return new Object[] { args.length > 0 ? args[0] : null };
+            }
+        };
+    }
+
+    /**
+     * @return - the number of instances linked from the supplied one, including itself
+     */
+    static int depthOf(Object instance) {
+        int depth = 0;
+        for (Object link = instance; link != null; link = ((Object[]) link)[0]) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private static final class Loader extends ClassLoader {
+
+        Loader() {
+            super(ChainClasses.class.getClassLoader());
+        }
+
+        Class<?> define(String internalName) {
+            byte[] bytes = emptyClass(internalName);
+            return defineClass(internalName.replace('/', '.'), bytes, 0, bytes.length);
+        }
+
+        /**
+         * Writes the class file of a public class with no members which extends Object
+         */
+        private static byte[] emptyClass(String internalName) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(52);
+                // constant pool: #1 this class, #2 its name, #3 the superclass, #4 its name
+                out.writeShort(5);
+                out.writeByte(7);
+                out.writeShort(2);
+                out.writeByte(1);
+                out.writeUTF(internalName);
+                out.writeByte(7);
+                out.writeShort(4);
+                out.writeByte(1);
+                out.writeUTF("java/lang/Object");
+                // public super, this, super, then no interfaces, fields, methods or attributes
+                out.writeShort(0x0021);
+                out.writeShort(1);
+                out.writeShort(3);
+                out.writeShort(0);
+                out.writeShort(0);
+                out.writeShort(0);
+                out.writeShort(0);
+                return bytes.toByteArray();
+            }
+            catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
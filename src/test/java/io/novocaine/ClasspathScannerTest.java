@@ -0,0 +1,71 @@
+package io.novocaine;
+
+import io.novocaine.example.qualifier.CashPaymentImpl;
+import io.novocaine.example.qualifier.CreditPayment;
+import io.novocaine.example.qualifier.CreditPaymentImpl;
+import io.novocaine.example.service.FifthLevelService;
+import io.novocaine.example.service.TopLevelService;
+import org.junit.Test;
+import org.reflections.Reflections;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ClasspathScannerTest {
+
+    @Test
+    public void test_scan_defaultsToTopLevelPackage() {
+        Reflections reflections = ClasspathScanner.scan(NovocaineConfig.builder().build(), new TopLevelService());
+        Set<Class<?>> classes = reflections.getSubTypesOf(Object.class);
+        assertTrue(classes.contains(FifthLevelService.class));
+        assertFalse(classes.contains(CashPaymentImpl.class));
+        assertFalse(classes.contains(Test.class));
+    }
+
+    @Test
+    public void test_scan_packages() {
+        NovocaineConfig config = NovocaineConfig.builder().packages("io.novocaine.example.qualifier").build();
+        Reflections reflections = ClasspathScanner.scan(config, new TopLevelService());
+        Set<Class<?>> classes = reflections.getSubTypesOf(Object.class);
+        assertTrue(classes.contains(CashPaymentImpl.class));
+        assertFalse(classes.contains(FifthLevelService.class));
+        assertTrue(reflections.getTypesAnnotatedWith(CreditPayment.class, true).contains(CreditPaymentImpl.class));
+    }
+
+    @Test
+    public void test_scan_excludePackages() {
+        NovocaineConfig config = NovocaineConfig.builder()
+                .packages("io.novocaine.example")
+                .excludePackages("io.novocaine.example.qualifier")
+                .build();
+        Set<Class<?>> classes = ClasspathScanner.scan(config, new TopLevelService()).getSubTypesOf(Object.class);
+        assertTrue(classes.contains(FifthLevelService.class));
+        assertFalse(classes.contains(CashPaymentImpl.class));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_scan_excludeJars() {
+        NovocaineConfig config = NovocaineConfig.builder()
+                .packages("io.novocaine.example")
+                .excludeJars("test-classes")
+                .build();
+        ClasspathScanner.scan(config, new TopLevelService());
+    }
+
+    @Test
+    public void test_scan_parallel() {
+        // io.novocaine spans target/classes and target/test-classes
+        NovocaineConfig config = NovocaineConfig.builder().packages("io.novocaine").scanParallelism(4).build();
+        Reflections reflections = ClasspathScanner.scan(config, new TopLevelService());
+        Set<Class<?>> classes = reflections.getSubTypesOf(Object.class);
+        assertTrue(classes.contains(NovocaineHelper.class));
+        assertTrue(classes.contains(FifthLevelService.class));
+        assertTrue(reflections.getTypesAnnotatedWith(CreditPayment.class, true).contains(CreditPaymentImpl.class));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_config_invalidScanParallelism() {
+        NovocaineConfig.builder().scanParallelism(0);
+    }
+}
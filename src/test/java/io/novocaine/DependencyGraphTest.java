@@ -0,0 +1,185 @@
+package io.novocaine;
+
+import io.novocaine.example.qualifier.CashPayment;
+import io.novocaine.example.qualifier.CreditPayment;
+import io.novocaine.example.service.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class DependencyGraphTest {
+
+    @Test
+    public void test_order_dependenciesFirst() {
+        DependencyGraph graph = DependencyGraph.build(new Injector(), Collections.singleton(FifthLevelService.class), new Object(), NovocaineConfig.builder().build());
+        List<Class<?>> order = graph.order().stream().map(node -> node.type).collect(Collectors.toList());
+
+        assertEquals(5, order.size());
+        assertTrue(order.indexOf(LowLevelService.class) < order.indexOf(SecondLevelService.class));
+        assertTrue(order.indexOf(SecondLevelService.class) < order.indexOf(ThirdLevelService.class));
+        assertTrue(order.indexOf(ThirdLevelService.class) < order.indexOf(FourthLevelService.class));
+        assertTrue(order.indexOf(FourthLevelService.class) < order.indexOf(FifthLevelService.class));
+    }
+
+    @Test
+    public void test_order_circularDependency() {
+        // the cycle is only visible through these factories, so that scanning the test classes does not pick it up
+        NovocaineHelper.registeredFactories.put(CycleOne.class, constructorDependingOn(CycleOne.class, CycleTwo.class));
+        NovocaineHelper.registeredFactories.put(CycleTwo.class, constructorDependingOn(CycleTwo.class, CycleOne.class));
+        try {
+            DependencyGraph graph = DependencyGraph.build(new Injector(), Arrays.asList(LowLevelService.class, CycleOne.class), new Object(), NovocaineConfig.builder().build());
+            graph.order();
+            fail("Expected circular dependency");
+        }
+        catch (RuntimeException e) {
+            assertEquals("Circular Dependency Detected: " + CycleOne.class.getName() + " -[constructor]-> "
+                    + CycleTwo.class.getName() + " -[constructor]-> " + CycleOne.class.getName(), e.getMessage());
+        }
+        finally {
+            NovocaineHelper.registeredFactories.remove(CycleOne.class);
+            NovocaineHelper.registeredFactories.remove(CycleTwo.class);
+        }
+    }
+
+    @Test
+    public void test_order_everyCycle() {
+        NovocaineHelper.registeredFactories.put(CycleOne.class, constructorDependingOn(CycleOne.class, CycleTwo.class));
+        NovocaineHelper.registeredFactories.put(CycleTwo.class, constructorDependingOn(CycleTwo.class, CycleOne.class));
+        NovocaineHelper.registeredFactories.put(CycleThree.class, constructorDependingOn(CycleThree.class, CycleThree.class));
+        try {
+            DependencyGraph graph = DependencyGraph.build(new Injector(), Arrays.asList(CycleThree.class, CycleOne.class), new Object(), NovocaineConfig.builder().build());
+            graph.order();
+            fail("Expected circular dependencies");
+        }
+        catch (RuntimeException e) {
+            assertEquals("Circular Dependency Detected: 2 cycles"
+                    + "\n    " + CycleThree.class.getName() + " -[constructor]-> " + CycleThree.class.getName()
+                    + "\n    " + CycleOne.class.getName() + " -[constructor]-> " + CycleTwo.class.getName() + " -[constructor]-> " + CycleOne.class.getName(),
+                    e.getMessage());
+        }
+        finally {
+            NovocaineHelper.registeredFactories.remove(CycleOne.class);
+            NovocaineHelper.registeredFactories.remove(CycleTwo.class);
+            NovocaineHelper.registeredFactories.remove(CycleThree.class);
+        }
+    }
+
+    @Test
+    public void test_build_duplicateSupplier() {
+        // the suppliers are only visible through these factories, so that scanning the test classes does not pick them up
+        NovocaineHelper.registeredFactories.put(SupplierOne.class, supplying(SupplierOne.class, Dependency.of(LowLevelService.class, null, null)));
+        NovocaineHelper.registeredFactories.put(SupplierTwo.class, supplying(SupplierTwo.class, Dependency.of(LowLevelService.class, null, null)));
+        try {
+            DependencyGraph.build(new Injector(), Arrays.asList(SupplierOne.class, SupplierTwo.class), new Object(), NovocaineConfig.builder().build());
+            fail("Expected duplicate supplier");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Duplicate @Singleton methods supplying: " + LowLevelService.class.getName()));
+        }
+        finally {
+            NovocaineHelper.registeredFactories.remove(SupplierOne.class);
+            NovocaineHelper.registeredFactories.remove(SupplierTwo.class);
+        }
+    }
+
+    @Test
+    public void test_build_qualifiedSuppliers() {
+        NovocaineHelper.registeredFactories.put(SupplierOne.class, supplying(SupplierOne.class, Dependency.of(LowLevelService.class, null, CashPayment.class)));
+        NovocaineHelper.registeredFactories.put(SupplierTwo.class, supplying(SupplierTwo.class, Dependency.of(LowLevelService.class, null, CreditPayment.class)));
+        try {
+            DependencyGraph graph = DependencyGraph.build(new Injector(), Arrays.asList(SupplierOne.class, SupplierTwo.class), new Object(), NovocaineConfig.builder().build());
+            List<Class<?>> order = graph.order().stream().map(node -> node.declaringClass).collect(Collectors.toList());
+            assertEquals(Arrays.asList(SupplierOne.class, SupplierTwo.class, SupplierOne.class, SupplierTwo.class), order);
+        }
+        finally {
+            NovocaineHelper.registeredFactories.remove(SupplierOne.class);
+            NovocaineHelper.registeredFactories.remove(SupplierTwo.class);
+        }
+    }
+
+    @Test
+    public void test_export() {
+        DependencyGraph graph = DependencyGraph.build(new Injector(), Collections.singleton(FifthLevelService.class), new Object(), NovocaineConfig.builder().recordGraph().build());
+        graph.order();
+        GraphExport export = graph.export();
+
+        // nothing has been instantiated - every node is recorded without a cost
+        String json = export.toJson();
+        assertTrue(json, json.contains("\"key\": \"" + FourthLevelService.class.getName() + "\", \"kind\": \"class\""));
+        assertTrue(json, json.contains("\"nanos\": -1"));
+        assertEquals(json, 5, json.split("\"kind\": \"field\"", -1).length - 1);
+        assertEquals(0, export.getCriticalPathNanos());
+
+        String dot = export.toDot();
+        assertTrue(dot, dot.startsWith("digraph novocaine {"));
+        assertTrue(dot, dot.contains("style=dotted"));
+        assertEquals(dot, 5, dot.split(" -> ", -1).length - 1);
+    }
+
+    @Test
+    public void test_instantiate_deepChain() {
+        List<Class<?>> chain = ChainClasses.classes();
+        for (int i = 0; i < chain.size(); i++) {
+            NovocaineHelper.registeredFactories.put(chain.get(i), ChainClasses.factory(i));
+        }
+        try {
+            // only the end of the chain is found - every other class is discovered by linking
+            Class<?> last = chain.get(chain.size() - 1);
+            Injector injector = new Injector();
+            DependencyGraph graph = DependencyGraph.build(injector, Collections.singleton(last), new Object(), NovocaineConfig.builder().build());
+            graph.instantiate(null);
+            assertEquals(ChainClasses.DEPTH, ChainClasses.depthOf(injector.injectableProvider.get(last)));
+        }
+        finally {
+            chain.forEach(NovocaineHelper.registeredFactories::remove);
+        }
+    }
+
+    private static <T> NovocaineFactory<T> supplying(Class<T> type, Dependency key) {
+        return new ReflectiveFactory<T>(type) {
+            @Override
+            public Dependency[] supplierKeys() {
+                return new Dependency[] { key };
+            }
+
+            @Override
+            public Dependency[][] supplierDependencies() {
+                return new Dependency[][] { new Dependency[0] };
+            }
+        };
+    }
+
+    private static <T> NovocaineFactory<T> constructorDependingOn(Class<T> type, Class<?> dependency) {
+        return new ReflectiveFactory<T>(type) {
+            @Override
+            public boolean hasInjectConstructor() {
+                return true;
+            }
+
+            @Override
+            public Dependency[] constructorDependencies() {
+                return new Dependency[] { Dependency.of(dependency, null, null) };
+            }
+        };
+    }
+
+    public static class CycleOne {
+    }
+
+    public static class CycleTwo {
+    }
+
+    public static class CycleThree {
+    }
+
+    public static class SupplierOne {
+    }
+
+    public static class SupplierTwo {
+    }
+}
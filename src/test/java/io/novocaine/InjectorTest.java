@@ -0,0 +1,197 @@
+package io.novocaine;
+
+import io.novocaine.example.qualifier.CreditPayment;
+import io.novocaine.example.qualifier.CreditPaymentImpl;
+import io.novocaine.example.service.FifthLevelService;
+import io.novocaine.example.service.LowLevelService;
+import io.novocaine.example.service.PostConstruct;
+import io.novocaine.example.service.TopLevelService;
+import org.junit.Test;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class InjectorTest {
+
+    @Test
+    public void test_inject_isolated() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Injector>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    Injector injector = new Injector();
+                    injector.inject(new TopLevelService(), config());
+                    return injector;
+                }));
+            }
+            List<Injector> injectors = new ArrayList<>();
+            for (Future<Injector> future : futures) {
+                injectors.add(future.get());
+            }
+
+            for (Injector injector : injectors) {
+                TopLevelService topLevel = injector.get(TopLevelService.class);
+                assertNotNull(topLevel);
+                assertSame(injector.get(FifthLevelService.class), topLevel.getFifthLevelService());
+                assertEquals(CreditPaymentImpl.class, injector.helper.qualifierAnnotationMap.get(CreditPayment.class));
+            }
+            // every injector holds its own singletons
+            assertNotSame(injectors.get(0).get(FifthLevelService.class), injectors.get(1).get(FifthLevelService.class));
+            assertNotSame(injectors.get(2).handle(FifthLevelService.class).get(), injectors.get(3).handle(FifthLevelService.class).get());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_inject_once() {
+        Injector injector = new Injector();
+        injector.inject(new TopLevelService(), config());
+        try {
+            injector.inject(new TopLevelService(), config());
+            fail("Expected the second inject to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("once per Injector"));
+        }
+    }
+
+    @Test
+    public void test_child() {
+        Injector injector = new Injector();
+        injector.inject(new TopLevelService(), config());
+        LowLevelService bound = new LowLevelService();
+        Injector child = injector.child().bind(LowLevelService.class, bound);
+        Injector grandchild = child.child();
+
+        assertSame(bound, child.get(LowLevelService.class));
+        assertSame(bound, grandchild.get(LowLevelService.class));
+        assertSame(bound, grandchild.handle(LowLevelService.class).get());
+        assertNotSame(bound, injector.get(LowLevelService.class));
+        // everything else falls through to the root
+        assertSame(injector.get(FifthLevelService.class), grandchild.get(FifthLevelService.class));
+        assertSame(injector.get(FifthLevelService.class), child.handle(FifthLevelService.class).get());
+
+        try {
+            injector.bind(LowLevelService.class, bound);
+            fail("Expected bind on a root Injector to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("child Injector"));
+        }
+        try {
+            child.inject(new TopLevelService(), config());
+            fail("Expected inject on a child Injector to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("child Injector"));
+        }
+    }
+
+    @Test
+    public void test_discarded_collected() throws Exception {
+        Injector injector = new Injector();
+        injector.inject(new TopLevelService(), config());
+        injector.helper.prototypes.put(Unscoped.class, new Prototype<>(injector.helper, Unscoped.class, NovocaineHelper.factoryFor(Unscoped.class)));
+        assertNotNull(injector.get(FifthLevelService.class));
+        assertNotNull(injector.handle(LowLevelService.class).get());
+        assertNotNull(injector.get(Unscoped.class));
+
+        // nothing held by the classes it looked up (or by their factories) may keep the injector reachable - a
+        // Prototype holds its injector
+        WeakReference<Injector> discarded = new WeakReference<>(injector);
+        injector = null;
+        for (int i = 0; i < 50 && discarded.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(discarded.get());
+    }
+
+    @Test
+    public void test_lazy_concurrentGet() throws Exception {
+        LazyWarming.constructed = new CountDownLatch(1);
+        LazyWarming.released = new CountDownLatch(1);
+        Injector injector = new Injector();
+        DependencyGraph graph = DependencyGraph.build(injector, Collections.singletonList(LazyWarming.class), new Object(),
+                NovocaineConfig.builder().build());
+        graph.instantiate(null);
+        injector.graph = graph;
+        injector.injected = true;
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // the first get() has constructed the singleton, but has not finished its @PostConstruct method
+            Future<LazyWarming> first = executor.submit(() -> injector.get(LazyWarming.class));
+            LazyWarming.constructed.await();
+            AtomicReference<Thread> second = new AtomicReference<>();
+            Future<LazyWarming> racing = executor.submit(() -> {
+                second.set(Thread.currentThread());
+                return injector.get(LazyWarming.class);
+            });
+
+            // the second get() waits for the first to initialise the singleton rather than returning it half-initialised
+            while (second.get() == null || second.get().getState() != Thread.State.BLOCKED) {
+                assertFalse("Expected the second get() to wait for the singleton to be initialised", racing.isDone());
+                Thread.sleep(1);
+            }
+            LazyWarming.released.countDown();
+            assertTrue(first.get().isWarm());
+            assertSame(first.get(), racing.get());
+            assertEquals(1, LazyWarming.instances.get());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private static NovocaineConfig config() {
+        return NovocaineConfig.builder().packages("io.novocaine.example").build();
+    }
+
+    public static class Unscoped {
+
+        @Inject
+        LowLevelService lowLevelService;
+    }
+
+    @Lazy
+    @Singleton
+    public static class LazyWarming {
+
+        static final AtomicInteger instances = new AtomicInteger();
+        static volatile CountDownLatch constructed;
+        static volatile CountDownLatch released;
+
+        private volatile boolean warm;
+
+        public LazyWarming() {
+            instances.incrementAndGet();
+        }
+
+        @PostConstruct
+        void warm() throws InterruptedException {
+            constructed.countDown();
+            released.await();
+            warm = true;
+        }
+
+        boolean isWarm() {
+            return warm;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.novocaine;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class NovocaineEventsTest {
+
+    @Test
+    public void test_phase_noRecording() {
+        assertFalse(NovocaineEvents.recording);
+        try (NovocaineEvents.Span first = NovocaineEvents.phase("scan");
+             NovocaineEvents.Span second = NovocaineEvents.phase("graph")) {
+            // without a running recording every span is the shared no-op
+            assertSame(first, second);
+        }
+    }
+
+    @Test
+    public void test_phase_recorded() throws Exception {
+        Path file = Files.createTempFile("novocaine", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("io.novocaine.Phase");
+            recording.start();
+            assertTrue(NovocaineEvents.recording);
+
+            try (NovocaineEvents.Span span = NovocaineEvents.phase("scan")) {
+                Thread.sleep(1);
+            }
+            recording.stop();
+            assertFalse(NovocaineEvents.recording);
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("io.novocaine.Phase"))
+                    .collect(Collectors.toList());
+            assertEquals(1, events.size());
+            assertEquals("scan", events.get(0).getString("phase"));
+            assertTrue(events.get(0).getDuration().toNanos() >= 1_000_000);
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+}
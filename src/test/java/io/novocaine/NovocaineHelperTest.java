@@ -7,6 +7,17 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import javax.inject.Named;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
 
 import static org.junit.Assert.*;
 
@@ -23,14 +34,14 @@ public class NovocaineHelperTest {
      */
     @Test
     public void test_qualifier_creditPayment() {
-        Class<?> creditPayment = NovocaineHelper.qualifierAnnotationMap.get(CreditPayment.class);
+        Class<?> creditPayment = Novocaine.defaultInjector.helper.qualifierAnnotationMap.get(CreditPayment.class);
         assertNotNull(creditPayment);
         assertEquals(creditPayment, CreditPaymentImpl.class);
     }
 
     @Test
     public void test_qualifier_cashPayment() {
-        Class<?> cashPayment = NovocaineHelper.qualifierAnnotationMap.get(CashPayment.class);
+        Class<?> cashPayment = Novocaine.defaultInjector.helper.qualifierAnnotationMap.get(CashPayment.class);
         assertNotNull(cashPayment);
         assertEquals(cashPayment, CashPaymentImpl.class);
     }
@@ -40,7 +51,7 @@ public class NovocaineHelperTest {
      */
     @Test
     public void test_named_debitPayment() {
-        Class<?> debitPayment = NovocaineHelper.namedAnnotationMap.get(DebitPaymentImpl.class.getAnnotation(Named.class).toString());
+        Class<?> debitPayment = Novocaine.defaultInjector.helper.namedAnnotationMap.get(DebitPaymentImpl.class.getAnnotation(Named.class).toString());
         assertNotNull(debitPayment);
         assertEquals(debitPayment, DebitPaymentImpl.class);
     }
@@ -184,6 +195,66 @@ public class NovocaineHelperTest {
         assertNotNull(subClass.getDebitPayment());
     }
 
+    /**
+     * Provider Injection Tests
+     */
+    @Test
+    public void test_providerInjection_field() {
+        ProviderInjectionService providerInjectionService = Novocaine.get(ProviderInjectionService.class);
+        assertNotNull(providerInjectionService);
+        assertNotNull(providerInjectionService.getLowLevelService());
+        assertSame(Novocaine.get(LowLevelService.class), providerInjectionService.getLowLevelService().get());
+        assertSame(providerInjectionService.getLowLevelService().get(), providerInjectionService.getLowLevelService().get());
+    }
+
+    @Test
+    public void test_providerInjection_constructorQualifier() {
+        ProviderInjectionService providerInjectionService = Novocaine.get(ProviderInjectionService.class);
+        assertNotNull(providerInjectionService);
+        assertTrue(providerInjectionService.getCreditPayment().get() instanceof CreditPaymentImpl);
+    }
+
+    @Test
+    public void test_providerInjection_methodNamed() {
+        ProviderInjectionService providerInjectionService = Novocaine.get(ProviderInjectionService.class);
+        assertNotNull(providerInjectionService);
+        assertTrue(providerInjectionService.getDebitPayment().get() instanceof DebitPaymentImpl);
+    }
+
+    @Test
+    public void test_providerInjection_breaksCycle() {
+        ProviderCycleServiceOne one = Novocaine.get(ProviderCycleServiceOne.class);
+        assertNotNull(one);
+        ProviderCycleServiceTwo two = one.getProviderCycleServiceTwo().get();
+        assertNotNull(two);
+        assertSame(one, two.getProviderCycleServiceOne());
+    }
+
+
+    /**
+     * Lazy Instantiation Tests
+     */
+    @Test
+    public void test_lazy() {
+        assertFalse(Novocaine.defaultInjector.injectableProvider.containsKey(LazyService.class));
+        LazyService lazyService = Novocaine.get(LazyService.class);
+        assertNotNull(lazyService);
+        assertEquals(Novocaine.get(LowLevelService.class), lazyService.getLowLevelService());
+        assertSame(lazyService, Novocaine.get(LazyService.class));
+    }
+
+
+    /**
+     * Handle Tests
+     */
+    @Test
+    public void test_handle() {
+        assertSame(Novocaine.handle(LowLevelService.class), Novocaine.handle(LowLevelService.class));
+        assertSame(Novocaine.get(LowLevelService.class), Novocaine.handle(LowLevelService.class).get());
+        assertNull(Novocaine.handle(Runnable.class).get());
+        assertNull(Novocaine.get(Runnable.class));
+    }
+
 
     /**
      * Recursive Injection Tests
@@ -222,4 +293,51 @@ public class NovocaineHelperTest {
         assertEquals(lowLevelServiceFromSecondFromFourthLevelService, lowLevelServiceFromSecondFromThirdLevelService);
         assertEquals(lowLevelServiceFromSecondFromThirdLevelService, Novocaine.get(LowLevelService.class));
     }
-}
\ No newline at end of file
+
+    /**
+     * Generated Factory Tests
+     */
+    @Test
+    public void test_factoryFor_generated() throws Exception {
+        Path root = Files.createTempDirectory("novocaine-generated");
+        String classpath = System.getProperty("java.class.path");
+        compile(root, classpath, "com.example.generated.Widget",
+                "package com.example.generated;\n" +
+                "public class Widget { public static class Part { } }\n");
+        compile(root, root + File.pathSeparator + classpath, "com.example.generated.Widget_NovocaineFactory",
+                "package com.example.generated;\n" +
+                "import io.novocaine.Dependency;\n" +
+                "public final class Widget_NovocaineFactory implements io.novocaine.NovocaineFactory<Widget> {\n" +
+                "    public Class<Widget> type() { return Widget.class; }\n" +
+                "    public boolean hasInjectConstructor() { return false; }\n" +
+                "    public Dependency[] constructorDependencies() { return new Dependency[0]; }\n" +
+                "    public Widget newInstance(Object[] args) { return new Widget(); }\n" +
+                "    public Dependency[] fieldDependencies() { return new Dependency[0]; }\n" +
+                "    public void injectField(Widget instance, int index, Object value) { }\n" +
+                "    public Dependency[][] methodDependencies() { return new Dependency[0][]; }\n" +
+                "    public void injectMethod(Widget instance, int index, Object[] args) { }\n" +
+                "    public Dependency[] supplierKeys() { return new Dependency[0]; }\n" +
+                "    public Dependency[][] supplierDependencies() { return new Dependency[0][]; }\n" +
+                "    public Object invokeSupplier(Widget instance, int index, Object[] args) { return null; }\n" +
+                "}\n");
+        Path services = root.resolve("META-INF/services/io.novocaine.NovocaineFactory");
+        Files.createDirectories(services.getParent());
+        Files.write(services, Arrays.asList("# generated", "com.example.generated.Widget_NovocaineFactory"), StandardCharsets.UTF_8);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { root.toUri().toURL() }, getClass().getClassLoader())) {
+            Class<?> widget = classLoader.loadClass("com.example.generated.Widget");
+            NovocaineFactory<Object> factory = NovocaineHelper.factoryFor(widget);
+            assertEquals("com.example.generated.Widget_NovocaineFactory", factory.getClass().getName());
+            assertSame(factory, NovocaineHelper.factoryFor(widget));
+            // a class without a generated factory falls back to reflection
+            assertTrue(NovocaineHelper.factoryFor(classLoader.loadClass("com.example.generated.Widget$Part")) instanceof ReflectiveFactory);
+        }
+    }
+
+    private static void compile(Path root, String classpath, String name, String code) throws IOException {
+        Path source = Files.createTempDirectory("novocaine-source").resolve(name.substring(name.lastIndexOf('.') + 1) + ".java");
+        Files.write(source, Collections.singletonList(code), StandardCharsets.UTF_8);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, "-proc:none", "-classpath", classpath, "-d", root.toString(), source.toString()));
+    }
+}
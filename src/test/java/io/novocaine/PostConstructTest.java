@@ -0,0 +1,51 @@
+package io.novocaine;
+
+import io.novocaine.example.service.InitServiceOne;
+import io.novocaine.example.service.InitServiceTwo;
+import io.novocaine.example.service.TopLevelService;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PostConstructTest {
+
+    @Test
+    public void test_postConstruct() {
+        Injector injector = new Injector();
+        CompletableFuture<Void> ready = injector.inject(new TopLevelService(), NovocaineConfig.builder()
+                .packages("io.novocaine.example")
+                .build());
+
+        assertTrue(ready.isDone());
+        InitServiceTwo two = injector.get(InitServiceTwo.class);
+        assertTrue(two.isInitialized());
+        assertTrue(two.isInitializedAfterDependency());
+        assertSame(Thread.currentThread(), injector.get(InitServiceOne.class).getInitThread());
+    }
+
+    @Test
+    public void test_postConstruct_async() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Injector injector = new Injector();
+            CompletableFuture<Void> ready = injector.inject(new TopLevelService(), NovocaineConfig.builder()
+                    .packages("io.novocaine.example")
+                    .asyncPostConstruct(executor)
+                    .build());
+
+            ready.get(10, TimeUnit.SECONDS);
+            InitServiceTwo two = injector.get(InitServiceTwo.class);
+            assertTrue(two.isInitialized());
+            assertTrue(two.isInitializedAfterDependency());
+            assertNotSame(Thread.currentThread(), injector.get(InitServiceOne.class).getInitThread());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package io.novocaine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PrototypeTest {
+
+    private Injector injector;
+    private NovocaineHelper helper;
+
+    @Before
+    public void setup() {
+        injector = new Injector();
+        helper = injector.helper;
+        helper.prototypes.put(Parser.class, new Prototype<>(helper, Parser.class, NovocaineHelper.factoryFor(Parser.class)));
+    }
+
+    @Test
+    public void test_get_newInstance() {
+        Prototype<Object> handlers = new Prototype<>(helper, Handler.class, NovocaineHelper.factoryFor(Handler.class));
+        Handler first = (Handler) handlers.get();
+        Handler second = (Handler) handlers.get();
+        assertNotSame(first, second);
+        assertNotNull(first.parser);
+        assertNotSame(first.parser, second.parser);
+    }
+
+    @Test
+    public void test_get_provider() {
+        Handler handler = (Handler) new Prototype<>(helper, Handler.class, NovocaineHelper.factoryFor(Handler.class)).get();
+        assertTrue(handler.parsers instanceof Prototype);
+        assertNotSame(handler.parsers.get(), handler.parsers.get());
+    }
+
+    @Test
+    public void test_get_childBinding() {
+        helper.prototypes.put(Handler.class, new Prototype<>(helper, Handler.class, NovocaineHelper.factoryFor(Handler.class)));
+        Parser bound = new Parser();
+        Injector child = injector.child().bind(Parser.class, bound);
+
+        Handler handler = child.get(Handler.class);
+        assertSame(bound, handler.parser);
+        // a Provider<T> is resolved by the root
+        assertNotSame(bound, handler.parsers.get());
+        assertSame(bound, child.child().get(Handler.class).parser);
+        assertNotSame(bound, ((Handler) helper.prototypes.get(Handler.class).get()).parser);
+    }
+
+    @Test
+    public void test_get_deepChain() {
+        List<Class<?>> chain = ChainClasses.classes();
+        for (int i = 0; i < chain.size(); i++) {
+            helper.prototypes.put(chain.get(i), new Prototype<>(helper, chain.get(i), ChainClasses.factory(i)));
+        }
+        Object last = helper.prototypes.get(chain.get(chain.size() - 1)).get();
+        assertEquals(ChainClasses.DEPTH, ChainClasses.depthOf(last));
+    }
+
+    public static class Parser {
+    }
+
+    public static class Handler {
+
+        private final Parser parser;
+
+        @Inject
+        private Provider<Parser> parsers;
+
+        @Inject
+        public Handler(Parser parser) {
+            this.parser = parser;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.novocaine;
+
+import io.novocaine.example.qualifier.CashPaymentImpl;
+import io.novocaine.example.qualifier.CreditPayment;
+import io.novocaine.example.qualifier.CreditPaymentImpl;
+import io.novocaine.example.qualifier.DebitPaymentImpl;
+import io.novocaine.example.qualifier.Payment;
+import io.novocaine.example.service.ConstructorInjectionService;
+import io.novocaine.example.service.FieldInjectionService;
+import io.novocaine.example.service.LowLevelService;
+import io.novocaine.example.service.MethodInjectionService;
+import io.novocaine.example.service.PaymentReportService;
+import io.novocaine.example.service.TopLevelService;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RebindTest {
+
+    @Test
+    public void test_rebind() {
+        Injector injector = injected(NovocaineConfig.builder().packages("io.novocaine.example").rebindable().build());
+        FieldInjectionService fieldInjectionService = injector.get(FieldInjectionService.class);
+        MethodInjectionService methodInjectionService = injector.get(MethodInjectionService.class);
+        ConstructorInjectionService constructorInjectionService = injector.get(ConstructorInjectionService.class);
+        LowLevelService lowLevelService = injector.get(LowLevelService.class);
+
+        CashPaymentImpl cashPayment = new CashPaymentImpl();
+        injector.rebind(CashPaymentImpl.class, cashPayment);
+        assertSame(cashPayment, injector.get(CashPaymentImpl.class));
+        assertSame(cashPayment, injector.handle(CashPaymentImpl.class).get());
+
+        // fields and methods are re-injected in place
+        assertSame(fieldInjectionService, injector.get(FieldInjectionService.class));
+        assertSame(cashPayment, fieldInjectionService.getCashPayment());
+        assertSame(methodInjectionService, injector.get(MethodInjectionService.class));
+        assertSame(cashPayment, methodInjectionService.getCashPayment());
+
+        // a constructor dependency constructs the dependent anew, which is then re-injected into its own dependents
+        ConstructorInjectionService rebuilt = injector.get(ConstructorInjectionService.class);
+        assertNotSame(constructorInjectionService, rebuilt);
+        assertSame(cashPayment, rebuilt.getCashPayment());
+        assertSame(constructorInjectionService.getCreditPayment(), rebuilt.getCreditPayment());
+        assertSame(rebuilt, injector.handle(ConstructorInjectionService.class).get());
+        assertSame(rebuilt, injector.get(PaymentReportService.class).getConstructorInjectionService());
+
+        // nothing else is touched
+        assertSame(lowLevelService, injector.get(LowLevelService.class));
+    }
+
+    @Test
+    public void test_rebind_qualified() {
+        Injector injector = injected(NovocaineConfig.builder().packages("io.novocaine.example").rebindable().build());
+        FieldInjectionService fieldInjectionService = injector.get(FieldInjectionService.class);
+        MethodInjectionService methodInjectionService = injector.get(MethodInjectionService.class);
+        ConstructorInjectionService constructorInjectionService = injector.get(ConstructorInjectionService.class);
+        CreditPaymentImpl creditPaymentImpl = injector.get(CreditPaymentImpl.class);
+        DebitPaymentImpl debitPaymentImpl = injector.get(DebitPaymentImpl.class);
+
+        // swap the implementation of an interface marked with a qualifier
+        Payment credit = () -> { };
+        injector.rebind(Payment.class, CreditPayment.class, credit);
+        assertSame(credit, fieldInjectionService.getCreditPayment());
+        assertSame(credit, methodInjectionService.getCreditPayment());
+        ConstructorInjectionService rebuilt = injector.get(ConstructorInjectionService.class);
+        assertNotSame(constructorInjectionService, rebuilt);
+        assertSame(credit, rebuilt.getCreditPayment());
+        assertSame(rebuilt, injector.get(PaymentReportService.class).getConstructorInjectionService());
+
+        // ...and one marked with @Named
+        Payment debit = () -> { };
+        injector.rebind(Payment.class, "debit", debit);
+        assertSame(debit, fieldInjectionService.getDebitPayment());
+        assertSame(debit, methodInjectionService.getDebitPayment());
+        assertSame(debit, injector.get(ConstructorInjectionService.class).getDebitPayment());
+        assertSame(credit, injector.get(ConstructorInjectionService.class).getCreditPayment());
+
+        // the classes the bindings resolved to before keep their singletons
+        assertSame(creditPaymentImpl, injector.get(CreditPaymentImpl.class));
+        assertSame(debitPaymentImpl, injector.get(DebitPaymentImpl.class));
+    }
+
+    @Test
+    public void test_rebind_invalid() {
+        Injector injector = injected(NovocaineConfig.builder().packages("io.novocaine.example").build());
+        try {
+            injector.rebind(CashPaymentImpl.class, new CashPaymentImpl());
+            fail("Expected rebind without rebindable() to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("rebindable()"));
+        }
+
+        Injector rebindable = injected(NovocaineConfig.builder().packages("io.novocaine.example").rebindable().build());
+        try {
+            rebindable.rebind(Runnable.class, () -> { });
+            fail("Expected rebind of an unbound type to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("which has been instantiated"));
+        }
+        try {
+            rebindable.rebind(Runnable.class, CreditPayment.class, () -> { });
+            fail("Expected rebind of a qualifier resolving to another type to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("with the type it is bound to"));
+        }
+        try {
+            rebindable.rebind(Runnable.class, "debit", () -> { });
+            fail("Expected rebind of a name bound to another type to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("with the type it is bound to"));
+        }
+        assertFalse(rebindable.get(FieldInjectionService.class).getDebitPayment() instanceof Runnable);
+        try {
+            rebindable.rebind(Payment.class, "unknown", () -> { });
+            fail("Expected rebind of an unbound name to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("which has been instantiated"));
+        }
+    }
+
+    private static Injector injected(NovocaineConfig config) {
+        Injector injector = new Injector();
+        injector.inject(new TopLevelService(), config);
+        return injector;
+    }
+}
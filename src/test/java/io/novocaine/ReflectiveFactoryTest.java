@@ -0,0 +1,108 @@
+package io.novocaine;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ReflectiveFactoryTest {
+
+    @Test
+    public void test_factoryFor_describedOnce() throws Exception {
+        Path file = Files.createTempFile("novocaine", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("io.novocaine.Reflection");
+            recording.start();
+            // every phase consults the factory of each class - and so does each further Injector
+            for (int i = 0; i < 2; i++) {
+                Injector injector = new Injector();
+                DependencyGraph.build(injector, Arrays.asList(Described.class, DescribedDependency.class), new Object(),
+                        NovocaineConfig.builder().unscopedAsPrototype().build()).instantiate(null);
+                assertNotNull(((Described) injector.injectableProvider.get(Described.class)).dependency);
+            }
+            recording.stop();
+            recording.dump(file);
+
+            Map<String, Long> described = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("io.novocaine.Reflection"))
+                    .collect(Collectors.groupingBy(event -> event.getString("bindingKey"), Collectors.counting()));
+            assertEquals(Long.valueOf(1), described.get(Described.class.getName()));
+            assertEquals(Long.valueOf(1), described.get(DescribedDependency.class.getName()));
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void test_newInstance_spreadArgs() throws Exception {
+        ReflectiveFactory<Wide> factory = new ReflectiveFactory<>(Wide.class);
+        Wide wide = factory.newInstance(new Object[] { "a", "b", "c", "d", "e" });
+        assertEquals("abcde", wide.value);
+    }
+
+    @Test
+    public void test_newInstance_exactArgs() throws Exception {
+        ReflectiveFactory<Narrow> factory = new ReflectiveFactory<>(Narrow.class);
+        assertEquals("ab", factory.newInstance(new Object[] { "a", "b" }).value);
+        assertEquals("cd", factory.newInstance(new Object[] { "c", "d" }).value);
+    }
+
+    @Test
+    public void test_newInstance_exceptionPropagates() throws Exception {
+        ReflectiveFactory<Wide> factory = new ReflectiveFactory<>(Wide.class);
+        try {
+            factory.newInstance(new Object[] { "!", "b", "c", "d", "e" });
+            fail("Expected the constructor's own exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("a", e.getMessage());
+        }
+    }
+
+    public static class Wide {
+
+        private String value;
+
+        @Inject
+        public Wide(String a, String b, String c, String d, String e) {
+            if ("!".equals(a)) {
+                throw new IllegalArgumentException("a");
+            }
+            this.value = a + b + c + d + e;
+        }
+    }
+
+    public static class Narrow {
+
+        private final String value;
+
+        @Inject
+        public Narrow(String a, String b) {
+            this.value = a + b;
+        }
+    }
+
+    @Singleton
+    public static class Described {
+
+        @Inject
+        DescribedDependency dependency;
+    }
+
+    public static class DescribedDependency {
+
+        @Inject
+        public DescribedDependency() {
+        }
+    }
+}
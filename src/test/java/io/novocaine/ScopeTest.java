@@ -0,0 +1,140 @@
+package io.novocaine;
+
+import io.novocaine.example.service.LowLevelService;
+import io.novocaine.example.service.RequestScopedService;
+import io.novocaine.example.service.ThreadScopedService;
+import io.novocaine.example.service.TopLevelService;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.inject.Provider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class ScopeTest {
+
+    private static Injector injector;
+
+    @BeforeClass
+    public static void setup() {
+        injector = new Injector();
+        injector.inject(new TopLevelService(), NovocaineConfig.builder().packages("io.novocaine.example").build());
+    }
+
+    @Test
+    public void test_requestScope() {
+        try {
+            injector.get(RequestScopedService.class);
+            fail("Expected get outside of a request to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("No request scope is active"));
+        }
+
+        RequestScope.REQUEST.enter();
+        RequestScopedService first;
+        try {
+            first = injector.get(RequestScopedService.class);
+            assertSame(first, injector.get(RequestScopedService.class));
+            assertSame(first, injector.handle(RequestScopedService.class).get());
+            assertSame(injector.get(LowLevelService.class), first.getLowLevelService());
+        }
+        finally {
+            RequestScope.REQUEST.exit();
+        }
+
+        RequestScope.REQUEST.enter();
+        try {
+            assertNotSame(first, injector.get(RequestScopedService.class));
+        }
+        finally {
+            RequestScope.REQUEST.exit();
+        }
+        assertFalse(RequestScope.REQUEST.isActive());
+    }
+
+    @Test
+    public void test_requestScope_enterTwice() {
+        RequestScope scope = new RequestScope("job");
+        scope.enter();
+        try {
+            scope.enter();
+            fail("Expected a nested enter to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("already active"));
+        }
+        finally {
+            scope.exit();
+        }
+    }
+
+    @Test
+    public void test_requestScope_slotsReleased() throws Exception {
+        RequestScope scope = new RequestScope("job");
+        // every Injector scopes its classes anew - the slots of those discarded are assigned again
+        for (int i = 0; i < 10; i++) {
+            scope.scope(Object.class, Object::new);
+        }
+        List<Provider<Object>> live = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(10);
+            live.add(scope.scope(Object.class, Object::new));
+        }
+        assertTrue(String.valueOf(scope.slots.get()), scope.slots.get() < 20);
+
+        // providers sharing a class never share an instance, even in a released slot
+        Provider<Object> first = scope.scope(Object.class, Object::new);
+        Provider<Object> second = scope.scope(Object.class, Object::new);
+        scope.enter();
+        try {
+            Object instance = first.get();
+            assertSame(instance, first.get());
+            assertNotSame(instance, second.get());
+            assertSame(second.get(), second.get());
+        }
+        finally {
+            scope.exit();
+        }
+    }
+
+    @Test
+    public void test_threadScope() throws Exception {
+        ThreadScopedService service = injector.get(ThreadScopedService.class);
+        assertNotNull(service);
+        assertSame(service, injector.get(ThreadScopedService.class));
+        ThreadScopedService other = CompletableFuture.supplyAsync(() -> injector.get(ThreadScopedService.class)).get();
+        assertNotNull(other);
+        assertNotSame(service, other);
+    }
+
+    @Test
+    public void test_scope_registered() {
+        RequestScope job = new RequestScope("job");
+        Injector jobs = new Injector();
+        jobs.inject(new TopLevelService(), NovocaineConfig.builder()
+                .packages("io.novocaine.example")
+                .scope(ThreadScoped.class, job)
+                .build());
+
+        job.enter();
+        try {
+            ThreadScopedService service = jobs.get(ThreadScopedService.class);
+            assertSame(service, jobs.get(ThreadScopedService.class));
+        }
+        finally {
+            job.exit();
+        }
+        try {
+            jobs.get(ThreadScopedService.class);
+            fail("Expected get outside of a job to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("No job scope is active"));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.novocaine;
+
+import io.novocaine.example.service.ClosingServiceOne;
+import io.novocaine.example.service.ClosingServiceTwo;
+import io.novocaine.example.service.TopLevelService;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ShutdownTest {
+
+    @Test
+    public void test_shutdown() {
+        Injector injector = injected();
+        ClosingServiceTwo two = injector.get(ClosingServiceTwo.class);
+        injector.shutdown();
+
+        assertTrue(two.isDestroyed());
+        assertTrue(two.isDestroyedBeforeDependency());
+        assertTrue(injector.get(ClosingServiceOne.class).isClosed());
+
+        try {
+            injector.shutdown();
+            fail("Expected the second shutdown to fail");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("once per Injector"));
+        }
+    }
+
+    @Test
+    public void test_shutdown_timeout() {
+        Injector injector = injected();
+        ClosingServiceTwo two = injector.get(ClosingServiceTwo.class);
+        CountDownLatch latch = new CountDownLatch(1);
+        two.blockShutdownOn(latch);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            injector.shutdown(executor, 100, TimeUnit.MILLISECONDS);
+            fail("Expected the blocked singleton to time out");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Timed out after 100ms shutting down singleton: " + ClosingServiceTwo.class.getName()));
+            // the dependency is shut down once its dependent has timed out
+            assertTrue(two.isDestroyedBeforeDependency());
+            assertTrue(injector.get(ClosingServiceOne.class).isClosed());
+        }
+        finally {
+            latch.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static Injector injected() {
+        Injector injector = new Injector();
+        injector.inject(new TopLevelService(), NovocaineConfig.builder().packages("io.novocaine.example").build());
+        return injector;
+    }
+}
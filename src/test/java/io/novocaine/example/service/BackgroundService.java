@@ -0,0 +1,29 @@
+package io.novocaine.example.service;
+
+import io.novocaine.Background;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Background
+@Singleton
+public class BackgroundService {
+
+    @Inject
+    private LowLevelService lowLevelService;
+
+    private volatile boolean warm;
+
+    @PostConstruct
+    public void warmUp() {
+        warm = true;
+    }
+
+    public LowLevelService getLowLevelService() {
+        return lowLevelService;
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+}
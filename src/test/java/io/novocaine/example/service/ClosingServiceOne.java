@@ -0,0 +1,18 @@
+package io.novocaine.example.service;
+
+import javax.inject.Singleton;
+
+@Singleton
+public class ClosingServiceOne implements AutoCloseable {
+
+    private volatile boolean closed;
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
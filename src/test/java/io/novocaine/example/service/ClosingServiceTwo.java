@@ -0,0 +1,38 @@
+package io.novocaine.example.service;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.CountDownLatch;
+
+@Singleton
+public class ClosingServiceTwo {
+
+    @Inject
+    private ClosingServiceOne closingServiceOne;
+
+    private volatile CountDownLatch blocker;
+    private volatile boolean destroyed;
+    private volatile boolean destroyedBeforeDependency;
+
+    @PreDestroy
+    public void flush() throws InterruptedException {
+        destroyedBeforeDependency = !closingServiceOne.isClosed();
+        destroyed = true;
+        CountDownLatch latch = blocker;
+        if (latch != null) {
+            latch.await();
+        }
+    }
+
+    public void blockShutdownOn(CountDownLatch latch) {
+        blocker = latch;
+    }
+
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    public boolean isDestroyedBeforeDependency() {
+        return destroyedBeforeDependency;
+    }
+}
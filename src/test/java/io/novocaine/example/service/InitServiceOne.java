@@ -0,0 +1,22 @@
+package io.novocaine.example.service;
+
+import javax.inject.Singleton;
+
+@Singleton
+public class InitServiceOne {
+
+    private volatile Thread initThread;
+
+    @PostConstruct
+    void init() {
+        initThread = Thread.currentThread();
+    }
+
+    public boolean isInitialized() {
+        return initThread != null;
+    }
+
+    public Thread getInitThread() {
+        return initThread;
+    }
+}
@@ -0,0 +1,28 @@
+package io.novocaine.example.service;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class InitServiceTwo {
+
+    @Inject
+    private InitServiceOne initServiceOne;
+
+    private volatile boolean initialized;
+    private volatile boolean initializedAfterDependency;
+
+    @PostConstruct
+    public void init() {
+        initializedAfterDependency = initServiceOne.isInitialized();
+        initialized = true;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public boolean isInitializedAfterDependency() {
+        return initializedAfterDependency;
+    }
+}
@@ -0,0 +1,18 @@
+package io.novocaine.example.service;
+
+import io.novocaine.Lazy;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Lazy
+@Singleton
+public class LazyService {
+
+    @Inject
+    private LowLevelService lowLevelService;
+
+    public LowLevelService getLowLevelService() {
+        return lowLevelService;
+    }
+}
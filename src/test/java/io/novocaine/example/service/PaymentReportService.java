@@ -0,0 +1,13 @@
+package io.novocaine.example.service;
+
+import javax.inject.Inject;
+
+public class PaymentReportService {
+
+    @Inject
+    private ConstructorInjectionService constructorInjectionService;
+
+    public ConstructorInjectionService getConstructorInjectionService() {
+        return constructorInjectionService;
+    }
+}
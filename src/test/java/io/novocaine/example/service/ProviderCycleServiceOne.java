@@ -0,0 +1,19 @@
+package io.novocaine.example.service;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+@Singleton
+public class ProviderCycleServiceOne {
+
+    /**
+     * A provider breaks the cycle with ProviderCycleServiceTwo
+     */
+    @Inject
+    private Provider<ProviderCycleServiceTwo> providerCycleServiceTwo;
+
+    public Provider<ProviderCycleServiceTwo> getProviderCycleServiceTwo() {
+        return providerCycleServiceTwo;
+    }
+}
@@ -0,0 +1,19 @@
+package io.novocaine.example.service;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class ProviderCycleServiceTwo {
+
+    private final ProviderCycleServiceOne providerCycleServiceOne;
+
+    @Inject
+    public ProviderCycleServiceTwo(ProviderCycleServiceOne providerCycleServiceOne) {
+        this.providerCycleServiceOne = providerCycleServiceOne;
+    }
+
+    public ProviderCycleServiceOne getProviderCycleServiceOne() {
+        return providerCycleServiceOne;
+    }
+}
@@ -0,0 +1,51 @@
+package io.novocaine.example.service;
+
+import io.novocaine.example.qualifier.CreditPayment;
+import io.novocaine.example.qualifier.Payment;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+@Singleton
+public class ProviderInjectionService {
+
+    /**
+     * Field injection of a provider
+     */
+    @Inject
+    private Provider<LowLevelService> lowLevelService;
+
+    private final Provider<Payment> creditPayment;
+
+    private Provider<Payment> debitPayment;
+
+    /**
+     * Constructor injection of a provider with qualifier annotation
+     */
+    @Inject
+    public ProviderInjectionService(@CreditPayment Provider<Payment> creditPayment) {
+        this.creditPayment = creditPayment;
+    }
+
+    /**
+     * Method injection of a provider with named annotation
+     */
+    @Inject
+    public void setDebitPayment(@Named("debit") Provider<Payment> debitPayment) {
+        this.debitPayment = debitPayment;
+    }
+
+    public Provider<LowLevelService> getLowLevelService() {
+        return lowLevelService;
+    }
+
+    public Provider<Payment> getCreditPayment() {
+        return creditPayment;
+    }
+
+    public Provider<Payment> getDebitPayment() {
+        return debitPayment;
+    }
+}
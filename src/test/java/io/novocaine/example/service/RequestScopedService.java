@@ -0,0 +1,16 @@
+package io.novocaine.example.service;
+
+import io.novocaine.RequestScoped;
+
+import javax.inject.Inject;
+
+@RequestScoped
+public class RequestScopedService {
+
+    @Inject
+    private LowLevelService lowLevelService;
+
+    public LowLevelService getLowLevelService() {
+        return lowLevelService;
+    }
+}
@@ -0,0 +1,8 @@
+package io.novocaine.example.service;
+
+import io.novocaine.ThreadScoped;
+
+@ThreadScoped
+public class ThreadScopedService {
+
+}